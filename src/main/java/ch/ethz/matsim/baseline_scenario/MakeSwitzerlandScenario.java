@@ -21,6 +21,8 @@ import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkWriter;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.facilities.FacilitiesWriter;
 import org.matsim.facilities.MatsimFacilitiesReader;
@@ -58,6 +60,7 @@ import ch.ethz.matsim.baseline_scenario.utils.UnselectedPlanRemoval;
 import ch.ethz.matsim.baseline_scenario.utils.consistency.MD5Collector;
 import ch.ethz.matsim.baseline_scenario.utils.counts.TrafficCountPlanSelector;
 import ch.ethz.matsim.baseline_scenario.utils.routing.BestResponseCarRouting;
+import ch.ethz.matsim.baseline_scenario.utils.routing.contraction.ContractionHierarchyFactory;
 
 public class MakeSwitzerlandScenario {
 	static public void main(String args[]) throws Exception {
@@ -179,7 +182,12 @@ public class MakeSwitzerlandScenario {
 		// PREPARE FOR RUNNING
 
 		// Do best response routing with free-flow travel times
-		new BestResponseCarRouting(numberOfThreads, roadNetwork).run(scenario.getPopulation());
+		LeastCostPathCalculatorFactory carPathCalculatorFactory = baselineConfig.useContractionHierarchies
+				? new ContractionHierarchyFactory(outputPath)
+				: new DijkstraFactory();
+		new BestResponseCarRouting(numberOfThreads, roadNetwork, carPathCalculatorFactory,
+				baselineConfig.carPathCacheMegabytes * 1024L * 1024L, baselineConfig.batchCarTripsByOrigin)
+						.run(scenario.getPopulation());
 
 		/*if (baselineConfig.performIterativeLocationChoice) {
 			// Select plans to fit counts
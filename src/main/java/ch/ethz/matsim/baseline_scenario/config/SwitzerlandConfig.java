@@ -8,6 +8,9 @@ public class SwitzerlandConfig {
 	public double outputScenarioScale = 1.0;
 
 	public int numberOfThreads = 0;
+	public boolean useContractionHierarchies = false;
+	public int carPathCacheMegabytes = 256; // 0 disables the cache
+	public boolean batchCarTripsByOrigin = false; // Trees bypass the contraction hierarchy and the cache
 
 	public String prefix = "switzerland_";
 
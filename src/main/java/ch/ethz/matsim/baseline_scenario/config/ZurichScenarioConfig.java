@@ -5,6 +5,12 @@ public class ZurichScenarioConfig {
 	public String baselinePrefix = "switzerland_";
 
 	public int numberOfThreads = 0;
+	public boolean useThreadAffineRouters = true;
+	public String routingGranularity = "trip"; // trip, plan or person
+	public int plansInFlight = 64; // per routing thread
+	public boolean writeRoutingCostReport = false;
+	public boolean useContractionHierarchies = false;
+	public int carPathCacheMegabytes = 256; // 0 disables the cache
 
 	public String prefix = "zurich_";
 	public String outputPath;
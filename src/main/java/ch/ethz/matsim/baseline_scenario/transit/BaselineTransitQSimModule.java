@@ -1,17 +1,22 @@
 package ch.ethz.matsim.baseline_scenario.transit;
 
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.mobsim.qsim.AbstractQSimModule;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.components.QSimComponentsConfig;
 import org.matsim.core.mobsim.qsim.pt.TransitEngineModule;
-import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.HeadwayIndex;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitConfigGroup;
 import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitEngine;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.OccupancyAggregator;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.TransitEngineStatistics;
 
 public class BaselineTransitQSimModule extends AbstractQSimModule {
 	public static final String COMPONENT_NAME = "BaselineTransit";
@@ -24,8 +29,24 @@ public class BaselineTransitQSimModule extends AbstractQSimModule {
 	@Provides
 	@Singleton
 	public BaselineTransitEngine provideBaselineTransitEngine(EventsManager eventsManager,
-			TransitSchedule transitSchedule, DepartureFinder departureFinder, QSim qsim) {
-		return new BaselineTransitEngine(eventsManager, transitSchedule, departureFinder, qsim.getAgentCounter());
+			CompiledTransitSchedule schedule, QSim qsim, BaselineTransitConfigGroup transitConfig,
+			QSimConfigGroup qsimConfig, Provider<OccupancyAggregator> occupancyProvider,
+			Provider<HeadwayIndex> headwayIndexProvider, Provider<TransitEngineStatistics> statisticsProvider) {
+		int numberOfPartitions = transitConfig.getNumberOfPartitions();
+
+		if (numberOfPartitions == 0) {
+			numberOfPartitions = Math.max(1, qsimConfig.getNumberOfThreads());
+		}
+
+		OccupancyAggregator occupancy = transitConfig.getWriteOccupancyInterval() > 0 ? occupancyProvider.get()
+				: null;
+		HeadwayIndex headwayIndex = transitConfig.getUseHeadwayIndex() ? headwayIndexProvider.get() : null;
+		TransitEngineStatistics statistics = transitConfig.getWriteEngineStatistics() ? statisticsProvider.get()
+				: null;
+
+		return new BaselineTransitEngine(eventsManager, schedule, qsim.getAgentCounter(),
+				transitConfig.getScheduler(), numberOfPartitions, occupancy, headwayIndex,
+				statistics);
 	}
 
 	static public void configureComponents(QSimComponentsConfig components) {
@@ -0,0 +1,167 @@
+package ch.ethz.matsim.baseline_scenario.transit.connection;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+
+/**
+ * Bounded cache in front of another TransitConnectionFinder.
+ *
+ * A connection is determined by the departure that is boarded at the access
+ * stop, not by the exact time at which an agent arrives there. Connections are
+ * therefore keyed by the route, the access stop, the egress stop facility and
+ * the index of the boarded departure in the CompiledTransitSchedule, so that
+ * all agents that catch the same vehicle share one entry. Only the part of a
+ * connection that does not depend on the agent is cached, the waiting time is
+ * computed for every lookup from the total travel time.
+ *
+ * Routes that serve the access stop facility more than once are passed to the
+ * delegate, because the access stop may then depend on the total travel time.
+ * The same holds for lookups with a negative waiting time.
+ *
+ * The cache is direct-mapped: each key is mapped to one slot by its hash, and a
+ * slot only remembers the last connection that was put there. Slots are
+ * immutable and replaced as a whole, so the cache may be shared by all routing
+ * threads without locking. Concurrent access can only cause additional misses.
+ * Failed lookups are not cached.
+ */
+public class CachingTransitConnectionFinder implements TransitConnectionFinder {
+	final private static Logger logger = Logger.getLogger(CachingTransitConnectionFinder.class);
+
+	final private TransitConnectionFinder delegate;
+	final private CompiledTransitSchedule schedule;
+	final private Slot[] slots;
+	final private int mask;
+
+	final private LongAdder hits = new LongAdder();
+	final private LongAdder misses = new LongAdder();
+
+	static private class Slot {
+		final int routeIndex;
+		final int accessStopIndex;
+		final int egressFacilityIndex;
+		final int departureIndex;
+
+		final TransitRouteStop accessStop;
+		final TransitRouteStop egressStop;
+		final int egressStopIndex;
+		final double inVehicleTime;
+
+		Slot(int routeIndex, int accessStopIndex, int egressFacilityIndex, int departureIndex,
+				TransitConnection connection) {
+			this.routeIndex = routeIndex;
+			this.accessStopIndex = accessStopIndex;
+			this.egressFacilityIndex = egressFacilityIndex;
+			this.departureIndex = departureIndex;
+			this.accessStop = connection.getAccessStop();
+			this.egressStop = connection.getEgressStop();
+			this.egressStopIndex = connection.getEgressStopIndex();
+			this.inVehicleTime = connection.getInVehicleTime();
+		}
+
+		boolean matches(int routeIndex, int accessStopIndex, int egressFacilityIndex, int departureIndex) {
+			return this.departureIndex == departureIndex && this.routeIndex == routeIndex
+					&& this.accessStopIndex == accessStopIndex && this.egressFacilityIndex == egressFacilityIndex;
+		}
+	}
+
+	/**
+	 * @param size number of slots, rounded up to the next power of two
+	 */
+	public CachingTransitConnectionFinder(TransitConnectionFinder delegate, CompiledTransitSchedule schedule,
+			int size) {
+		int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+
+		this.delegate = delegate;
+		this.schedule = schedule;
+		this.slots = new Slot[capacity];
+		this.mask = capacity - 1;
+	}
+
+	@Override
+	public TransitConnection findConnection(double departureTime, double totalTravelTime,
+			Id<TransitStopFacility> accessStopId, Id<TransitStopFacility> egressStopId, TransitRoute transitRoute)
+			throws NoConnectionFoundException {
+		int routeIndex = schedule.getRouteIndex(transitRoute);
+		int accessFacilityIndex = schedule.getStopFacilityIndex(accessStopId);
+		int egressFacilityIndex = schedule.getStopFacilityIndex(egressStopId);
+
+		if (routeIndex < 0 || accessFacilityIndex < 0 || egressFacilityIndex < 0) {
+			return delegate.findConnection(departureTime, totalTravelTime, accessStopId, egressStopId, transitRoute);
+		}
+
+		int accessStopIndex = schedule.findNextStopIndex(routeIndex, accessFacilityIndex, 0);
+
+		if (accessStopIndex < 0
+				|| schedule.findNextStopIndex(routeIndex, accessFacilityIndex, accessStopIndex + 1) >= 0) {
+			return delegate.findConnection(departureTime, totalTravelTime, accessStopId, egressStopId, transitRoute);
+		}
+
+		int departureIndex = schedule.findDepartureIndex(routeIndex, accessStopIndex, departureTime);
+
+		if (departureIndex < 0) {
+			return delegate.findConnection(departureTime, totalTravelTime, accessStopId, egressStopId, transitRoute);
+		}
+
+		int hash = routeIndex;
+		hash = 31 * hash + accessStopIndex;
+		hash = 31 * hash + egressFacilityIndex;
+		hash = 31 * hash + departureIndex;
+
+		int index = (hash ^ (hash >>> 16)) & mask;
+		Slot slot = slots[index];
+
+		if (slot != null && slot.matches(routeIndex, accessStopIndex, egressFacilityIndex, departureIndex)) {
+			double waitingTime = totalTravelTime - slot.inVehicleTime;
+
+			if (waitingTime >= 0.0) {
+				hits.increment();
+				return new DefaultTransitConnection(schedule.getDeparture(departureIndex), slot.accessStop,
+						slot.egressStop, accessStopIndex, slot.egressStopIndex, slot.inVehicleTime, waitingTime);
+			}
+		}
+
+		TransitConnection connection = delegate.findConnection(departureTime, totalTravelTime, accessStopId,
+				egressStopId, transitRoute);
+
+		// Only cache what the delegate derived from the same departure
+		if (connection.getAccessStopIndex() == accessStopIndex
+				&& connection.getDeparture() == schedule.getDeparture(departureIndex)) {
+			slots[index] = new Slot(routeIndex, accessStopIndex, egressFacilityIndex, departureIndex, connection);
+		}
+
+		misses.increment();
+		long numberOfMisses = misses.sum();
+
+		if (numberOfMisses >= 1024 && Long.bitCount(numberOfMisses) == 1) {
+			printStatistics();
+		}
+
+		return connection;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long numberOfHits = hits.sum();
+		long numberOfLookups = numberOfHits + misses.sum();
+		return numberOfLookups == 0 ? 0.0 : (double) numberOfHits / numberOfLookups;
+	}
+
+	public void printStatistics() {
+		logger.info(String.format("Transit connection cache: %d hits, %d misses, hit rate %.2f%%", getHits(),
+				getMisses(), 100.0 * getHitRate()));
+	}
+}
@@ -7,14 +7,18 @@ public class DefaultTransitConnection implements TransitConnection {
 	final private Departure departure;
 	final private TransitRouteStop accessStop;
 	final private TransitRouteStop egressStop;
+	final private int accessStopIndex;
+	final private int egressStopIndex;
 	final private double inVehicleTime;
 	final private double waitingTime;
 
 	public DefaultTransitConnection(Departure departure, TransitRouteStop accessStop, TransitRouteStop egressStop,
-			double inVehicleTime, double waitingTime) {
+			int accessStopIndex, int egressStopIndex, double inVehicleTime, double waitingTime) {
 		this.departure = departure;
 		this.accessStop = accessStop;
 		this.egressStop = egressStop;
+		this.accessStopIndex = accessStopIndex;
+		this.egressStopIndex = egressStopIndex;
 		this.inVehicleTime = inVehicleTime;
 		this.waitingTime = waitingTime;
 	}
@@ -34,6 +38,16 @@ public class DefaultTransitConnection implements TransitConnection {
 		return egressStop;
 	}
 
+	@Override
+	public int getAccessStopIndex() {
+		return accessStopIndex;
+	}
+
+	@Override
+	public int getEgressStopIndex() {
+		return egressStopIndex;
+	}
+
 	@Override
 	public double getInVehicleTime() {
 		return inVehicleTime;
@@ -1,5 +1,7 @@
 package ch.ethz.matsim.baseline_scenario.transit.connection;
 
+import java.util.Optional;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.Departure;
@@ -7,134 +9,159 @@ import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder.NoDepartureFoundException;
 
 public class DefaultTransitConnectionFinder implements TransitConnectionFinder {
 	final private DepartureFinder departureFinder;
+	final private CompiledTransitSchedule schedule;
 
-	public DefaultTransitConnectionFinder(DepartureFinder departureFinder) {
+	public DefaultTransitConnectionFinder(DepartureFinder departureFinder, CompiledTransitSchedule schedule) {
 		this.departureFinder = departureFinder;
+		this.schedule = schedule;
+	}
+
+	private boolean hasDeparture(int routeIndex, int stopIndex, double minimumDepartureTime) {
+		return departureFinder.tryFindDeparture(schedule.getRoute(routeIndex),
+				schedule.getRouteStop(routeIndex, stopIndex), minimumDepartureTime).isPresent();
 	}
 
-	private int updateAccessStopIndex(TransitRoute transitRoute, Id<TransitStopFacility> stopFacilityId,
-			double minimumDepartureTime, int accessStopIndex, int egressStopIndex) {
-		for (int i = egressStopIndex - 1; i > accessStopIndex; i--) {
-			TransitRouteStop stop = transitRoute.getStops().get(i);
+	private Departure findDeparture(int routeIndex, int accessStopIndex, double connectionDepartureTime,
+			Id<TransitStopFacility> egressStopId, double totalTravelTime) throws NoConnectionFoundException {
+		TransitRoute transitRoute = schedule.getRoute(routeIndex);
+		TransitRouteStop accessStop = schedule.getRouteStop(routeIndex, accessStopIndex);
 
-			if (stop.getStopFacility().getId().equals(stopFacilityId)) {
-				try {
-					departureFinder.findDeparture(transitRoute, stop, minimumDepartureTime);
-					return i; // Return if a departure is found
-				} catch (NoDepartureFoundException e) {
-				}
+		Optional<Departure> departure = departureFinder.tryFindDeparture(transitRoute, accessStop,
+				connectionDepartureTime);
+
+		if (!departure.isPresent()) {
+			throw new NoConnectionFoundException(transitRoute, accessStop.getStopFacility().getId(), egressStopId,
+					connectionDepartureTime, totalTravelTime);
+		}
+
+		return departure.get();
+	}
+
+	private int updateAccessStopIndex(int routeIndex, int facilityIndex, double minimumDepartureTime,
+			int accessStopIndex, int egressStopIndex) {
+		int i = schedule.findPreviousStopIndex(routeIndex, facilityIndex, egressStopIndex);
+
+		while (i > accessStopIndex) {
+			if (hasDeparture(routeIndex, i, minimumDepartureTime)) {
+				return i; // Return if a departure is found
 			}
+
+			i = schedule.findPreviousStopIndex(routeIndex, facilityIndex, i);
 		}
 
 		return accessStopIndex;
 	}
 
-	private int findStopIndex(TransitRoute transitRoute, Id<TransitStopFacility> stopFacilityId,
+	private int findStopIndex(int routeIndex, int facilityIndex, Id<TransitStopFacility> stopFacilityId,
 			double minimumDepartureTime, int minimumIndex) {
+		int i = schedule.findNextStopIndex(routeIndex, facilityIndex, minimumIndex);
 
-		for (int i = minimumIndex; i < transitRoute.getStops().size(); i++) {
-			TransitRouteStop stop = transitRoute.getStops().get(i);
-
-			if (stop.getStopFacility().getId().equals(stopFacilityId)) {
-				try {
-					departureFinder.findDeparture(transitRoute, stop, minimumDepartureTime);
-					return i; // Return if a departure is found
-				} catch (NoDepartureFoundException e) {
-				}
+		while (i >= 0) {
+			if (hasDeparture(routeIndex, i, minimumDepartureTime)) {
+				return i; // Return if a departure is found
 			}
+
+			i = schedule.findNextStopIndex(routeIndex, facilityIndex, i + 1);
 		}
 
 		throw new IllegalStateException("Cannot find stop facility " + stopFacilityId + " on route "
-				+ transitRoute.getId() + " after " + Time.writeTime(minimumDepartureTime));
+				+ schedule.getRoute(routeIndex).getId() + " after " + Time.writeTime(minimumDepartureTime));
 	}
 
 	@Override
 	public TransitConnection findConnection(double connectionDepartureTime, double totalTravelTime,
 			Id<TransitStopFacility> accessStopId, Id<TransitStopFacility> egressStopId, TransitRoute transitRoute)
 			throws NoConnectionFoundException {
-		try {
-			// Recovering the correct access and egress stops from the informaton given in
-			// the ExperimentalTransitRoutes is tricky. Please refer to
-			// https://matsim.atlassian.net/browse/MATSIM-790 to understand why this is so
-			// complicated here.
-
-			double waitingTime = 0.0;
-			double inVehicleTime = 0.0;
-
-			Departure routeDeparture = null;
-			TransitRouteStop accessStop;
-			TransitRouteStop egressStop;
-
-			int minimumAccessStopIndex = 0;
-
-			do {
-				// Find the first stop with the given access stop id with a departure after the
-				// leg departure time
-				int accessStopIndex = findStopIndex(transitRoute, accessStopId, connectionDepartureTime,
-						minimumAccessStopIndex);
-				accessStop = transitRoute.getStops().get(accessStopIndex);
-
-				// Find the corresponding departure
-				routeDeparture = departureFinder.findDeparture(transitRoute, accessStop, connectionDepartureTime);
-				double vehicleDepartureTime = accessStop.getDepartureOffset() + routeDeparture.getDepartureTime();
-
-				// Find the stop with the given egress stop id that comes after the access stop
-				// and after the vehicle departure time
-				int egressStopIndex = findStopIndex(transitRoute, egressStopId, vehicleDepartureTime, accessStopIndex);
-				egressStop = transitRoute.getStops().get(egressStopIndex);
-
-				// Compute waiting time
-				inVehicleTime = egressStop.getArrivalOffset() - accessStop.getDepartureOffset();
-				waitingTime = totalTravelTime - inVehicleTime;
-				
-				while (waitingTime < 0.0) {
-					// It may happen that the route has a loop. A good indicator for that is that
-					// the waiting time is negative. In that case we can try to recover the actual
-					// access stop (which must come after the one that we initially found and before
-					// the egress stop).
-
-					int updatedAccessStopIndex = updateAccessStopIndex(transitRoute, accessStopId,
-							connectionDepartureTime, accessStopIndex, egressStopIndex);
-
-					if (updatedAccessStopIndex != accessStopIndex) {
-						accessStopIndex = updatedAccessStopIndex;
-						accessStop = transitRoute.getStops().get(accessStopIndex);
-
-						// Find the corresponding departure
-						routeDeparture = departureFinder.findDeparture(transitRoute, accessStop,
-								connectionDepartureTime);
-						vehicleDepartureTime = accessStop.getDepartureOffset() + routeDeparture.getDepartureTime();
-
-						// Hopefully, now the waiting time fits, otherwise we have to do another round.
-					} else {
-						// We were not able to find a better access stop.
-						break;
-					}
-
-					// Update in-vehicle time and waiting time
-					inVehicleTime = egressStop.getArrivalOffset() - accessStop.getDepartureOffset();
-					waitingTime = totalTravelTime - inVehicleTime;
-				}
+		// Recovering the correct access and egress stops from the informaton given in
+		// the ExperimentalTransitRoutes is tricky. Please refer to
+		// https://matsim.atlassian.net/browse/MATSIM-790 to understand why this is so
+		// complicated here.
+
+		int routeIndex = schedule.getRouteIndex(transitRoute);
+
+		if (routeIndex < 0) {
+			throw new IllegalStateException("Route " + transitRoute.getId() + " is not part of the schedule");
+		}
 
-				// At this point waiting time may still be negative. This can happen if there is
-				// another connection between the access stop id and the egress stop id on the
-				// given route. This means we have to do another search round with access stops
-				// that are AFTER the current egress stop.
-				// If there is a bug somewhere, the functions above should not be able to find
-				// another connection at some point and raise an error.
+		int accessFacilityIndex = schedule.getStopFacilityIndex(accessStopId);
+		int egressFacilityIndex = schedule.getStopFacilityIndex(egressStopId);
 
-				minimumAccessStopIndex = egressStopIndex;
-			} while (waitingTime < 0.0);
+		double waitingTime = 0.0;
+		double inVehicleTime = 0.0;
 
-			return new DefaultTransitConnection(routeDeparture, accessStop, egressStop, inVehicleTime, waitingTime);
-		} catch (NoDepartureFoundException e) {
-			throw new NoConnectionFoundException(transitRoute, accessStopId, egressStopId, connectionDepartureTime,
+		Departure routeDeparture = null;
+		int accessStopIndex;
+		int egressStopIndex;
+
+		int minimumAccessStopIndex = 0;
+
+		do {
+			// Find the first stop with the given access stop id with a departure after the
+			// leg departure time
+			accessStopIndex = findStopIndex(routeIndex, accessFacilityIndex, accessStopId,
+					connectionDepartureTime, minimumAccessStopIndex);
+
+			// Find the corresponding departure
+			routeDeparture = findDeparture(routeIndex, accessStopIndex, connectionDepartureTime, egressStopId,
 					totalTravelTime);
-		}
+			double vehicleDepartureTime = schedule.getDepartureOffset(routeIndex, accessStopIndex)
+					+ routeDeparture.getDepartureTime();
+
+			// Find the stop with the given egress stop id that comes after the access stop
+			// and after the vehicle departure time
+			egressStopIndex = findStopIndex(routeIndex, egressFacilityIndex, egressStopId, vehicleDepartureTime,
+					accessStopIndex);
+
+			// Compute waiting time
+			inVehicleTime = schedule.getArrivalOffset(routeIndex, egressStopIndex)
+					- schedule.getDepartureOffset(routeIndex, accessStopIndex);
+			waitingTime = totalTravelTime - inVehicleTime;
+
+			while (waitingTime < 0.0) {
+				// It may happen that the route has a loop. A good indicator for that is that
+				// the waiting time is negative. In that case we can try to recover the actual
+				// access stop (which must come after the one that we initially found and before
+				// the egress stop).
+
+				int updatedAccessStopIndex = updateAccessStopIndex(routeIndex, accessFacilityIndex,
+						connectionDepartureTime, accessStopIndex, egressStopIndex);
+
+				if (updatedAccessStopIndex != accessStopIndex) {
+					accessStopIndex = updatedAccessStopIndex;
+
+					// Find the corresponding departure
+					routeDeparture = findDeparture(routeIndex, accessStopIndex, connectionDepartureTime, egressStopId,
+							totalTravelTime);
+
+					// Hopefully, now the waiting time fits, otherwise we have to do another round.
+				} else {
+					// We were not able to find a better access stop.
+					break;
+				}
+
+				// Update in-vehicle time and waiting time
+				inVehicleTime = schedule.getArrivalOffset(routeIndex, egressStopIndex)
+						- schedule.getDepartureOffset(routeIndex, accessStopIndex);
+				waitingTime = totalTravelTime - inVehicleTime;
+			}
+
+			// At this point waiting time may still be negative. This can happen if there is
+			// another connection between the access stop id and the egress stop id on the
+			// given route. This means we have to do another search round with access stops
+			// that are AFTER the current egress stop.
+			// If there is a bug somewhere, the functions above should not be able to find
+			// another connection at some point and raise an error.
+
+			minimumAccessStopIndex = egressStopIndex;
+		} while (waitingTime < 0.0);
+
+		return new DefaultTransitConnection(routeDeparture, schedule.getRouteStop(routeIndex, accessStopIndex),
+				schedule.getRouteStop(routeIndex, egressStopIndex), accessStopIndex, egressStopIndex, inVehicleTime,
+				waitingTime);
 	}
 }
@@ -10,6 +10,10 @@ public interface TransitConnection {
 
 	TransitRouteStop getEgressStop();
 
+	int getAccessStopIndex();
+
+	int getEgressStopIndex();
+
 	double getInVehicleTime();
 
 	double getWaitingTime();
@@ -0,0 +1,79 @@
+package ch.ethz.matsim.baseline_scenario.transit.events;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+import com.google.inject.Singleton;
+
+import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitConfigGroup;
+
+/**
+ * Writes the XML events file of an iteration with the BaselineEventWriterXML.
+ * Uses the same interval and file name as the standard events writer, which
+ * must be disabled for the XML format with {@link #adaptConfig(Config)}.
+ */
+@Singleton
+public class BaselineEventWriterListener implements BeforeMobsimListener, AfterMobsimListener {
+	final private EventsManager eventsManager;
+	final private OutputDirectoryHierarchy hierarchy;
+	final private ControlerConfigGroup controlerConfig;
+
+	private BaselineEventWriterXML writer = null;
+
+	public BaselineEventWriterListener(EventsManager eventsManager, OutputDirectoryHierarchy hierarchy,
+			ControlerConfigGroup controlerConfig) {
+		this.eventsManager = eventsManager;
+		this.hierarchy = hierarchy;
+		this.controlerConfig = controlerConfig;
+	}
+
+	/**
+	 * Removes the XML format from the standard events writer if the fast events
+	 * writer is enabled in the baselineTransit config group. Must be called before
+	 * the controler is created.
+	 */
+	static public void adaptConfig(Config config) {
+		ConfigGroup configGroup = config.getModules().get(BaselineTransitConfigGroup.GROUP_NAME);
+
+		if (configGroup instanceof BaselineTransitConfigGroup
+				&& ((BaselineTransitConfigGroup) configGroup).getUseFastEventsWriter()) {
+			Set<EventsFileFormat> formats = EnumSet.noneOf(EventsFileFormat.class);
+			formats.addAll(config.controler().getEventsFileFormats());
+
+			if (formats.remove(EventsFileFormat.xml)) {
+				config.controler().setEventsFileFormats(formats);
+			}
+		}
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		int iteration = event.getIteration();
+		int interval = controlerConfig.getWriteEventsInterval();
+
+		if (interval > 0 && (iteration % interval == 0 || iteration == controlerConfig.getLastIteration())) {
+			writer = new BaselineEventWriterXML(hierarchy.getIterationFilename(iteration, "events.xml.gz"));
+			eventsManager.addHandler(writer);
+		}
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		if (writer != null) {
+			eventsManager.removeHandler(writer);
+			writer.closeFile();
+			writer = null;
+		}
+	}
+}
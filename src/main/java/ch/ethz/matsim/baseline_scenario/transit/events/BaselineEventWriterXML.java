@@ -0,0 +1,103 @@
+package ch.ethz.matsim.baseline_scenario.transit.events;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Writes events in the format of the standard XML events writer. Public
+ * transit events are written directly from their cached attribute values, all
+ * other events go through their attribute map as usual.
+ */
+public class BaselineEventWriterXML implements EventWriter, BasicEventHandler {
+	final private BufferedWriter writer;
+	final private StringBuilder builder = new StringBuilder(256);
+
+	public BaselineEventWriterXML(String path) {
+		this.writer = IOUtils.getBufferedWriter(path);
+
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		builder.setLength(0);
+		builder.append("\t<event ");
+
+		if (event instanceof PublicTransitEvent) {
+			appendAttribute(Event.ATTRIBUTE_TIME, Double.toString(event.getTime()));
+			appendAttribute(Event.ATTRIBUTE_TYPE, PublicTransitEvent.TYPE);
+
+			String[] values = ((PublicTransitEvent) event).getSerializedValues();
+
+			for (int i = 0; i < values.length; i++) {
+				appendAttribute(PublicTransitEvent.ATTRIBUTE_NAMES[i], values[i]);
+			}
+		} else {
+			for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+				appendAttribute(entry.getKey(), entry.getValue());
+			}
+		}
+
+		builder.append(" />\n");
+
+		try {
+			writer.append(builder);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void appendAttribute(String name, String value) {
+		builder.append(name).append("=\"");
+
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+
+				switch (c) {
+				case '&':
+					builder.append("&amp;");
+					break;
+				case '<':
+					builder.append("&lt;");
+					break;
+				case '>':
+					builder.append("&gt;");
+					break;
+				case '"':
+					builder.append("&quot;");
+					break;
+				default:
+					builder.append(c);
+				}
+			}
+		}
+
+		builder.append("\" ");
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			writer.write("</events>");
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(int iteration) {
+	}
+}
@@ -0,0 +1,58 @@
+package ch.ethz.matsim.baseline_scenario.transit.events;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Small direct-mapped cache from id strings to Id instances. Each string is
+ * mapped to one slot by its hash code, and a slot only remembers the last id
+ * that was put there. This avoids the lookup in the global Id registry for ids
+ * that occur repeatedly in a short sequence, like lines and stops in an events
+ * file.
+ * 
+ * Slots are replaced as a whole, so the cache may be used from several threads
+ * without further synchronization; concurrent access can only cause misses.
+ */
+public class IdCache<T> {
+	final private Class<T> type;
+	final private Slot<T>[] slots;
+	final private int mask;
+
+	static private class Slot<T> {
+		final String key;
+		final Id<T> id;
+
+		Slot(String key, Id<T> id) {
+			this.key = key;
+			this.id = id;
+		}
+	}
+
+	/**
+	 * @param size number of slots, rounded up to the next power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public IdCache(Class<T> type, int size) {
+		int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+
+		this.type = type;
+		this.slots = new Slot[capacity];
+		this.mask = capacity - 1;
+	}
+
+	public Id<T> get(String key) {
+		int index = spread(key.hashCode()) & mask;
+		Slot<T> slot = slots[index];
+
+		if (slot != null && slot.key.equals(key)) {
+			return slot.id;
+		}
+
+		Id<T> id = Id.create(key, type);
+		slots[index] = new Slot<>(key, id);
+		return id;
+	}
+
+	static private int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
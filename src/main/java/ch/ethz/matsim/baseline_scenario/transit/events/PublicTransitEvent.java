@@ -13,6 +13,22 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 public class PublicTransitEvent extends GenericEvent implements HasPersonId {
 	final public static String TYPE = "pt_transit";
 
+	final public static String ATTRIBUTE_PERSON = "person";
+	final public static String ATTRIBUTE_LINE = "line";
+	final public static String ATTRIBUTE_ROUTE = "route";
+	final public static String ATTRIBUTE_ACCESS_STOP = "accessStop";
+	final public static String ATTRIBUTE_EGRESS_STOP = "egressStop";
+	final public static String ATTRIBUTE_VEHICLE_DEPARTURE_TIME = "vehicleDepartureTime";
+	final public static String ATTRIBUTE_TRAVEL_DISTANCE = "travelDistance";
+
+	/**
+	 * Attribute names in the order in which they are serialized, matching
+	 * {@link #getSerializedValues()}.
+	 */
+	final public static String[] ATTRIBUTE_NAMES = { ATTRIBUTE_PERSON, ATTRIBUTE_LINE, ATTRIBUTE_ROUTE,
+			ATTRIBUTE_ACCESS_STOP, ATTRIBUTE_EGRESS_STOP, ATTRIBUTE_VEHICLE_DEPARTURE_TIME,
+			ATTRIBUTE_TRAVEL_DISTANCE };
+
 	final private Id<Person> personId;
 	final private Id<TransitLine> transitLineId;
 	final private Id<TransitRoute> transitRouteId;
@@ -21,6 +37,8 @@ public class PublicTransitEvent extends GenericEvent implements HasPersonId {
 	final private double vehicleDepartureTime;
 	final private double travelDistance;
 
+	private volatile String[] serializedValues = null;
+
 	public PublicTransitEvent(double arrivalTime, Id<Person> personId, Id<TransitLine> transitLineId,
 			Id<TransitRoute> transitRouteId, Id<TransitStopFacility> accessStopId, Id<TransitStopFacility> egressStopId,
 			double vehicleDepartureTime, double travelDistance) {
@@ -69,16 +87,33 @@ public class PublicTransitEvent extends GenericEvent implements HasPersonId {
 		return TYPE;
 	}
 
+	/**
+	 * Returns the string values of the event specific attributes in the order of
+	 * {@link #ATTRIBUTE_NAMES}. They are computed once and then reused, the
+	 * returned array must not be modified.
+	 */
+	public String[] getSerializedValues() {
+		String[] values = serializedValues;
+
+		if (values == null) {
+			values = new String[] { personId.toString(), transitLineId.toString(), transitRouteId.toString(),
+					accessStopId.toString(), egressStopId.toString(), String.valueOf(vehicleDepartureTime),
+					String.valueOf(travelDistance) };
+			serializedValues = values;
+		}
+
+		return values;
+	}
+
 	@Override
 	public Map<String, String> getAttributes() {
 		Map<String, String> attributes = super.getAttributes();
-		attributes.put("person", personId.toString());
-		attributes.put("line", transitLineId.toString());
-		attributes.put("route", transitRouteId.toString());
-		attributes.put("accessStop", accessStopId.toString());
-		attributes.put("egressStop", egressStopId.toString());
-		attributes.put("vehicleDepartureTime", String.valueOf(vehicleDepartureTime));
-		attributes.put("travelDistance", String.valueOf(travelDistance));
+		String[] values = getSerializedValues();
+
+		for (int i = 0; i < ATTRIBUTE_NAMES.length; i++) {
+			attributes.put(ATTRIBUTE_NAMES[i], values[i]);
+		}
+
 		return attributes;
 	}
 }
@@ -1,5 +1,7 @@
 package ch.ethz.matsim.baseline_scenario.transit.events;
 
+import java.util.Map;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.GenericEvent;
 import org.matsim.api.core.v01.population.Person;
@@ -9,18 +11,25 @@ import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 public class PublicTransitEventMapper implements CustomEventMapper<PublicTransitEvent> {
+	final private IdCache<Person> personIds = new IdCache<>(Person.class, 4096);
+	final private IdCache<TransitLine> transitLineIds = new IdCache<>(TransitLine.class, 1024);
+	final private IdCache<TransitRoute> transitRouteIds = new IdCache<>(TransitRoute.class, 1024);
+	final private IdCache<TransitStopFacility> stopIds = new IdCache<>(TransitStopFacility.class, 4096);
+
 	@Override
 	public PublicTransitEvent apply(GenericEvent event) {
+		// GenericEvent creates a new map on every call
+		Map<String, String> attributes = event.getAttributes();
+
 		double arrivalTime = event.getTime();
-		Id<Person> personId = Id.create(event.getAttributes().get("person"), Person.class);
-		Id<TransitLine> transitLineId = Id.create(event.getAttributes().get("line"), TransitLine.class);
-		Id<TransitRoute> transitRouteId = Id.create(event.getAttributes().get("route"), TransitRoute.class);
-		Id<TransitStopFacility> accessStopId = Id.create(event.getAttributes().get("accessStop"),
-				TransitStopFacility.class);
-		Id<TransitStopFacility> egressStopId = Id.create(event.getAttributes().get("egressStop"),
-				TransitStopFacility.class);
-		double vehicleDepartureTime = Double.parseDouble(event.getAttributes().get("vehicleDepartureTime"));
-		double travelDistance = Double.parseDouble(event.getAttributes().get("travelDistance"));
+		Id<Person> personId = personIds.get(attributes.get(PublicTransitEvent.ATTRIBUTE_PERSON));
+		Id<TransitLine> transitLineId = transitLineIds.get(attributes.get(PublicTransitEvent.ATTRIBUTE_LINE));
+		Id<TransitRoute> transitRouteId = transitRouteIds.get(attributes.get(PublicTransitEvent.ATTRIBUTE_ROUTE));
+		Id<TransitStopFacility> accessStopId = stopIds.get(attributes.get(PublicTransitEvent.ATTRIBUTE_ACCESS_STOP));
+		Id<TransitStopFacility> egressStopId = stopIds.get(attributes.get(PublicTransitEvent.ATTRIBUTE_EGRESS_STOP));
+		double vehicleDepartureTime = Double
+				.parseDouble(attributes.get(PublicTransitEvent.ATTRIBUTE_VEHICLE_DEPARTURE_TIME));
+		double travelDistance = Double.parseDouble(attributes.get(PublicTransitEvent.ATTRIBUTE_TRAVEL_DISTANCE));
 
 		return new PublicTransitEvent(arrivalTime, personId, transitLineId, transitRouteId, accessStopId, egressStopId,
 				vehicleDepartureTime, travelDistance);
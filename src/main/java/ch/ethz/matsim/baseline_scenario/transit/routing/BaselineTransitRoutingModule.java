@@ -13,15 +13,16 @@ import org.matsim.core.router.StageActivityTypes;
 import org.matsim.core.router.StageActivityTypesImpl;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.PtConstants;
-import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
 
 public class BaselineTransitRoutingModule implements RoutingModule {
 	final private EnrichedTransitRouter transitRouter;
-	final private TransitSchedule transitSchedule;
+	final private CompiledTransitSchedule schedule;
 
-	public BaselineTransitRoutingModule(EnrichedTransitRouter transitRouter, TransitSchedule transitSchedule) {
+	public BaselineTransitRoutingModule(EnrichedTransitRouter transitRouter, CompiledTransitSchedule schedule) {
 		this.transitRouter = transitRouter;
-		this.transitSchedule = transitSchedule;
+		this.schedule = schedule;
 	}
 
 	@Override
@@ -44,8 +45,7 @@ public class BaselineTransitRoutingModule implements RoutingModule {
 			if (leg.getMode().equals("pt")) {
 				EnrichedTransitRoute route = (EnrichedTransitRoute) leg.getRoute();
 
-				currentFacility = transitSchedule.getTransitLines().get(route.getTransitLineId()).getRoutes()
-						.get(route.getTransitRouteId()).getStops().get(route.getEgressStopIndex()).getStopFacility();
+				currentFacility = schedule.getStopFacility(schedule.getRouteIndex(route), route.getEgressStopIndex());
 			}
 		}
 
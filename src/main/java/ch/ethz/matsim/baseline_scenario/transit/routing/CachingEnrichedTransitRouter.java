@@ -0,0 +1,35 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.facilities.Facility;
+
+/**
+ * Looks up routes in a shared EnrichedTransitRouteCache before asking the
+ * delegate. The person is not part of the cache key, so this may only be used
+ * if the routing parameters are the same for all persons.
+ */
+public class CachingEnrichedTransitRouter implements EnrichedTransitRouter {
+	final private EnrichedTransitRouter delegate;
+	final private EnrichedTransitRouteCache cache;
+
+	public CachingEnrichedTransitRouter(EnrichedTransitRouter delegate, EnrichedTransitRouteCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public List<Leg> calculateRoute(Facility fromFacility, Facility toFacility, double departureTime,
+			Person person) {
+		List<Leg> legs = cache.get(fromFacility, toFacility, departureTime);
+
+		if (legs == null) {
+			legs = delegate.calculateRoute(fromFacility, toFacility, departureTime, person);
+			cache.put(fromFacility, toFacility, departureTime, legs);
+		}
+
+		return legs;
+	}
+}
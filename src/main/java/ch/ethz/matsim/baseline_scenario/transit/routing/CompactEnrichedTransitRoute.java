@@ -0,0 +1,162 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.AbstractRoute;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+
+import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRoute.RouteDescription;
+
+/**
+ * Memory-saving variant of the DefaultEnrichedTransitRoute. Instead of a
+ * separate description object with Id references, the route only stores
+ * primitive fields: the line, route and departure are indices in a shared
+ * TransitIdIndex, and the access and egress stop indices are packed into one
+ * int. Ids are looked up when a getter is called. Route type and description
+ * format are the same as for the DefaultEnrichedTransitRoute.
+ */
+public class CompactEnrichedTransitRoute extends AbstractRoute implements EnrichedTransitRoute {
+	final private static int MAXIMUM_STOP_INDEX = 0xFFFF;
+
+	final private TransitIdIndex idIndex;
+
+	private double inVehicleTime;
+	private double transferTime;
+
+	private int transitLineIndex = -1;
+	private int transitRouteIndex = -1;
+	private int departureIndex = -1;
+
+	// Access stop index in the upper, egress stop index in the lower 16 bits
+	private int stopIndices;
+
+	public CompactEnrichedTransitRoute(TransitIdIndex idIndex, final Id<Link> startLinkId,
+			final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+		this.idIndex = idIndex;
+	}
+
+	public CompactEnrichedTransitRoute(TransitIdIndex idIndex, final Id<Link> startLinkId, final Id<Link> endLinkId,
+			double distance, double inVehicleTime, double transferTime, int accessStopIndex, int egressStopIndex,
+			Id<TransitLine> transitLineId, Id<TransitRoute> transitRouteId, Id<Departure> departureId) {
+		super(startLinkId, endLinkId);
+		this.idIndex = idIndex;
+
+		setDistance(distance);
+		setTravelTime(inVehicleTime + transferTime);
+
+		setValues(inVehicleTime, transferTime, accessStopIndex, egressStopIndex, transitLineId, transitRouteId,
+				departureId);
+	}
+
+	private void setValues(double inVehicleTime, double transferTime, int accessStopIndex, int egressStopIndex,
+			Id<TransitLine> transitLineId, Id<TransitRoute> transitRouteId, Id<Departure> departureId) {
+		if (accessStopIndex < 0 || accessStopIndex > MAXIMUM_STOP_INDEX || egressStopIndex < 0
+				|| egressStopIndex > MAXIMUM_STOP_INDEX) {
+			throw new IllegalArgumentException(
+					String.format("Stop indices must be in [0, %d]: access %d, egress %d", MAXIMUM_STOP_INDEX,
+							accessStopIndex, egressStopIndex));
+		}
+
+		this.inVehicleTime = inVehicleTime;
+		this.transferTime = transferTime;
+		this.stopIndices = (accessStopIndex << 16) | egressStopIndex;
+
+		this.transitLineIndex = idIndex.getLineIndex(transitLineId);
+		this.transitRouteIndex = idIndex.getRouteIndex(transitRouteId);
+		this.departureIndex = idIndex.getDepartureIndex(departureId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return DefaultEnrichedTransitRoute.ROUTE_TYPE;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		RouteDescription description = new RouteDescription();
+		description.inVehicleTime = inVehicleTime;
+		description.transferTime = transferTime;
+		description.accessStopIndex = getAccessStopIndex();
+		description.egressStopindex = getEgressStopIndex();
+		description.transitLineId = getTransitLineId();
+		description.transitRouteId = getTransitRouteId();
+		description.departureId = getDepartureId();
+
+		return DefaultEnrichedTransitRouteFactory.writeRouteDescription(description);
+	}
+
+	@Override
+	public void setRouteDescription(String routeDescription) {
+		RouteDescription description = DefaultEnrichedTransitRouteFactory.parseRouteDescription(routeDescription);
+
+		setValues(description.inVehicleTime, description.transferTime, description.accessStopIndex,
+				description.egressStopindex, description.transitLineId, description.transitRouteId,
+				description.departureId);
+	}
+
+	@Override
+	public double getInVehicleTime() {
+		return inVehicleTime;
+	}
+
+	@Override
+	public double getWaitingTime() {
+		return transferTime;
+	}
+
+	@Override
+	public Id<TransitLine> getTransitLineId() {
+		return idIndex.getLineId(transitLineIndex);
+	}
+
+	@Override
+	public Id<TransitRoute> getTransitRouteId() {
+		return idIndex.getRouteId(transitRouteIndex);
+	}
+
+	@Override
+	public Id<Departure> getDepartureId() {
+		return idIndex.getDepartureId(departureIndex);
+	}
+
+	@Override
+	public int getAccessStopIndex() {
+		return stopIndices >>> 16;
+	}
+
+	@Override
+	public int getEgressStopIndex() {
+		return stopIndices & MAXIMUM_STOP_INDEX;
+	}
+
+	/**
+	 * Returns a copy with a different transfer time, the travel time changes by
+	 * the same amount.
+	 */
+	public CompactEnrichedTransitRoute withTransferTime(double transferTime) {
+		CompactEnrichedTransitRoute route = clone();
+		route.transferTime = transferTime;
+		route.setTravelTime(inVehicleTime + transferTime);
+		return route;
+	}
+
+	@Override
+	public CompactEnrichedTransitRoute clone() {
+		CompactEnrichedTransitRoute route = new CompactEnrichedTransitRoute(idIndex, getStartLinkId(),
+				getEndLinkId());
+		route.setDistance(getDistance());
+		route.setTravelTime(getTravelTime());
+
+		route.inVehicleTime = inVehicleTime;
+		route.transferTime = transferTime;
+		route.transitLineIndex = transitLineIndex;
+		route.transitRouteIndex = transitRouteIndex;
+		route.departureIndex = departureIndex;
+		route.stopIndices = stopIndices;
+
+		return route;
+	}
+}
@@ -0,0 +1,28 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.RouteFactory;
+
+public class CompactEnrichedTransitRouteFactory implements RouteFactory {
+	final private TransitIdIndex idIndex;
+
+	public CompactEnrichedTransitRouteFactory(TransitIdIndex idIndex) {
+		this.idIndex = idIndex;
+	}
+
+	public CompactEnrichedTransitRouteFactory() {
+		this(new TransitIdIndex());
+	}
+
+	@Override
+	public Route createRoute(Id<Link> startLinkId, Id<Link> endLinkId) {
+		return new CompactEnrichedTransitRoute(idIndex, startLinkId, endLinkId);
+	}
+
+	@Override
+	public String getCreatedRouteType() {
+		return DefaultEnrichedTransitRoute.ROUTE_TYPE;
+	}
+}
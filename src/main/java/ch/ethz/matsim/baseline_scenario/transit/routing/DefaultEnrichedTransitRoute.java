@@ -1,7 +1,5 @@
 package ch.ethz.matsim.baseline_scenario.transit.routing;
 
-import java.io.IOException;
-
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.population.routes.AbstractRoute;
@@ -10,13 +8,14 @@ import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class DefaultEnrichedTransitRoute extends AbstractRoute implements EnrichedTransitRoute {
 	final public static String ROUTE_TYPE = "enriched_pt";
 
-	private RouteDescription routeDescription = null;
+	// The description read from a population file is only decoded when one of the
+	// getters is used. Until then, it is written back as it is.
+	private volatile String rawRouteDescription = null;
+	private volatile RouteDescription routeDescription = null;
 
 	public DefaultEnrichedTransitRoute(final Id<Link> startLinkId, final Id<Link> endLinkId) {
 		super(startLinkId, endLinkId);
@@ -30,7 +29,7 @@ public class DefaultEnrichedTransitRoute extends AbstractRoute implements Enrich
 		setDistance(distance);
 		setTravelTime(inVehicleTime + transferTime);
 
-		this.routeDescription = new RouteDescription();
+		RouteDescription routeDescription = new RouteDescription();
 		routeDescription.inVehicleTime = inVehicleTime;
 		routeDescription.transferTime = transferTime;
 		routeDescription.accessStopIndex = accessStopIndex;
@@ -38,6 +37,31 @@ public class DefaultEnrichedTransitRoute extends AbstractRoute implements Enrich
 		routeDescription.transitLineId = transitLineId;
 		routeDescription.transitRouteId = transitRouteId;
 		routeDescription.departureId = departureId;
+		this.routeDescription = routeDescription;
+	}
+
+	private RouteDescription getDecodedRouteDescription() {
+		RouteDescription description = routeDescription;
+
+		if (description == null) {
+			synchronized (this) {
+				description = routeDescription;
+
+				if (description == null) {
+					String raw = rawRouteDescription;
+
+					if (raw == null) {
+						throw new IllegalStateException("Route description has not been set");
+					}
+
+					description = DefaultEnrichedTransitRouteFactory.parseRouteDescription(raw);
+					routeDescription = description;
+					rawRouteDescription = null;
+				}
+			}
+		}
+
+		return description;
 	}
 
 	@Override
@@ -47,59 +71,68 @@ public class DefaultEnrichedTransitRoute extends AbstractRoute implements Enrich
 
 	@Override
 	public String getRouteDescription() {
-		try {
-			return new ObjectMapper().writeValueAsString(routeDescription);
-		} catch (JsonProcessingException e) {
-			return "Error while creating route description: " + e.toString();
+		String raw = rawRouteDescription;
+
+		if (raw != null) {
+			return raw;
 		}
+
+		return DefaultEnrichedTransitRouteFactory.writeRouteDescription(getDecodedRouteDescription());
 	}
 
 	@Override
-	public void setRouteDescription(String routeDescription) {
-		try {
-			this.routeDescription = new ObjectMapper().readValue(routeDescription, RouteDescription.class);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+	public synchronized void setRouteDescription(String routeDescription) {
+		this.rawRouteDescription = routeDescription;
+		this.routeDescription = null;
 	}
 
 	@Override
 	public double getInVehicleTime() {
-		return routeDescription.inVehicleTime;
+		return getDecodedRouteDescription().inVehicleTime;
 	}
 
 	@Override
 	public double getWaitingTime() {
-		return routeDescription.transferTime;
+		return getDecodedRouteDescription().transferTime;
 	}
 
 	@Override
 	public Id<TransitLine> getTransitLineId() {
-		return routeDescription.transitLineId;
+		return getDecodedRouteDescription().transitLineId;
 	}
 
 	@Override
 	public Id<TransitRoute> getTransitRouteId() {
-		return routeDescription.transitRouteId;
+		return getDecodedRouteDescription().transitRouteId;
 	}
 
 	@Override
 	public Id<Departure> getDepartureId() {
-		return routeDescription.departureId;
+		return getDecodedRouteDescription().departureId;
 	}
 
 	@Override
 	public int getAccessStopIndex() {
-		return routeDescription.accessStopIndex;
+		return getDecodedRouteDescription().accessStopIndex;
 	}
 
 	@Override
 	public int getEgressStopIndex() {
-		return routeDescription.egressStopindex;
+		return getDecodedRouteDescription().egressStopindex;
 	}
 
 	@Override
 	public DefaultEnrichedTransitRoute clone() {
+		String raw = rawRouteDescription;
+
+		if (raw != null) {
+			DefaultEnrichedTransitRoute route = new DefaultEnrichedTransitRoute(getStartLinkId(), getEndLinkId());
+			route.setDistance(getDistance());
+			route.setTravelTime(getTravelTime());
+			route.setRouteDescription(raw);
+			return route;
+		}
+
 		return new DefaultEnrichedTransitRoute(getStartLinkId(), getEndLinkId(), getDistance(), getInVehicleTime(),
 				getWaitingTime(), getAccessStopIndex(), getEgressStopIndex(), getTransitLineId(), getTransitRouteId(),
 				getDepartureId());
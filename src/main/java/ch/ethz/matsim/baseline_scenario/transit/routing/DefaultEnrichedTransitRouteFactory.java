@@ -1,11 +1,42 @@
 package ch.ethz.matsim.baseline_scenario.transit.routing;
 
+import java.io.IOException;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.population.routes.RouteFactory;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRoute.RouteDescription;
 
+/**
+ * Creates enriched pt routes and converts their route descriptions.
+ *
+ * Route descriptions are written in a compact positional format:
+ *
+ * inVehicleTime|transferTime|accessStopIndex|egressStopIndex|lineId|routeId|departureId
+ *
+ * Backslashes and separators in the ids are escaped by a backslash. The former
+ * JSON format, recognized by the leading brace, can still be read.
+ */
 public class DefaultEnrichedTransitRouteFactory implements RouteFactory {
+	final private static char SEPARATOR = '|';
+	final private static char ESCAPE = '\\';
+	final private static int NUMBER_OF_FIELDS = 7;
+
+	// Readers and writers are immutable and thread-safe, so one instance is shared
+	final private static ObjectMapper JSON_MAPPER = new ObjectMapper();
+	final private static ObjectReader JSON_READER = JSON_MAPPER.readerFor(RouteDescription.class);
+	final private static ObjectWriter JSON_WRITER = JSON_MAPPER.writerFor(RouteDescription.class);
+
 	@Override
 	public Route createRoute(Id<Link> startLinkId, Id<Link> endLinkId) {
 		return new DefaultEnrichedTransitRoute(startLinkId, endLinkId);
@@ -15,4 +46,127 @@ public class DefaultEnrichedTransitRouteFactory implements RouteFactory {
 	public String getCreatedRouteType() {
 		return DefaultEnrichedTransitRoute.ROUTE_TYPE;
 	}
+
+	static public String writeRouteDescription(RouteDescription description) {
+		StringBuilder builder = new StringBuilder(64);
+
+		appendNumber(builder, description.inVehicleTime);
+		builder.append(SEPARATOR);
+		appendNumber(builder, description.transferTime);
+		builder.append(SEPARATOR);
+		builder.append(description.accessStopIndex);
+		builder.append(SEPARATOR);
+		builder.append(description.egressStopindex);
+		builder.append(SEPARATOR);
+		appendId(builder, description.transitLineId.toString());
+		builder.append(SEPARATOR);
+		appendId(builder, description.transitRouteId.toString());
+		builder.append(SEPARATOR);
+		appendId(builder, description.departureId.toString());
+
+		return builder.toString();
+	}
+
+	static public String writeJsonRouteDescription(RouteDescription description) {
+		try {
+			return JSON_WRITER.writeValueAsString(description);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static public RouteDescription parseRouteDescription(String value) {
+		int start = 0;
+
+		while (start < value.length() && Character.isWhitespace(value.charAt(start))) {
+			start++;
+		}
+
+		if (start < value.length() && value.charAt(start) == '{') {
+			try {
+				return JSON_READER.readValue(value);
+			} catch (IOException e) {
+				throw new IllegalStateException("Invalid route description: " + value, e);
+			}
+		}
+
+		String[] fields = splitFields(value);
+
+		try {
+			RouteDescription description = new RouteDescription();
+			description.inVehicleTime = Double.parseDouble(fields[0]);
+			description.transferTime = Double.parseDouble(fields[1]);
+			description.accessStopIndex = Integer.parseInt(fields[2]);
+			description.egressStopindex = Integer.parseInt(fields[3]);
+			description.transitLineId = Id.create(fields[4], TransitLine.class);
+			description.transitRouteId = Id.create(fields[5], TransitRoute.class);
+			description.departureId = Id.create(fields[6], Departure.class);
+			return description;
+		} catch (NumberFormatException e) {
+			throw new IllegalStateException("Invalid route description: " + value, e);
+		}
+	}
+
+	static private void appendNumber(StringBuilder builder, double value) {
+		// Times are mostly whole seconds, write them without fraction
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			builder.append((long) value);
+		} else {
+			builder.append(value);
+		}
+	}
+
+	static private void appendId(StringBuilder builder, String id) {
+		for (int i = 0; i < id.length(); i++) {
+			char c = id.charAt(i);
+
+			if (c == SEPARATOR || c == ESCAPE) {
+				builder.append(ESCAPE);
+			}
+
+			builder.append(c);
+		}
+	}
+
+	static private String[] splitFields(String value) {
+		String[] fields = new String[NUMBER_OF_FIELDS];
+		int numberOfFields = 0;
+
+		StringBuilder builder = null; // Only needed if the field contains escapes
+		int start = 0;
+
+		for (int i = 0; i <= value.length(); i++) {
+			char c = i < value.length() ? value.charAt(i) : SEPARATOR;
+
+			if (c == ESCAPE && i + 1 < value.length()) {
+				if (builder == null) {
+					builder = new StringBuilder();
+				}
+
+				builder.append(value, start, i);
+				builder.append(value.charAt(++i));
+				start = i + 1;
+			} else if (c == SEPARATOR) {
+				if (numberOfFields == NUMBER_OF_FIELDS) {
+					throw new IllegalStateException("Invalid route description: " + value);
+				}
+
+				if (builder == null) {
+					fields[numberOfFields++] = value.substring(start, i);
+				} else {
+					builder.append(value, start, i);
+					fields[numberOfFields++] = builder.toString();
+					builder = null;
+				}
+
+				start = i + 1;
+			}
+		}
+
+		if (numberOfFields != NUMBER_OF_FIELDS) {
+			throw new IllegalStateException("Invalid route description: " + value);
+		}
+
+		return fields;
+	}
 }
@@ -2,37 +2,36 @@ package ch.ethz.matsim.baseline_scenario.transit.routing;
 
 import java.util.List;
 
-import org.matsim.api.core.v01.Coord;
-import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.population.routes.RouteUtils;
-import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.router.TransitRouter;
 import org.matsim.pt.routes.ExperimentalTransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
-import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnection;
 import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnectionFinder;
 import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnectionFinder.NoConnectionFoundException;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.TransitRouteDistances;
 
 public class DefaultEnrichedTransitRouter implements EnrichedTransitRouter {
 	final private TransitRouter delegate;
-	final private TransitSchedule transitSchedule;
+	final private CompiledTransitSchedule schedule;
 	final private TransitConnectionFinder connectionFinder;
-	final private Network network;
+	final private TransitRouteDistances distances;
+	final private TransitIdIndex idIndex;
 	final private double beelineDistanceFactor;
 	final private double additionalTransferTime;
 
-	public DefaultEnrichedTransitRouter(TransitRouter delegate, TransitSchedule transitSchedule,
-			TransitConnectionFinder connectionFinder, Network network, double beelineDistanceFactor,
-			double additionalTransferTime) {
+	public DefaultEnrichedTransitRouter(TransitRouter delegate, CompiledTransitSchedule schedule,
+			TransitConnectionFinder connectionFinder, TransitRouteDistances distances, TransitIdIndex idIndex,
+			double beelineDistanceFactor, double additionalTransferTime) {
 		this.delegate = delegate;
-		this.transitSchedule = transitSchedule;
+		this.schedule = schedule;
 		this.connectionFinder = connectionFinder;
-		this.network = network;
+		this.distances = distances;
+		this.idIndex = idIndex;
 		this.beelineDistanceFactor = beelineDistanceFactor;
 		this.additionalTransferTime = additionalTransferTime;
 	}
@@ -43,6 +42,9 @@ public class DefaultEnrichedTransitRouter implements EnrichedTransitRouter {
 		List<Leg> legs = delegate.calcRoute(fromFacility, toFacility, departureTime, person);
 		double currentTime = departureTime;
 
+		// Route index of every pt leg, needed below for the walk distances
+		int[] routeIndices = new int[legs.size()];
+
 		for (int i = 0; i < legs.size(); i++) {
 			Leg currentLeg = legs.get(i);
 
@@ -52,8 +54,9 @@ public class DefaultEnrichedTransitRouter implements EnrichedTransitRouter {
 					double totalTravelTimeAfterAdditionalTransfer = currentLeg.getTravelTime() - additionalTransferTime;
 
 					ExperimentalTransitRoute originalRoute = (ExperimentalTransitRoute) currentLeg.getRoute();
-					TransitRoute transitRoute = transitSchedule.getTransitLines().get(originalRoute.getLineId())
-							.getRoutes().get(originalRoute.getRouteId());
+					int routeIndex = schedule.getRouteIndex(originalRoute.getLineId(), originalRoute.getRouteId());
+					TransitRoute transitRoute = schedule.getRoute(routeIndex);
+					routeIndices[i] = routeIndex;
 
 					TransitConnection connection = connectionFinder.findConnection(departureAfterAdditionalTransfer,
 							totalTravelTimeAfterAdditionalTransfer, originalRoute.getAccessStopId(),
@@ -69,15 +72,16 @@ public class DefaultEnrichedTransitRouter implements EnrichedTransitRouter {
 								connection.getInVehicleTime()));
 					}
 
-					int accessStopIndex = transitRoute.getStops().indexOf(connection.getAccessStop());
-					int egressStopIndex = transitRoute.getStops().indexOf(connection.getEgressStop());
+					int accessStopIndex = connection.getAccessStopIndex();
+					int egressStopIndex = connection.getEgressStopIndex();
 
-					double distance = RouteUtils.calcDistance(originalRoute, transitSchedule, network);
+					double distance = distances.getDistance(routeIndex, accessStopIndex, egressStopIndex);
 
-					EnrichedTransitRoute enrichedRoute = new DefaultEnrichedTransitRoute(originalRoute.getStartLinkId(),
-							originalRoute.getEndLinkId(), distance, connection.getInVehicleTime(),
-							connection.getWaitingTime() + additionalTransferTime, accessStopIndex, egressStopIndex,
-							originalRoute.getLineId(), originalRoute.getRouteId(), connection.getDeparture().getId());
+					EnrichedTransitRoute enrichedRoute = new CompactEnrichedTransitRoute(idIndex,
+							originalRoute.getStartLinkId(), originalRoute.getEndLinkId(), distance,
+							connection.getInVehicleTime(), connection.getWaitingTime() + additionalTransferTime,
+							accessStopIndex, egressStopIndex, originalRoute.getLineId(), originalRoute.getRouteId(),
+							connection.getDeparture().getId());
 
 					currentLeg.setRoute(enrichedRoute);
 					currentLeg.setDepartureTime(currentTime);
@@ -100,26 +104,29 @@ public class DefaultEnrichedTransitRouter implements EnrichedTransitRouter {
 			Leg currentLeg = legs.get(i);
 
 			if (currentLeg.getMode().contains("walk")) {
-				Coord originCoord = fromFacility.getCoord();
-				Coord destinationCoord = toFacility.getCoord();
+				double originX = fromFacility.getCoord().getX();
+				double originY = fromFacility.getCoord().getY();
+				double destinationX = toFacility.getCoord().getX();
+				double destinationY = toFacility.getCoord().getY();
 
 				if (i > 0) {
 					EnrichedTransitRoute preceedingRoute = (EnrichedTransitRoute) legs.get(i - 1).getRoute();
 
-					originCoord = transitSchedule.getTransitLines().get(preceedingRoute.getTransitLineId()).getRoutes()
-							.get(preceedingRoute.getTransitRouteId()).getStops()
-							.get(preceedingRoute.getEgressStopIndex()).getStopFacility().getCoord();
+					originX = schedule.getStopX(routeIndices[i - 1], preceedingRoute.getEgressStopIndex());
+					originY = schedule.getStopY(routeIndices[i - 1], preceedingRoute.getEgressStopIndex());
 				}
 
 				if (i < legs.size() - 2) {
 					EnrichedTransitRoute followingRoute = (EnrichedTransitRoute) legs.get(i + 1).getRoute();
 
-					destinationCoord = transitSchedule.getTransitLines().get(followingRoute.getTransitLineId())
-							.getRoutes().get(followingRoute.getTransitRouteId()).getStops()
-							.get(followingRoute.getAccessStopIndex()).getStopFacility().getCoord();
+					destinationX = schedule.getStopX(routeIndices[i + 1], followingRoute.getAccessStopIndex());
+					destinationY = schedule.getStopY(routeIndices[i + 1], followingRoute.getAccessStopIndex());
 				}
 
-				double beelineDistance = CoordUtils.calcEuclideanDistance(originCoord, destinationCoord);
+				double dx = destinationX - originX;
+				double dy = destinationY - originY;
+
+				double beelineDistance = Math.sqrt(dx * dx + dy * dy);
 				double distance = beelineDistance * beelineDistanceFactor;
 
 				if (Double.isNaN(distance)) {
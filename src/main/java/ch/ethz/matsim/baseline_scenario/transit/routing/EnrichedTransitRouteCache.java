@@ -0,0 +1,229 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.facilities.Facility;
+
+/**
+ * Bounded store of enriched pt routes that can be shared by all
+ * CachingEnrichedTransitRouter instances.
+ *
+ * Routes are keyed by the link and coordinate of the origin and destination
+ * facilities and the departure time bucket. At most maximumNumberOfEntries
+ * routes are kept; if the store is full, the least recently used route is
+ * removed. Stored and returned leg lists are always copies, so callers may
+ * modify what they get.
+ *
+ * A stored route is reused for departure times in its bucket that are not
+ * earlier than its own departure time. The copy is moved to the requested
+ * departure time by shortening the waiting time at the first pt stop, so the
+ * same vehicles are taken. If the vehicle cannot be reached any more within the
+ * minimum transfer time, the route is not reused. Earlier departures are not
+ * served from the cache, because an earlier vehicle might be reachable for
+ * them; their routes replace the stored one.
+ */
+public class EnrichedTransitRouteCache {
+	final private static Logger logger = Logger.getLogger(EnrichedTransitRouteCache.class);
+
+	final private double bucketSize;
+	final private double minimumTransferTime;
+	final private Map<Key, Entry> entries;
+
+	final private LongAdder hits = new LongAdder();
+	final private LongAdder misses = new LongAdder();
+
+	static private class Key {
+		final Id<Link> fromLinkId;
+		final Id<Link> toLinkId;
+		final double fromX;
+		final double fromY;
+		final double toX;
+		final double toY;
+		final long bucket;
+
+		Key(Facility fromFacility, Facility toFacility, long bucket) {
+			this.fromLinkId = fromFacility.getLinkId();
+			this.toLinkId = toFacility.getLinkId();
+			this.fromX = fromFacility.getCoord().getX();
+			this.fromY = fromFacility.getCoord().getY();
+			this.toX = toFacility.getCoord().getX();
+			this.toY = toFacility.getCoord().getY();
+			this.bucket = bucket;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+
+			Key key = (Key) other;
+			return bucket == key.bucket && fromX == key.fromX && fromY == key.fromY && toX == key.toX
+					&& toY == key.toY && Objects.equals(fromLinkId, key.fromLinkId)
+					&& Objects.equals(toLinkId, key.toLinkId);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = Objects.hashCode(fromLinkId);
+			hash = 31 * hash + Objects.hashCode(toLinkId);
+			hash = 31 * hash + Double.hashCode(fromX);
+			hash = 31 * hash + Double.hashCode(fromY);
+			hash = 31 * hash + Double.hashCode(toX);
+			hash = 31 * hash + Double.hashCode(toY);
+			hash = 31 * hash + Long.hashCode(bucket);
+			return hash;
+		}
+	}
+
+	static private class Entry {
+		final double departureTime;
+		final List<Leg> legs;
+
+		Entry(double departureTime, List<Leg> legs) {
+			this.departureTime = departureTime;
+			this.legs = legs;
+		}
+	}
+
+	/**
+	 * @param bucketSize          length of the departure time buckets in seconds
+	 * @param minimumTransferTime time that must be left for boarding the first
+	 *                            vehicle after walking to the stop
+	 */
+	public EnrichedTransitRouteCache(int maximumNumberOfEntries, double bucketSize, double minimumTransferTime) {
+		this.bucketSize = bucketSize;
+		this.minimumTransferTime = minimumTransferTime;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > maximumNumberOfEntries;
+			}
+		};
+	}
+
+	private Key createKey(Facility fromFacility, Facility toFacility, double departureTime) {
+		return new Key(fromFacility, toFacility, (long) Math.floor(departureTime / bucketSize));
+	}
+
+	/**
+	 * Returns a copy of the stored route, departing at departureTime, or null.
+	 */
+	public List<Leg> get(Facility fromFacility, Facility toFacility, double departureTime) {
+		Key key = createKey(fromFacility, toFacility, departureTime);
+		Entry entry;
+
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+
+		double offset = entry == null ? 0.0 : departureTime - entry.departureTime;
+		List<Leg> legs = entry == null || offset < 0.0 ? null : copyLegs(entry.legs, offset);
+
+		if (legs == null) {
+			misses.increment();
+			long numberOfMisses = misses.sum();
+
+			if (numberOfMisses >= 1024 && Long.bitCount(numberOfMisses) == 1) {
+				printStatistics();
+			}
+		} else {
+			hits.increment();
+		}
+
+		return legs;
+	}
+
+	public void put(Facility fromFacility, Facility toFacility, double departureTime, List<Leg> legs) {
+		Key key = createKey(fromFacility, toFacility, departureTime);
+		Entry entry = new Entry(departureTime, copyLegs(legs, 0.0));
+
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Copies the legs and moves them by a non-negative offset in seconds. The
+	 * waiting time at the first pt leg absorbs the offset, so all later legs keep
+	 * their times. Returns null if the first vehicle cannot be reached.
+	 */
+	private List<Leg> copyLegs(List<Leg> legs, double offset) {
+		List<Leg> copy = new ArrayList<>(legs.size());
+		boolean shifted = offset != 0.0;
+
+		for (Leg leg : legs) {
+			Leg legCopy = PopulationUtils.createLeg(leg.getMode());
+			legCopy.setTravelTime(leg.getTravelTime());
+			legCopy.setDepartureTime(leg.getDepartureTime());
+			legCopy.setRoute(leg.getRoute().clone());
+
+			if (shifted) {
+				legCopy.setDepartureTime(leg.getDepartureTime() + offset);
+
+				if (leg.getRoute() instanceof EnrichedTransitRoute) {
+					EnrichedTransitRoute route = (EnrichedTransitRoute) leg.getRoute();
+					double transferTime = route.getWaitingTime() - offset;
+
+					if (transferTime < minimumTransferTime) {
+						return null;
+					}
+
+					if (route instanceof CompactEnrichedTransitRoute) {
+						legCopy.setRoute(((CompactEnrichedTransitRoute) route).withTransferTime(transferTime));
+					} else {
+						legCopy.setRoute(new DefaultEnrichedTransitRoute(route.getStartLinkId(),
+								route.getEndLinkId(), route.getDistance(), route.getInVehicleTime(), transferTime,
+								route.getAccessStopIndex(), route.getEgressStopIndex(), route.getTransitLineId(),
+								route.getTransitRouteId(), route.getDepartureId()));
+					}
+
+					legCopy.setTravelTime(leg.getTravelTime() - offset);
+
+					shifted = false;
+				}
+			}
+
+			copy.add(legCopy);
+		}
+
+		return copy;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long numberOfHits = hits.sum();
+		long numberOfLookups = numberOfHits + misses.sum();
+		return numberOfLookups == 0 ? 0.0 : (double) numberOfHits / numberOfLookups;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public void printStatistics() {
+		logger.info(String.format("Enriched pt route cache: %d routes, %d hits, %d misses, hit rate %.2f%%", size(),
+				getHits(), getMisses(), 100.0 * getHitRate()));
+	}
+}
@@ -0,0 +1,133 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+
+/**
+ * Numbering of transit line, route and departure ids, so that routes can refer
+ * to them by an int instead of an object reference. Indices are assigned on
+ * first use and never change, a null id has the index -1. Lookups in both
+ * directions are thread-safe; only the assignment of new indices is
+ * synchronized.
+ *
+ * The numbering lives as long as its owner, i.e. the route factory of a
+ * population or the injector of the routers. Every CompactEnrichedTransitRoute
+ * keeps a reference to the index that numbered it.
+ */
+public class TransitIdIndex {
+	final private IdNumbering<TransitLine> lines = new IdNumbering<>();
+	final private IdNumbering<TransitRoute> routes = new IdNumbering<>();
+	final private IdNumbering<Departure> departures = new IdNumbering<>();
+
+	public TransitIdIndex() {
+	}
+
+	/**
+	 * Numbers the lines, routes and departures in the order of the schedule.
+	 * Other ids are still added on first use.
+	 */
+	public TransitIdIndex(CompiledTransitSchedule schedule) {
+		for (int lineIndex = 0; lineIndex < schedule.getNumberOfLines(); lineIndex++) {
+			lines.getIndex(schedule.getLine(lineIndex).getId());
+		}
+
+		for (int routeIndex = 0; routeIndex < schedule.getNumberOfRoutes(); routeIndex++) {
+			routes.getIndex(schedule.getRoute(routeIndex).getId());
+		}
+
+		for (int departureIndex = 0; departureIndex < schedule.getNumberOfDepartures(); departureIndex++) {
+			departures.getIndex(schedule.getDeparture(departureIndex).getId());
+		}
+	}
+
+	public int getLineIndex(Id<TransitLine> transitLineId) {
+		return lines.getIndex(transitLineId);
+	}
+
+	public Id<TransitLine> getLineId(int index) {
+		return lines.getId(index);
+	}
+
+	public int getRouteIndex(Id<TransitRoute> transitRouteId) {
+		return routes.getIndex(transitRouteId);
+	}
+
+	public Id<TransitRoute> getRouteId(int index) {
+		return routes.getId(index);
+	}
+
+	public int getDepartureIndex(Id<Departure> departureId) {
+		return departures.getIndex(departureId);
+	}
+
+	public Id<Departure> getDepartureId(int index) {
+		return departures.getId(index);
+	}
+
+	public int getNumberOfLines() {
+		return lines.size();
+	}
+
+	public int getNumberOfRoutes() {
+		return routes.size();
+	}
+
+	public int getNumberOfDepartures() {
+		return departures.size();
+	}
+
+	static private class IdNumbering<T> {
+		final private Map<Id<T>, Integer> indices = new ConcurrentHashMap<>();
+		private volatile Id<T>[] ids;
+		private int size = 0;
+
+		@SuppressWarnings("unchecked")
+		IdNumbering() {
+			this.ids = new Id[64];
+		}
+
+		int getIndex(Id<T> id) {
+			if (id == null) {
+				return -1;
+			}
+
+			Integer index = indices.get(id);
+
+			if (index == null) {
+				synchronized (this) {
+					index = indices.get(id);
+
+					if (index == null) {
+						if (size == ids.length) {
+							ids = Arrays.copyOf(ids, 2 * size);
+						}
+
+						index = size++;
+						ids[index] = id;
+
+						// Publishing the index after storing the id makes it visible to getId
+						indices.put(id, index);
+					}
+				}
+			}
+
+			return index;
+		}
+
+		Id<T> getId(int index) {
+			return index < 0 ? null : ids[index];
+		}
+
+		synchronized int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,543 @@
+package ch.ethz.matsim.baseline_scenario.transit.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRoute;
+
+/**
+ * Immutable, integer-indexed snapshot of a TransitSchedule.
+ * 
+ * Lines, routes, stop facilities and departures get dense indices. Per-route
+ * data (stops, offsets, stop facilities and departures) is stored in flat arrays,
+ * where the entries of a route start at a per-route offset. Departures of a
+ * route are sorted by time, so the next departure at a stop can be found by
+ * binary search. For every stop facility of a route, the stop indices at which
+ * it is served are kept in ascending order, so that looping routes can be
+ * searched for the next or previous visit of a facility by binary search.
+ * 
+ * The snapshot is taken at construction time, later changes to the schedule
+ * are not reflected. All accessors are read-only, so one instance can be shared
+ * between threads.
+ */
+public class CompiledTransitSchedule {
+	final private TransitSchedule transitSchedule;
+
+	// Lines
+	final private TransitLine[] lines;
+	final private Map<Id<TransitLine>, Integer> lineIndices = new HashMap<>();
+	final private List<Map<Id<TransitRoute>, Integer>> routeIndicesByLine = new ArrayList<>();
+
+	// Routes
+	final private TransitRoute[] routes;
+	final private int[] routeLineIndices;
+	final private Map<TransitRoute, Integer> routeIndicesByObject = new IdentityHashMap<>();
+
+	// Route stops, entries of route r are at [routeStopOffsets[r], routeStopOffsets[r + 1])
+	final private int[] routeStopOffsets;
+	final private double[] arrivalOffsets;
+	final private double[] departureOffsets;
+	final private TransitRouteStop[] routeStops;
+	final private int[] stopFacilityIndices;
+
+	// Distinct stop facilities of route r in ascending order are at
+	// [routeFacilityOffsets[r], routeFacilityOffsets[r + 1]) in routeFacilities, the
+	// ascending stop indices of entry k are at
+	// [facilityStopOffsets[k], facilityStopOffsets[k + 1]) in facilityStops
+	final private int[] routeFacilityOffsets;
+	final private int[] routeFacilities;
+	final private int[] facilityStopOffsets;
+	final private int[] facilityStops;
+
+	// Stop facilities
+	final private List<TransitStopFacility> stopFacilities = new ArrayList<>();
+	final private Map<TransitStopFacility, Integer> stopFacilityIndicesByObject = new IdentityHashMap<>();
+	final private Map<Id<TransitStopFacility>, Integer> stopFacilityIndicesById = new HashMap<>();
+	final private Id<Link>[] stopLinkIds;
+	final private double[] stopX;
+	final private double[] stopY;
+
+	// Departures, entries of route r are at [routeDepartureOffsets[r], routeDepartureOffsets[r + 1])
+	final private int[] routeDepartureOffsets;
+	final private double[] departureTimes;
+	final private Departure[] departures;
+	final private int[] departureRouteIndices;
+	final private Map<Id<Departure>, Integer> departureIndices = new HashMap<>();
+
+	@SuppressWarnings("unchecked")
+	public CompiledTransitSchedule(TransitSchedule transitSchedule) {
+		this.transitSchedule = transitSchedule;
+
+		List<TransitLine> lineList = new ArrayList<>(transitSchedule.getTransitLines().values());
+		List<TransitRoute> routeList = new ArrayList<>();
+		List<Integer> routeLineList = new ArrayList<>();
+
+		int numberOfRouteStops = 0;
+		int numberOfDepartures = 0;
+
+		for (int lineIndex = 0; lineIndex < lineList.size(); lineIndex++) {
+			TransitLine transitLine = lineList.get(lineIndex);
+			lineIndices.put(transitLine.getId(), lineIndex);
+
+			Map<Id<TransitRoute>, Integer> routeIndices = new HashMap<>();
+			routeIndicesByLine.add(routeIndices);
+
+			for (TransitRoute transitRoute : transitLine.getRoutes().values()) {
+				int routeIndex = routeList.size();
+
+				routeList.add(transitRoute);
+				routeLineList.add(lineIndex);
+				routeIndices.put(transitRoute.getId(), routeIndex);
+				routeIndicesByObject.put(transitRoute, routeIndex);
+
+				numberOfRouteStops += transitRoute.getStops().size();
+				numberOfDepartures += transitRoute.getDepartures().size();
+			}
+		}
+
+		this.lines = lineList.toArray(new TransitLine[lineList.size()]);
+		this.routes = routeList.toArray(new TransitRoute[routeList.size()]);
+		this.routeLineIndices = new int[routes.length];
+
+		this.routeStopOffsets = new int[routes.length + 1];
+		this.arrivalOffsets = new double[numberOfRouteStops];
+		this.departureOffsets = new double[numberOfRouteStops];
+		this.routeStops = new TransitRouteStop[numberOfRouteStops];
+		this.stopFacilityIndices = new int[numberOfRouteStops];
+
+		this.routeDepartureOffsets = new int[routes.length + 1];
+		this.departureTimes = new double[numberOfDepartures];
+		this.departures = new Departure[numberOfDepartures];
+		this.departureRouteIndices = new int[numberOfDepartures];
+
+		int routeStopIndex = 0;
+		int departureIndex = 0;
+
+		for (int routeIndex = 0; routeIndex < routes.length; routeIndex++) {
+			TransitRoute transitRoute = routes[routeIndex];
+			routeLineIndices[routeIndex] = routeLineList.get(routeIndex);
+
+			routeStopOffsets[routeIndex] = routeStopIndex;
+
+			for (TransitRouteStop stop : transitRoute.getStops()) {
+				arrivalOffsets[routeStopIndex] = stop.getArrivalOffset();
+				departureOffsets[routeStopIndex] = stop.getDepartureOffset();
+				routeStops[routeStopIndex] = stop;
+				stopFacilityIndices[routeStopIndex] = indexStopFacility(stop.getStopFacility());
+				routeStopIndex++;
+			}
+
+			routeDepartureOffsets[routeIndex] = departureIndex;
+
+			List<Departure> sortedDepartures = new ArrayList<>(transitRoute.getDepartures().values());
+
+			// Stable, so among departures with the same time the first one of the route
+			// is found, as in DefaultDepartureFinder
+			sortedDepartures.sort((a, b) -> Double.compare(a.getDepartureTime(), b.getDepartureTime()));
+
+			for (Departure departure : sortedDepartures) {
+				departures[departureIndex] = departure;
+				departureTimes[departureIndex] = departure.getDepartureTime();
+				departureRouteIndices[departureIndex] = routeIndex;
+				departureIndices.putIfAbsent(departure.getId(), departureIndex);
+				departureIndex++;
+			}
+		}
+
+		routeStopOffsets[routes.length] = routeStopIndex;
+		routeDepartureOffsets[routes.length] = departureIndex;
+
+		this.routeFacilityOffsets = new int[routes.length + 1];
+		int[] facilities = new int[numberOfRouteStops];
+		int[] stopOffsets = new int[numberOfRouteStops + 1];
+		int[] stops = new int[numberOfRouteStops];
+
+		int numberOfEntries = 0;
+		int numberOfFacilityStops = 0;
+
+		for (int routeIndex = 0; routeIndex < routes.length; routeIndex++) {
+			routeFacilityOffsets[routeIndex] = numberOfEntries;
+
+			// Sort the stops of the route by facility and stop index
+			long[] keys = new long[getNumberOfStops(routeIndex)];
+			int numberOfKeys = 0;
+
+			for (int stopIndex = 0; stopIndex < keys.length; stopIndex++) {
+				int facilityIndex = getStopFacilityIndex(routeIndex, stopIndex);
+
+				if (facilityIndex >= 0) {
+					keys[numberOfKeys++] = ((long) facilityIndex << 32) | stopIndex;
+				}
+			}
+
+			Arrays.sort(keys, 0, numberOfKeys);
+
+			for (int k = 0; k < numberOfKeys; k++) {
+				int facilityIndex = (int) (keys[k] >>> 32);
+
+				if (k == 0 || facilities[numberOfEntries - 1] != facilityIndex) {
+					facilities[numberOfEntries] = facilityIndex;
+					stopOffsets[numberOfEntries] = numberOfFacilityStops;
+					numberOfEntries++;
+				}
+
+				stops[numberOfFacilityStops++] = (int) keys[k];
+			}
+		}
+
+		routeFacilityOffsets[routes.length] = numberOfEntries;
+		stopOffsets[numberOfEntries] = numberOfFacilityStops;
+
+		this.routeFacilities = Arrays.copyOf(facilities, numberOfEntries);
+		this.facilityStopOffsets = Arrays.copyOf(stopOffsets, numberOfEntries + 1);
+		this.facilityStops = Arrays.copyOf(stops, numberOfFacilityStops);
+
+		this.stopLinkIds = new Id[stopFacilities.size()];
+		this.stopX = new double[stopFacilities.size()];
+		this.stopY = new double[stopFacilities.size()];
+
+		for (int facilityIndex = 0; facilityIndex < stopFacilities.size(); facilityIndex++) {
+			TransitStopFacility facility = stopFacilities.get(facilityIndex);
+			stopLinkIds[facilityIndex] = facility.getLinkId();
+
+			if (facility.getCoord() != null) {
+				stopX[facilityIndex] = facility.getCoord().getX();
+				stopY[facilityIndex] = facility.getCoord().getY();
+			} else {
+				stopX[facilityIndex] = Double.NaN;
+				stopY[facilityIndex] = Double.NaN;
+			}
+		}
+	}
+
+	private int indexStopFacility(TransitStopFacility facility) {
+		if (facility == null) {
+			return -1;
+		}
+
+		Integer facilityIndex = stopFacilityIndicesByObject.get(facility);
+
+		if (facilityIndex == null) {
+			facilityIndex = stopFacilities.size();
+			stopFacilities.add(facility);
+			stopFacilityIndicesByObject.put(facility, facilityIndex);
+			stopFacilityIndicesById.putIfAbsent(facility.getId(), facilityIndex);
+		}
+
+		return facilityIndex;
+	}
+
+	/**
+	 * Returns the schedule from which this instance has been compiled.
+	 */
+	public TransitSchedule getTransitSchedule() {
+		return transitSchedule;
+	}
+
+	// Lines and routes
+
+	public int getNumberOfLines() {
+		return lines.length;
+	}
+
+	public int getNumberOfRoutes() {
+		return routes.length;
+	}
+
+	public TransitLine getLine(int lineIndex) {
+		return lines[lineIndex];
+	}
+
+	public TransitRoute getRoute(int routeIndex) {
+		return routes[routeIndex];
+	}
+
+	public int getLineIndex(int routeIndex) {
+		return routeLineIndices[routeIndex];
+	}
+
+	/**
+	 * Returns the index of the route with the given ids or -1 if it does not exist.
+	 */
+	public int getRouteIndex(Id<TransitLine> transitLineId, Id<TransitRoute> transitRouteId) {
+		Integer lineIndex = lineIndices.get(transitLineId);
+
+		if (lineIndex == null) {
+			return -1;
+		}
+
+		Integer routeIndex = routeIndicesByLine.get(lineIndex).get(transitRouteId);
+		return routeIndex == null ? -1 : routeIndex;
+	}
+
+	/**
+	 * Returns the index of the route that is used by an enriched route.
+	 * 
+	 * @throws IllegalStateException if the route is not part of the schedule
+	 */
+	public int getRouteIndex(EnrichedTransitRoute route) {
+		int routeIndex = getRouteIndex(route.getTransitLineId(), route.getTransitRouteId());
+
+		if (routeIndex < 0) {
+			throw new IllegalStateException(String.format("Route %s of line %s is not part of the schedule",
+					route.getTransitRouteId(), route.getTransitLineId()));
+		}
+
+		return routeIndex;
+	}
+
+	/**
+	 * Returns the index of the given route object or -1 if it is not part of the
+	 * schedule.
+	 */
+	public int getRouteIndex(TransitRoute transitRoute) {
+		Integer routeIndex = routeIndicesByObject.get(transitRoute);
+		return routeIndex == null ? -1 : routeIndex;
+	}
+
+	// Route stops
+
+	public int getNumberOfStops(int routeIndex) {
+		return routeStopOffsets[routeIndex + 1] - routeStopOffsets[routeIndex];
+	}
+
+	public double getArrivalOffset(int routeIndex, int stopIndex) {
+		return arrivalOffsets[routeStopOffsets[routeIndex] + stopIndex];
+	}
+
+	public double getDepartureOffset(int routeIndex, int stopIndex) {
+		return departureOffsets[routeStopOffsets[routeIndex] + stopIndex];
+	}
+
+	public TransitRouteStop getRouteStop(int routeIndex, int stopIndex) {
+		return routeStops[routeStopOffsets[routeIndex] + stopIndex];
+	}
+
+	/**
+	 * Returns the index of the stop facility at the given stop of a route or -1 if
+	 * the stop has no facility.
+	 */
+	public int getStopFacilityIndex(int routeIndex, int stopIndex) {
+		return stopFacilityIndices[routeStopOffsets[routeIndex] + stopIndex];
+	}
+
+	/**
+	 * Returns the stop facility at the given stop of a route or null if the stop
+	 * has no facility.
+	 */
+	public TransitStopFacility getStopFacility(int routeIndex, int stopIndex) {
+		int facilityIndex = getStopFacilityIndex(routeIndex, stopIndex);
+		return facilityIndex < 0 ? null : stopFacilities.get(facilityIndex);
+	}
+
+	/**
+	 * Returns the id of the stop facility or null if the stop has no facility.
+	 */
+	public Id<TransitStopFacility> getStopFacilityId(int routeIndex, int stopIndex) {
+		int facilityIndex = getStopFacilityIndex(routeIndex, stopIndex);
+		return facilityIndex < 0 ? null : stopFacilities.get(facilityIndex).getId();
+	}
+
+	/**
+	 * Returns the link of the stop facility or null if the stop has no facility.
+	 */
+	public Id<Link> getStopLinkId(int routeIndex, int stopIndex) {
+		int facilityIndex = getStopFacilityIndex(routeIndex, stopIndex);
+		return facilityIndex < 0 ? null : stopLinkIds[facilityIndex];
+	}
+
+	/**
+	 * Returns the x coordinate of the stop facility or NaN if the stop has no
+	 * facility or the facility has no coordinate.
+	 */
+	public double getStopX(int routeIndex, int stopIndex) {
+		int facilityIndex = getStopFacilityIndex(routeIndex, stopIndex);
+		return facilityIndex < 0 ? Double.NaN : stopX[facilityIndex];
+	}
+
+	/**
+	 * Returns the y coordinate of the stop facility or NaN if the stop has no
+	 * facility or the facility has no coordinate.
+	 */
+	public double getStopY(int routeIndex, int stopIndex) {
+		int facilityIndex = getStopFacilityIndex(routeIndex, stopIndex);
+		return facilityIndex < 0 ? Double.NaN : stopY[facilityIndex];
+	}
+
+	/**
+	 * Returns the entry of the facility among the facilities of the route or -1 if
+	 * the route does not serve it.
+	 */
+	private int findFacilityEntry(int routeIndex, int facilityIndex) {
+		if (facilityIndex < 0) {
+			return -1;
+		}
+
+		int entry = Arrays.binarySearch(routeFacilities, routeFacilityOffsets[routeIndex],
+				routeFacilityOffsets[routeIndex + 1], facilityIndex);
+		return entry < 0 ? -1 : entry;
+	}
+
+	/**
+	 * Returns the position of the first stop index of the entry that is not
+	 * smaller than the given stop index.
+	 */
+	private int findFacilityStopPosition(int entry, int stopIndex) {
+		int position = Arrays.binarySearch(facilityStops, facilityStopOffsets[entry], facilityStopOffsets[entry + 1],
+				stopIndex);
+		return position < 0 ? -position - 1 : position;
+	}
+
+	/**
+	 * Returns the first stop index of a route that is not before the given index
+	 * and is served at the given stop facility, or -1 if there is none. Looping
+	 * routes may serve the same facility several times.
+	 */
+	public int findNextStopIndex(int routeIndex, int facilityIndex, int minimumStopIndex) {
+		int entry = findFacilityEntry(routeIndex, facilityIndex);
+
+		if (entry < 0) {
+			return -1;
+		}
+
+		int position = findFacilityStopPosition(entry, Math.max(0, minimumStopIndex));
+		return position < facilityStopOffsets[entry + 1] ? facilityStops[position] : -1;
+	}
+
+	/**
+	 * Returns the last stop index of a route that is before the given index and is
+	 * served at the given stop facility, or -1 if there is none.
+	 */
+	public int findPreviousStopIndex(int routeIndex, int facilityIndex, int endStopIndex) {
+		int entry = findFacilityEntry(routeIndex, facilityIndex);
+
+		if (entry < 0) {
+			return -1;
+		}
+
+		int position = findFacilityStopPosition(entry, endStopIndex);
+		return position > facilityStopOffsets[entry] ? facilityStops[position - 1] : -1;
+	}
+
+	// Stop facilities
+
+	public int getNumberOfStopFacilities() {
+		return stopFacilities.size();
+	}
+
+	public TransitStopFacility getStopFacility(int facilityIndex) {
+		return stopFacilities.get(facilityIndex);
+	}
+
+	/**
+	 * Returns the index of the stop facility with the given id or -1 if no route
+	 * of the schedule serves it.
+	 */
+	public int getStopFacilityIndex(Id<TransitStopFacility> stopFacilityId) {
+		Integer facilityIndex = stopFacilityIndicesById.get(stopFacilityId);
+		return facilityIndex == null ? -1 : facilityIndex;
+	}
+
+	// Departures
+
+	public int getNumberOfDepartures() {
+		return departures.length;
+	}
+
+	/**
+	 * Returns the index of the first departure of the route, in the global
+	 * departure numbering. The departures of a route are sorted by time.
+	 */
+	public int getFirstDepartureIndex(int routeIndex) {
+		return routeDepartureOffsets[routeIndex];
+	}
+
+	/**
+	 * Returns the index after the last departure of the route, in the global
+	 * departure numbering.
+	 */
+	public int getEndDepartureIndex(int routeIndex) {
+		return routeDepartureOffsets[routeIndex + 1];
+	}
+
+	public Departure getDeparture(int departureIndex) {
+		return departures[departureIndex];
+	}
+
+	public int getDepartureRouteIndex(int departureIndex) {
+		return departureRouteIndices[departureIndex];
+	}
+
+	public double getDepartureTime(int departureIndex) {
+		return departureTimes[departureIndex];
+	}
+
+	/**
+	 * Returns the index of the departure with the given id on a route or -1 if it
+	 * does not exist.
+	 */
+	public int getDepartureIndex(int routeIndex, Id<Departure> departureId) {
+		int start = routeDepartureOffsets[routeIndex];
+		int end = routeDepartureOffsets[routeIndex + 1];
+
+		Integer departureIndex = departureIndices.get(departureId);
+
+		if (departureIndex != null && departureIndex >= start && departureIndex < end) {
+			return departureIndex;
+		}
+
+		// Departure ids are only unique per route, so the global lookup may have found
+		// a departure of another route
+		for (int i = start; i < end; i++) {
+			if (departures[i].getId().equals(departureId)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Finds the first departure of a route that leaves the given stop not before
+	 * the given time. Returns the departure index or -1 if there is no such
+	 * departure.
+	 */
+	public int findDepartureIndex(int routeIndex, int stopIndex, double departureTime) {
+		return findDepartureIndexWithOffset(routeIndex, getDepartureOffset(routeIndex, stopIndex), departureTime);
+	}
+
+	/**
+	 * Same as {@link #findDepartureIndex(int, int, double)}, but with an explicit
+	 * departure offset of the stop.
+	 */
+	public int findDepartureIndexWithOffset(int routeIndex, double stopOffset, double departureTime) {
+		int lower = routeDepartureOffsets[routeIndex];
+		int end = routeDepartureOffsets[routeIndex + 1];
+		int upper = end;
+
+		while (lower < upper) {
+			int middle = (lower + upper) >>> 1;
+
+			if (departureTime <= departureTimes[middle] + stopOffset) {
+				upper = middle;
+			} else {
+				lower = middle + 1;
+			}
+		}
+
+		return lower < end ? lower : -1;
+	}
+}
@@ -0,0 +1,203 @@
+package ch.ethz.matsim.baseline_scenario.transit.schedule;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Finds departures of high-frequency routes arithmetically.
+ * 
+ * The departures of each route are split into windows of consecutive
+ * departures whose headways deviate at most by a tolerance from the first
+ * headway of the window. Routes where most departures lie in such windows are
+ * classified as headway-based. For those, the next departure is estimated from
+ * the window start and headway and then corrected by a few steps, so the result
+ * is always the same as the one of the binary search. All other routes, and
+ * queries that do not fall into a window, use the binary search of the
+ * CompiledTransitSchedule.
+ */
+public class HeadwayIndex {
+	final private CompiledTransitSchedule schedule;
+
+	// Windows per route, null for routes that are not headway-based
+	final private Window[][] windows;
+
+	static private class Window {
+		final int startIndex; // Global departure index, inclusive
+		final int endIndex; // Global departure index, inclusive
+		final double startTime;
+		final double endTime;
+		final double headway;
+
+		Window(int startIndex, int endIndex, double startTime, double endTime) {
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.headway = (endTime - startTime) / (endIndex - startIndex);
+		}
+	}
+
+	/**
+	 * @param tolerance         maximum deviation of a headway from the first
+	 *                          headway of its window [s]
+	 * @param minimumWindowSize minimum number of departures in a window
+	 * @param minimumCoverage   minimum share of departures of a route that must lie
+	 *                          in windows for the route to be headway-based
+	 */
+	public HeadwayIndex(CompiledTransitSchedule schedule, double tolerance, int minimumWindowSize,
+			double minimumCoverage) {
+		this.schedule = schedule;
+		this.windows = new Window[schedule.getNumberOfRoutes()][];
+
+		for (int routeIndex = 0; routeIndex < schedule.getNumberOfRoutes(); routeIndex++) {
+			windows[routeIndex] = buildWindows(routeIndex, tolerance, Math.max(2, minimumWindowSize),
+					minimumCoverage);
+		}
+	}
+
+	public HeadwayIndex(CompiledTransitSchedule schedule) {
+		this(schedule, 30.0, 4, 0.8);
+	}
+
+	private Window[] buildWindows(int routeIndex, double tolerance, int minimumWindowSize, double minimumCoverage) {
+		int start = schedule.getFirstDepartureIndex(routeIndex);
+		int end = schedule.getEndDepartureIndex(routeIndex);
+
+		List<Window> routeWindows = new ArrayList<>();
+		int coveredDepartures = 0;
+
+		int windowStart = start;
+
+		while (windowStart < end - 1) {
+			double headway = schedule.getDepartureTime(windowStart + 1) - schedule.getDepartureTime(windowStart);
+			int windowEnd = windowStart + 1;
+
+			if (headway > 0.0) {
+				while (windowEnd + 1 < end) {
+					double nextHeadway = schedule.getDepartureTime(windowEnd + 1) - schedule.getDepartureTime(windowEnd);
+
+					if (nextHeadway <= 0.0 || Math.abs(nextHeadway - headway) > tolerance) {
+						break;
+					}
+
+					windowEnd++;
+				}
+			}
+
+			if (headway > 0.0 && windowEnd - windowStart + 1 >= minimumWindowSize) {
+				routeWindows.add(new Window(windowStart, windowEnd, schedule.getDepartureTime(windowStart),
+						schedule.getDepartureTime(windowEnd)));
+				coveredDepartures += windowEnd - windowStart + 1;
+				windowStart = windowEnd + 1;
+			} else {
+				windowStart++;
+			}
+		}
+
+		if (end > start && coveredDepartures >= minimumCoverage * (end - start)) {
+			return routeWindows.toArray(new Window[routeWindows.size()]);
+		}
+
+		return null;
+	}
+
+	public boolean isHeadwayBased(int routeIndex) {
+		return windows[routeIndex] != null;
+	}
+
+	public int getNumberOfRoutes() {
+		return windows.length;
+	}
+
+	public int getNumberOfHeadwayBasedRoutes() {
+		int count = 0;
+
+		for (Window[] routeWindows : windows) {
+			if (routeWindows != null) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Same as {@link CompiledTransitSchedule#findDepartureIndex(int, int, double)}.
+	 */
+	public int findDepartureIndex(int routeIndex, int stopIndex, double departureTime) {
+		Window[] routeWindows = windows[routeIndex];
+		double stopOffset = schedule.getDepartureOffset(routeIndex, stopIndex);
+
+		if (routeWindows != null) {
+			double routeDepartureTime = departureTime - stopOffset;
+
+			for (Window window : routeWindows) {
+				if (routeDepartureTime <= window.startTime) {
+					break;
+				}
+
+				if (routeDepartureTime <= window.endTime) {
+					return findInWindow(routeIndex, window, stopOffset, departureTime);
+				}
+			}
+		}
+
+		return schedule.findDepartureIndexWithOffset(routeIndex, stopOffset, departureTime);
+	}
+
+	private int findInWindow(int routeIndex, Window window, double stopOffset, double departureTime) {
+		int offset = (int) Math.ceil((departureTime - stopOffset - window.startTime) / window.headway);
+		int index = Math.max(window.startIndex, Math.min(window.endIndex, window.startIndex + offset));
+
+		int start = schedule.getFirstDepartureIndex(routeIndex);
+		int end = schedule.getEndDepartureIndex(routeIndex);
+
+		// The estimate is exact for a perfectly regular window, otherwise step to the
+		// first departure that satisfies the same condition as the binary search
+		while (index > start && departureTime <= schedule.getDepartureTime(index - 1) + stopOffset) {
+			index--;
+		}
+
+		while (index < end && departureTime > schedule.getDepartureTime(index) + stopOffset) {
+			index++;
+		}
+
+		return index < end ? index : -1;
+	}
+
+	/**
+	 * Writes one row per headway window of the headway-based routes.
+	 */
+	public void write(String path) throws IOException {
+		BufferedWriter writer = IOUtils.getBufferedWriter(path);
+
+		writer.write(String.join(";", new String[] { "line_id", "route_id", "number_of_departures", "window_start",
+				"window_end", "window_departures", "headway" }) + "\n");
+
+		for (int routeIndex = 0; routeIndex < windows.length; routeIndex++) {
+			if (windows[routeIndex] == null) {
+				continue;
+			}
+
+			String lineId = schedule.getLine(schedule.getLineIndex(routeIndex)).getId().toString();
+			String routeId = schedule.getRoute(routeIndex).getId().toString();
+			int numberOfDepartures = schedule.getEndDepartureIndex(routeIndex)
+					- schedule.getFirstDepartureIndex(routeIndex);
+
+			for (Window window : windows[routeIndex]) {
+				writer.write(String.join(";",
+						new String[] { lineId, routeId, String.valueOf(numberOfDepartures),
+								String.valueOf(window.startTime), String.valueOf(window.endTime),
+								String.valueOf(window.endIndex - window.startIndex + 1),
+								String.valueOf(window.headway) })
+						+ "\n");
+			}
+		}
+
+		writer.close();
+	}
+}
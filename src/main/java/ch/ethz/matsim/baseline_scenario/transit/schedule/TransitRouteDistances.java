@@ -0,0 +1,96 @@
+package ch.ethz.matsim.baseline_scenario.transit.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.population.routes.NetworkRoute;
+
+/**
+ * Cumulative network distances along the transit routes of a
+ * CompiledTransitSchedule.
+ *
+ * For every stop index the distance from the end of the start link of the
+ * network route up to the end of the stop link is stored, so the in-vehicle
+ * distance between two stops of a route is a subtraction. The stops are matched
+ * to the links of the network route in order, hence stops that are served
+ * twice on looping routes get their own distances.
+ * 
+ * As long as the network route passes the access and the egress link only
+ * once, this is the same measure that RouteUtils.calcDistance computes for
+ * ExperimentalTransitRoutes. On looping routes RouteUtils counts from the first
+ * pass of the access link to the next pass of the egress link, while here the
+ * distance between the actual stops of the connection is used.
+ */
+public class TransitRouteDistances {
+	final private double[][] cumulativeDistances;
+
+	public TransitRouteDistances(CompiledTransitSchedule schedule, Network network) {
+		this.cumulativeDistances = new double[schedule.getNumberOfRoutes()][];
+
+		for (int routeIndex = 0; routeIndex < schedule.getNumberOfRoutes(); routeIndex++) {
+			cumulativeDistances[routeIndex] = computeCumulativeDistances(schedule, network, routeIndex);
+		}
+	}
+
+	static private double[] computeCumulativeDistances(CompiledTransitSchedule schedule, Network network,
+			int routeIndex) {
+		int numberOfStops = schedule.getNumberOfStops(routeIndex);
+		double[] distances = new double[numberOfStops];
+
+		NetworkRoute networkRoute = schedule.getRoute(routeIndex).getRoute();
+
+		if (networkRoute == null) {
+			return distances;
+		}
+
+		List<Id<Link>> linkIds = new ArrayList<>(networkRoute.getLinkIds().size() + 2);
+		linkIds.add(networkRoute.getStartLinkId());
+		linkIds.addAll(networkRoute.getLinkIds());
+		linkIds.add(networkRoute.getEndLinkId());
+
+		int linkIndex = 0;
+		double linkDistance = 0.0;
+
+		for (int stopIndex = 0; stopIndex < numberOfStops; stopIndex++) {
+			Id<Link> stopLinkId = schedule.getStopLinkId(routeIndex, stopIndex);
+
+			// Advance along the network route until the stop link is reached. If the
+			// stop link is not part of the remaining route, the stop keeps the distance
+			// of the previous one.
+			int searchIndex = linkIndex;
+			double searchDistance = linkDistance;
+
+			while (searchIndex < linkIds.size() && !linkIds.get(searchIndex).equals(stopLinkId)) {
+				searchIndex++;
+
+				if (searchIndex < linkIds.size()) {
+					searchDistance += network.getLinks().get(linkIds.get(searchIndex)).getLength();
+				}
+			}
+
+			if (stopLinkId != null && searchIndex < linkIds.size()) {
+				linkIndex = searchIndex;
+				linkDistance = searchDistance;
+			}
+
+			distances[stopIndex] = linkDistance;
+		}
+
+		return distances;
+	}
+
+	public double getCumulativeDistance(int routeIndex, int stopIndex) {
+		return cumulativeDistances[routeIndex][stopIndex];
+	}
+
+	/**
+	 * Network distance between the access and the egress stop [m]
+	 */
+	public double getDistance(int routeIndex, int accessStopIndex, int egressStopIndex) {
+		double[] distances = cumulativeDistances[routeIndex];
+		return distances[egressStopIndex] - distances[accessStopIndex];
+	}
+}
@@ -0,0 +1,23 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+/**
+ * Time-ordered queue of scheduled agent departures or arrivals in the
+ * {@link BaselineTransitEngine}.
+ */
+public interface AgentQueue<T extends AgentQueue.Entry> extends Iterable<T> {
+	void add(T entry);
+
+	/**
+	 * Removes and returns the entry with the earliest time if that time is not
+	 * after the given time, otherwise returns null.
+	 */
+	T pollDue(double time);
+
+	int size();
+
+	void clear();
+
+	interface Entry {
+		double getTime();
+	}
+}
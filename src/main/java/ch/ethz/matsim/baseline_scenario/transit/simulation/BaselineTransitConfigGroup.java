@@ -0,0 +1,124 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.util.Map;
+
+import org.matsim.core.config.ReflectiveConfigGroup;
+
+public class BaselineTransitConfigGroup extends ReflectiveConfigGroup {
+	final public static String GROUP_NAME = "baselineTransit";
+
+	final public static String SCHEDULER = "scheduler";
+	final public static String NUMBER_OF_PARTITIONS = "numberOfPartitions";
+	final public static String USE_FAST_EVENTS_WRITER = "useFastEventsWriter";
+	final public static String WRITE_OCCUPANCY_INTERVAL = "writeOccupancyInterval";
+	final public static String USE_HEADWAY_INDEX = "useHeadwayIndex";
+	final public static String WRITE_ENGINE_STATISTICS = "writeEngineStatistics";
+	final public static String CONNECTION_CACHE_SIZE = "connectionCacheSize";
+
+	public enum SchedulerType {
+		priorityQueue, calendar
+	}
+
+	private SchedulerType scheduler = SchedulerType.priorityQueue;
+	private int numberOfPartitions = 1;
+	private boolean useFastEventsWriter = false;
+	private int writeOccupancyInterval = 0;
+	private boolean useHeadwayIndex = false;
+	private boolean writeEngineStatistics = true;
+	private int connectionCacheSize = 65536;
+
+	public BaselineTransitConfigGroup() {
+		super(GROUP_NAME);
+	}
+
+	@StringGetter(SCHEDULER)
+	public SchedulerType getScheduler() {
+		return scheduler;
+	}
+
+	@StringSetter(SCHEDULER)
+	public void setScheduler(SchedulerType scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	@StringGetter(NUMBER_OF_PARTITIONS)
+	public int getNumberOfPartitions() {
+		return numberOfPartitions;
+	}
+
+	@StringSetter(NUMBER_OF_PARTITIONS)
+	public void setNumberOfPartitions(int numberOfPartitions) {
+		this.numberOfPartitions = numberOfPartitions;
+	}
+
+	@StringGetter(USE_FAST_EVENTS_WRITER)
+	public boolean getUseFastEventsWriter() {
+		return useFastEventsWriter;
+	}
+
+	@StringSetter(USE_FAST_EVENTS_WRITER)
+	public void setUseFastEventsWriter(boolean useFastEventsWriter) {
+		this.useFastEventsWriter = useFastEventsWriter;
+	}
+
+	@StringGetter(WRITE_OCCUPANCY_INTERVAL)
+	public int getWriteOccupancyInterval() {
+		return writeOccupancyInterval;
+	}
+
+	@StringSetter(WRITE_OCCUPANCY_INTERVAL)
+	public void setWriteOccupancyInterval(int writeOccupancyInterval) {
+		this.writeOccupancyInterval = writeOccupancyInterval;
+	}
+
+	@StringGetter(USE_HEADWAY_INDEX)
+	public boolean getUseHeadwayIndex() {
+		return useHeadwayIndex;
+	}
+
+	@StringSetter(USE_HEADWAY_INDEX)
+	public void setUseHeadwayIndex(boolean useHeadwayIndex) {
+		this.useHeadwayIndex = useHeadwayIndex;
+	}
+
+	@StringGetter(WRITE_ENGINE_STATISTICS)
+	public boolean getWriteEngineStatistics() {
+		return writeEngineStatistics;
+	}
+
+	@StringSetter(WRITE_ENGINE_STATISTICS)
+	public void setWriteEngineStatistics(boolean writeEngineStatistics) {
+		this.writeEngineStatistics = writeEngineStatistics;
+	}
+
+	@StringGetter(CONNECTION_CACHE_SIZE)
+	public int getConnectionCacheSize() {
+		return connectionCacheSize;
+	}
+
+	@StringSetter(CONNECTION_CACHE_SIZE)
+	public void setConnectionCacheSize(int connectionCacheSize) {
+		this.connectionCacheSize = connectionCacheSize;
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> comments = super.getComments();
+		comments.put(SCHEDULER, "Queue for pending pt departures and arrivals in the transit engine: "
+				+ "priorityQueue (binary heap) or calendar (time wheel with one bucket per second)");
+		comments.put(NUMBER_OF_PARTITIONS, "Number of partitions (by agent id) of the transit engine, each with "
+				+ "its own scheduler and worker thread. 0 uses qsim.numberOfThreads, 1 runs single-threaded.");
+		comments.put(USE_FAST_EVENTS_WRITER, "Replaces the standard XML events writer by one that writes pt_transit "
+				+ "events directly from their cached attribute values. The file format is the same. The run scripts "
+				+ "remove xml from controler.eventsFileFormats with BaselineEventWriterListener.adaptConfig.");
+		comments.put(WRITE_OCCUPANCY_INTERVAL, "Iteration interval in which boardings, alightings and loads per "
+				+ "departure and stop are written to pt_occupancy.csv.gz. 0 disables the aggregation.");
+		comments.put(USE_HEADWAY_INDEX, "Finds departures of routes with near-regular headways arithmetically. "
+				+ "The classified routes are written to pt_headway_routes.csv.gz in the output directory.");
+		comments.put(WRITE_ENGINE_STATISTICS, "Writes departure counts, queue sizes and sampled processing times "
+				+ "of the transit engine to pt_engine_statistics.csv in every iteration directory.");
+		comments.put(CONNECTION_CACHE_SIZE, "Number of slots of the cache for connections that are recovered from "
+				+ "the pt router results. 0 disables the cache.");
+		return comments;
+	}
+}
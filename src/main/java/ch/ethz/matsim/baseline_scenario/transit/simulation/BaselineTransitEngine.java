@@ -1,13 +1,21 @@
 package ch.ethz.matsim.baseline_scenario.transit.simulation;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
@@ -16,168 +24,437 @@ import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
-import org.matsim.pt.transitSchedule.api.Departure;
-import org.matsim.pt.transitSchedule.api.TransitLine;
-import org.matsim.pt.transitSchedule.api.TransitRoute;
-import org.matsim.pt.transitSchedule.api.TransitRouteStop;
-import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 import com.google.inject.Singleton;
 
 import ch.ethz.matsim.baseline_scenario.transit.events.PublicTransitEvent;
 import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRoute;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder.NoDepartureFoundException;
-
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.HeadwayIndex;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitConfigGroup.SchedulerType;
+
+/**
+ * Teleports agents along their enriched pt routes according to the schedule.
+ * 
+ * Pending departures and arrivals can be split into several partitions by
+ * agent id. Each partition has its own scheduler and lock, so departures can be
+ * handled concurrently. In every step, the partitions collect their due agents
+ * on worker threads, create the arrival events and sort the arrivals by time
+ * and agent id. The simulation thread then only merges the sorted arrivals and
+ * hands them to the QSim, so the event stream does not depend on the number of
+ * partitions or on thread timing. With one partition, everything runs on the
+ * simulation thread in the order of the scheduler.
+ */
 @Singleton
 public class BaselineTransitEngine implements DepartureHandler, MobsimEngine {
-	final private TransitSchedule transitSchedule;
-	final private DepartureFinder departureFinder;
+	final private CompiledTransitSchedule schedule;
 	private InternalInterface internalInterface;
 	final private EventsManager eventsManager;
 	final private AgentCounter agentCounter;
+	final private OccupancyAggregator occupancy;
+	final private HeadwayIndex headwayIndex;
+	final private TransitEngineStatistics statistics;
+
+	final private Partition[] partitions;
+	final private int[] mergePositions;
+
+	private ExecutorService executor;
+	private volatile double currentTime;
+	final private List<Callable<Void>> drainTasks = new ArrayList<>();
+
+	static private class Partition {
+		final AgentQueue<AgentDeparture> departures;
+		final AgentQueue<AgentArrival> arrivals;
+
+		final List<AgentDeparture> dueDepartures = new ArrayList<>();
+		final List<AgentArrival> dueArrivals = new ArrayList<>();
+
+		Partition(SchedulerType schedulerType) {
+			this.departures = createQueue(schedulerType);
+			this.arrivals = createQueue(schedulerType);
+		}
+
+		synchronized void add(AgentDeparture departure, AgentArrival arrival) {
+			departures.add(departure);
+			arrivals.add(arrival);
+		}
+
+		synchronized void drain(double time, boolean sortArrivals) {
+			AgentDeparture departure;
+
+			while ((departure = departures.pollDue(time)) != null) {
+				dueDepartures.add(departure);
+			}
+
+			AgentArrival arrival;
 
-	final private PriorityQueue<AgentDeparture> departures = new PriorityQueue<>();
-	final private PriorityQueue<AgentArrival> arrivals = new PriorityQueue<>();
+			while ((arrival = arrivals.pollDue(time)) != null) {
+				arrival.teleportationEvent = new TeleportationArrivalEvent(arrival.arrivalTime, arrival.agent.getId(),
+						arrival.event.getTravelDistance());
+				dueArrivals.add(arrival);
+			}
+
+			if (sortArrivals) {
+				dueArrivals.sort(ARRIVAL_COMPARATOR);
+			}
+		}
 
-	private class AgentDeparture implements Comparable<AgentDeparture> {
+		synchronized int getDepartureQueueSize() {
+			return departures.size();
+		}
+
+		synchronized int getArrivalQueueSize() {
+			return arrivals.size();
+		}
+
+		synchronized void clear() {
+			departures.clear();
+			arrivals.clear();
+			dueDepartures.clear();
+			dueArrivals.clear();
+		}
+	}
+
+	static private class AgentDeparture implements AgentQueue.Entry {
 		final public MobsimAgent agent;
 		final public double departureTime;
 		final public Id<Link> departureLinkId;
+		final public int departureIndex;
+		final public int accessStopIndex;
 
-		public AgentDeparture(MobsimAgent agent, double departureTime, Id<Link> departureLinkId) {
+		public AgentDeparture(MobsimAgent agent, double departureTime, Id<Link> departureLinkId, int departureIndex,
+				int accessStopIndex) {
 			this.agent = agent;
 			this.departureTime = departureTime;
 			this.departureLinkId = departureLinkId;
+			this.departureIndex = departureIndex;
+			this.accessStopIndex = accessStopIndex;
 		}
 
 		@Override
-		public int compareTo(AgentDeparture other) {
-			return Double.compare(departureTime, other.departureTime);
+		public double getTime() {
+			return departureTime;
 		}
 	}
 
-	private class AgentArrival implements Comparable<AgentArrival> {
+	static private class AgentArrival implements AgentQueue.Entry {
 		final public MobsimAgent agent;
 		final public double arrivalTime;
 		final public Id<Link> arrivalLinkId;
 		final public PublicTransitEvent event;
+		final public int departureIndex;
+		final public int egressStopIndex;
+		public TeleportationArrivalEvent teleportationEvent;
 
-		public AgentArrival(MobsimAgent agent, double arrivalTime, Id<Link> arrivalLinkId, PublicTransitEvent event) {
+		public AgentArrival(MobsimAgent agent, double arrivalTime, Id<Link> arrivalLinkId, PublicTransitEvent event,
+				int departureIndex, int egressStopIndex) {
 			this.agent = agent;
 			this.arrivalTime = arrivalTime;
 			this.arrivalLinkId = arrivalLinkId;
 			this.event = event;
+			this.departureIndex = departureIndex;
+			this.egressStopIndex = egressStopIndex;
 		}
 
 		@Override
-		public int compareTo(AgentArrival other) {
-			return Double.compare(arrivalTime, other.arrivalTime);
+		public double getTime() {
+			return arrivalTime;
 		}
 	}
 
-	public BaselineTransitEngine(EventsManager eventsManager, TransitSchedule transitSchedule,
-			DepartureFinder departureFinder, AgentCounter agentCounter) {
+	public BaselineTransitEngine(EventsManager eventsManager, CompiledTransitSchedule schedule,
+			AgentCounter agentCounter) {
+		this(eventsManager, schedule, agentCounter, SchedulerType.priorityQueue, 1, null, null, null);
+	}
+
+	/**
+	 * @param occupancy    receives boardings and alightings, may be null
+	 * @param headwayIndex used to find departures of high-frequency routes, may be
+	 *                     null
+	 * @param statistics   receives metrics of the engine, may be null
+	 */
+	public BaselineTransitEngine(EventsManager eventsManager, CompiledTransitSchedule schedule,
+			AgentCounter agentCounter, SchedulerType schedulerType, int numberOfPartitions,
+			OccupancyAggregator occupancy, HeadwayIndex headwayIndex, TransitEngineStatistics statistics) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("Number of partitions must be positive");
+		}
+
 		this.eventsManager = eventsManager;
-		this.transitSchedule = transitSchedule;
-		this.departureFinder = departureFinder;
+		this.schedule = schedule;
 		this.agentCounter = agentCounter;
+		this.occupancy = occupancy;
+		this.headwayIndex = headwayIndex;
+		this.statistics = statistics;
+		this.partitions = new Partition[numberOfPartitions];
+		this.mergePositions = new int[numberOfPartitions];
+
+		for (int i = 0; i < numberOfPartitions; i++) {
+			Partition partition = new Partition(schedulerType);
+			partitions[i] = partition;
+
+			drainTasks.add(() -> {
+				partition.drain(currentTime, true);
+				return null;
+			});
+		}
+	}
+
+	static private <T extends AgentQueue.Entry> AgentQueue<T> createQueue(SchedulerType schedulerType) {
+		switch (schedulerType) {
+		case calendar:
+			return new CalendarAgentQueue<>();
+		case priorityQueue:
+			return new PriorityAgentQueue<>();
+		default:
+			throw new IllegalStateException("Unknown scheduler: " + schedulerType);
+		}
 	}
 
 	@Override
 	public boolean handleDeparture(double now, MobsimAgent agent, Id<Link> departureLinkId) {
 		if (agent.getMode().equals("pt")) {
-			Leg leg = (Leg) ((PlanAgent) agent).getCurrentPlanElement();
-			EnrichedTransitRoute route = (EnrichedTransitRoute) leg.getRoute();
+			if (statistics != null && statistics.addHandledDeparture()) {
+				long startTime = System.nanoTime();
+				processDeparture(now, agent, departureLinkId);
+				statistics.addHandleDepartureSample(System.nanoTime() - startTime);
+			} else {
+				processDeparture(now, agent, departureLinkId);
+			}
 
-			TransitLine transitLine = transitSchedule.getTransitLines().get(route.getTransitLineId());
-			TransitRoute transitRoute = transitLine.getRoutes().get(route.getTransitRouteId());
+			return true;
+		}
 
-			TransitRouteStop accessStop = transitRoute.getStops().get(route.getAccessStopIndex());
-			TransitRouteStop egressStop = transitRoute.getStops().get(route.getEgressStopIndex());
+		return false;
+	}
 
-			try {
-				Departure departure = departureFinder.findDeparture(transitRoute, accessStop, now);
+	private void processDeparture(double now, MobsimAgent agent, Id<Link> departureLinkId) {
+		Leg leg = (Leg) ((PlanAgent) agent).getCurrentPlanElement();
+		EnrichedTransitRoute route = (EnrichedTransitRoute) leg.getRoute();
 
-				double inVehicleTime = egressStop.getArrivalOffset() - accessStop.getDepartureOffset();
-				double vehicleDepartureTime = departure.getDepartureTime() + accessStop.getDepartureOffset();
-				double arrivalTime = vehicleDepartureTime + inVehicleTime;
+		int routeIndex = schedule.getRouteIndex(route);
+		int accessStopIndex = route.getAccessStopIndex();
+		int egressStopIndex = route.getEgressStopIndex();
 
-				if (arrivalTime < vehicleDepartureTime || arrivalTime < now) {
-					throw new IllegalStateException();
-				}
+		int departureIndex = headwayIndex == null ? schedule.findDepartureIndex(routeIndex, accessStopIndex, now)
+				: headwayIndex.findDepartureIndex(routeIndex, accessStopIndex, now);
 
-				if (Math.abs(arrivalTime - now) < 1.0) {
-					arrivalTime = now + 1.0;
-				}
+		if (departureIndex < 0) {
+			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getCurrentLinkId(), "pt"));
+			agentCounter.decLiving();
 
-				Id<Link> arrivalLinkId = egressStop.getStopFacility().getLinkId();
+			if (statistics != null) {
+				statistics.addNoDepartureStuck();
+			}
 
-				if (!accessStop.getStopFacility().getLinkId().equals(departureLinkId)) {
-					throw new IllegalStateException();
-				}
+			return;
+		}
 
-				PublicTransitEvent transitEvent = new PublicTransitEvent(arrivalTime, agent.getId(),
-						transitLine.getId(), transitRoute.getId(), accessStop.getStopFacility().getId(),
-						egressStop.getStopFacility().getId(), vehicleDepartureTime, route.getDistance());
+		double accessStopOffset = schedule.getDepartureOffset(routeIndex, accessStopIndex);
+		double inVehicleTime = schedule.getArrivalOffset(routeIndex, egressStopIndex) - accessStopOffset;
+		double vehicleDepartureTime = schedule.getDepartureTime(departureIndex) + accessStopOffset;
+		double arrivalTime = vehicleDepartureTime + inVehicleTime;
 
-				internalInterface.registerAdditionalAgentOnLink(agent);
-				departures.add(new AgentDeparture(agent, vehicleDepartureTime, departureLinkId));
-				arrivals.add(new AgentArrival(agent, arrivalTime, arrivalLinkId, transitEvent));
-			} catch (NoDepartureFoundException e) {
-				eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getCurrentLinkId(), "pt"));
-				agentCounter.decLiving();
-			}
+		if (arrivalTime < vehicleDepartureTime || arrivalTime < now) {
+			throw new IllegalStateException();
+		}
 
-			return true;
+		if (Math.abs(arrivalTime - now) < 1.0) {
+			arrivalTime = now + 1.0;
 		}
 
-		return false;
+		Id<Link> arrivalLinkId = schedule.getStopLinkId(routeIndex, egressStopIndex);
+
+		if (!schedule.getStopLinkId(routeIndex, accessStopIndex).equals(departureLinkId)) {
+			throw new IllegalStateException();
+		}
+
+		PublicTransitEvent transitEvent = new PublicTransitEvent(arrivalTime, agent.getId(),
+				route.getTransitLineId(), route.getTransitRouteId(),
+				schedule.getStopFacilityId(routeIndex, accessStopIndex),
+				schedule.getStopFacilityId(routeIndex, egressStopIndex), vehicleDepartureTime,
+				route.getDistance());
+
+		internalInterface.registerAdditionalAgentOnLink(agent);
+		getPartition(agent.getId()).add(
+				new AgentDeparture(agent, vehicleDepartureTime, departureLinkId, departureIndex, accessStopIndex),
+				new AgentArrival(agent, arrivalTime, arrivalLinkId, transitEvent, departureIndex,
+						egressStopIndex));
 	}
 
+	private Partition getPartition(Id<Person> agentId) {
+		return partitions[Math.floorMod(agentId.hashCode(), partitions.length)];
+	}
+
+	static private final Comparator<AgentArrival> ARRIVAL_COMPARATOR = (a, b) -> {
+		int comparison = Double.compare(a.arrivalTime, b.arrivalTime);
+		return comparison != 0 ? comparison : a.agent.getId().compareTo(b.agent.getId());
+	};
+
 	@Override
 	public void doSimStep(double time) {
-		while (!departures.isEmpty() && departures.peek().departureTime <= time) {
-			AgentDeparture departure = departures.poll();
+		if (statistics != null) {
+			long startTime = System.nanoTime();
+			processSimStep(time);
+			statistics.addSimStepTime(System.nanoTime() - startTime);
+
+			if (statistics.isQueueSampleDue(time)) {
+				long departureQueueSize = 0;
+				long arrivalQueueSize = 0;
+
+				for (Partition partition : partitions) {
+					departureQueueSize += partition.getDepartureQueueSize();
+					arrivalQueueSize += partition.getArrivalQueueSize();
+				}
+
+				statistics.addQueueSample(time, departureQueueSize, arrivalQueueSize);
+			}
+		} else {
+			processSimStep(time);
+		}
+	}
+
+	private void processSimStep(double time) {
+		if (partitions.length == 1) {
+			Partition partition = partitions[0];
+			partition.drain(time, false);
+			processDepartures(partition);
+
+			for (AgentArrival arrival : partition.dueArrivals) {
+				processArrival(arrival, time);
+			}
+
+			partition.dueArrivals.clear();
+			return;
+		}
+
+		currentTime = time;
+
+		try {
+			for (Future<Void> future : executor.invokeAll(drainTasks)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+
+		for (Partition partition : partitions) {
+			processDepartures(partition);
+		}
+
+		// Merge the sorted arrivals of the partitions, there are only few of them
+		while (true) {
+			int next = -1;
+
+			for (int i = 0; i < partitions.length; i++) {
+				if (mergePositions[i] < partitions[i].dueArrivals.size() && (next < 0
+						|| ARRIVAL_COMPARATOR.compare(partitions[i].dueArrivals.get(mergePositions[i]),
+								partitions[next].dueArrivals.get(mergePositions[next])) < 0)) {
+					next = i;
+				}
+			}
+
+			if (next < 0) {
+				break;
+			}
+
+			processArrival(partitions[next].dueArrivals.get(mergePositions[next]++), time);
+		}
+
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i].dueArrivals.clear();
+			mergePositions[i] = 0;
+		}
+	}
+
+	private void processDepartures(Partition partition) {
+		for (AgentDeparture departure : partition.dueDepartures) {
 			internalInterface.unregisterAdditionalAgentOnLink(departure.agent.getId(), departure.departureLinkId);
+
+			if (occupancy != null) {
+				occupancy.addBoarding(departure.departureIndex, departure.accessStopIndex);
+			}
 		}
 
-		while (!arrivals.isEmpty() && arrivals.peek().arrivalTime <= time) {
-			AgentArrival arrival = arrivals.poll();
-			arrival.agent.notifyArrivalOnLinkByNonNetworkMode(arrival.arrivalLinkId);
-			eventsManager.processEvent(arrival.event);
-			eventsManager.processEvent(new TeleportationArrivalEvent(arrival.arrivalTime, arrival.agent.getId(),
-					arrival.event.getTravelDistance()));
-			arrival.agent.endLegAndComputeNextState(time);
-			internalInterface.arrangeNextAgentState(arrival.agent);
+		partition.dueDepartures.clear();
+	}
+
+	private void processArrival(AgentArrival arrival, double time) {
+		if (occupancy != null) {
+			occupancy.addAlighting(arrival.departureIndex, arrival.egressStopIndex);
 		}
+
+		arrival.agent.notifyArrivalOnLinkByNonNetworkMode(arrival.arrivalLinkId);
+		eventsManager.processEvent(arrival.event);
+		eventsManager.processEvent(arrival.teleportationEvent);
+		arrival.agent.endLegAndComputeNextState(time);
+		internalInterface.arrangeNextAgentState(arrival.agent);
 	}
 
 	@Override
 	public void onPrepareSim() {
-		departures.clear();
-		arrivals.clear();
+		for (Partition partition : partitions) {
+			partition.clear();
+		}
+
+		if (statistics != null) {
+			statistics.reset();
+		}
+
+		if (partitions.length > 1 && executor == null) {
+			executor = Executors.newFixedThreadPool(partitions.length, runnable -> {
+				Thread thread = new Thread(runnable, "BaselineTransitEngine");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
 	}
 
 	@Override
 	public void afterSim() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+
 		double time = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+
+		List<AgentDeparture> remainingDepartures = new ArrayList<>();
+		List<AgentArrival> remainingArrivals = new ArrayList<>();
+
+		for (Partition partition : partitions) {
+			partition.departures.forEach(remainingDepartures::add);
+			partition.arrivals.forEach(remainingArrivals::add);
+		}
+
+		if (partitions.length > 1) {
+			remainingDepartures.sort((a, b) -> a.agent.getId().compareTo(b.agent.getId()));
+			remainingArrivals.sort((a, b) -> a.agent.getId().compareTo(b.agent.getId()));
+		}
+
 		Set<MobsimAgent> processedAgents = new HashSet<>();
+		long numberOfStuckAgents = 0;
 
-		for (AgentDeparture departure : departures) {
+		for (AgentDeparture departure : remainingDepartures) {
 			eventsManager
 					.processEvent(new PersonStuckEvent(time, departure.agent.getId(), departure.departureLinkId, "pt"));
 			agentCounter.decLiving();
 			processedAgents.add(departure.agent);
+			numberOfStuckAgents++;
 		}
 
-		for (AgentArrival arrival : arrivals) {
+		for (AgentArrival arrival : remainingArrivals) {
 			if (!processedAgents.contains(arrival.agent)) {
 				eventsManager
 						.processEvent(new PersonStuckEvent(time, arrival.agent.getId(), arrival.arrivalLinkId, "pt"));
 				agentCounter.decLiving();
+				numberOfStuckAgents++;
 			}
 		}
+
+		if (statistics != null) {
+			statistics.addAfterSimStucks(numberOfStuckAgents);
+		}
 	}
 
 	@Override
@@ -1,9 +1,15 @@
 package ch.ethz.matsim.baseline_scenario.transit.simulation;
 
+import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.pt.config.TransitRouterConfigGroup;
 import org.matsim.pt.router.TransitRouter;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
@@ -12,16 +18,24 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 import ch.ethz.matsim.baseline_scenario.transit.BaselineTransitQSimModule;
+import ch.ethz.matsim.baseline_scenario.transit.connection.CachingTransitConnectionFinder;
 import ch.ethz.matsim.baseline_scenario.transit.connection.DefaultTransitConnectionFinder;
 import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnectionFinder;
+import ch.ethz.matsim.baseline_scenario.transit.events.BaselineEventWriterListener;
 import ch.ethz.matsim.baseline_scenario.transit.routing.BaselineTransitRoutingModule;
 import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRouter;
 import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRouter;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DefaultDepartureFinder;
+import ch.ethz.matsim.baseline_scenario.transit.routing.TransitIdIndex;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.HeadwayIndex;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.TransitRouteDistances;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.IndexedDepartureFinder;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorFactory;
 
 public class BaselineTransitModule extends AbstractModule {
+	final private static Logger logger = Logger.getLogger(BaselineTransitModule.class);
+
 	@Override
 	public void install() {
 		if (getConfig().transit().isUseTransit()) {
@@ -40,22 +54,97 @@ public class BaselineTransitModule extends AbstractModule {
             installQSimModule(new BaselineTransitQSimModule());
             bind(TransitRouter.class).toProvider(SwissRailRaptorFactory.class);
             addRoutingModuleBinding("pt").to(BaselineTransitRoutingModule.class);
+
+            ConfigGroup configGroup = getConfig().getModules().get(BaselineTransitConfigGroup.GROUP_NAME);
+            BaselineTransitConfigGroup transitConfig = configGroup instanceof BaselineTransitConfigGroup
+                    ? (BaselineTransitConfigGroup) configGroup : new BaselineTransitConfigGroup();
+
+            if (transitConfig.getUseFastEventsWriter()) {
+                if (getConfig().controler().getEventsFileFormats().contains(EventsFileFormat.xml)) {
+                    logger.warn("Fast events writer is not used, because the standard writer still writes xml. "
+                            + "Call BaselineEventWriterListener.adaptConfig before the controler is created.");
+                } else {
+                    addControlerListenerBinding().to(BaselineEventWriterListener.class);
+                }
+            }
+
+            if (transitConfig.getWriteOccupancyInterval() > 0) {
+                addControlerListenerBinding().to(OccupancyListener.class);
+            }
+
+            if (transitConfig.getWriteEngineStatistics()) {
+                addControlerListenerBinding().to(TransitEngineStatisticsListener.class);
+            }
+
+            if (transitConfig.getUseHeadwayIndex()) {
+                addControlerListenerBinding().to(HeadwayIndexListener.class);
+            }
 		}
+
 		@Provides
-		public EnrichedTransitRouter provideEnrichedTransitRouter(TransitRouter delegate, TransitSchedule transitSchedule,
-																  TransitConnectionFinder connectionFinder, Network network, PlansCalcRouteConfigGroup routeConfig,
+		@Singleton
+		public TransitEngineStatistics provideTransitEngineStatistics() {
+			return new TransitEngineStatistics();
+		}
+
+		@Provides
+		@Singleton
+		public TransitEngineStatisticsListener provideTransitEngineStatisticsListener(
+				TransitEngineStatistics statistics, OutputDirectoryHierarchy hierarchy) {
+			return new TransitEngineStatisticsListener(statistics, hierarchy);
+		}
+
+		@Provides
+		@Singleton
+		public HeadwayIndex provideHeadwayIndex(CompiledTransitSchedule schedule) {
+			return new HeadwayIndex(schedule);
+		}
+
+		@Provides
+		@Singleton
+		public HeadwayIndexListener provideHeadwayIndexListener(HeadwayIndex headwayIndex,
+				OutputDirectoryHierarchy hierarchy) {
+			return new HeadwayIndexListener(headwayIndex, hierarchy);
+		}
+
+		@Provides
+		@Singleton
+		public OccupancyAggregator provideOccupancyAggregator(CompiledTransitSchedule schedule) {
+			return new OccupancyAggregator(schedule);
+		}
+
+		@Provides
+		@Singleton
+		public OccupancyListener provideOccupancyListener(OccupancyAggregator aggregator,
+				OutputDirectoryHierarchy hierarchy, BaselineTransitConfigGroup transitConfig,
+				ControlerConfigGroup controlerConfig) {
+			return new OccupancyListener(aggregator, hierarchy, transitConfig.getWriteOccupancyInterval(),
+					controlerConfig.getLastIteration());
+		}
+
+		@Provides
+		@Singleton
+		public BaselineEventWriterListener provideBaselineEventWriterListener(EventsManager eventsManager,
+				OutputDirectoryHierarchy hierarchy, ControlerConfigGroup controlerConfig) {
+			return new BaselineEventWriterListener(eventsManager, hierarchy, controlerConfig);
+		}
+
+		@Provides
+		public EnrichedTransitRouter provideEnrichedTransitRouter(TransitRouter delegate, CompiledTransitSchedule schedule,
+																  TransitConnectionFinder connectionFinder, TransitRouteDistances distances,
+																  TransitIdIndex idIndex, PlansCalcRouteConfigGroup routeConfig,
 																  TransitRouterConfigGroup transitConfig) {
 			double beelineDistanceFactor = routeConfig.getBeelineDistanceFactors().get("walk");
 			double additionalTransferTime = transitConfig.getAdditionalTransferTime();
 
-			return new DefaultEnrichedTransitRouter(delegate, transitSchedule, connectionFinder, network,
+			return new DefaultEnrichedTransitRouter(delegate, schedule, connectionFinder, distances, idIndex,
 					beelineDistanceFactor, additionalTransferTime);
 		}
 
 		@Provides
 		public BaselineTransitRoutingModule provideBaselineTransitRoutingModule(EnrichedTransitRouter transitRouter,
-																				TransitSchedule transitSchedule) {
-			return new BaselineTransitRoutingModule(transitRouter, transitSchedule);
+																				CompiledTransitSchedule schedule) {
+			return new BaselineTransitRoutingModule(transitRouter, schedule);
 		}
 
 		@Provides
@@ -66,14 +155,41 @@ public class BaselineTransitModule extends AbstractModule {
 
 		@Provides
 		@Singleton
-		public TransitConnectionFinder provideTransitConnectionFinder(DepartureFinder departureFinder) {
-			return new DefaultTransitConnectionFinder(departureFinder);
+		public CompiledTransitSchedule provideCompiledTransitSchedule(TransitSchedule transitSchedule) {
+			return new CompiledTransitSchedule(transitSchedule);
+		}
+
+		@Provides
+		@Singleton
+		public TransitConnectionFinder provideTransitConnectionFinder(DepartureFinder departureFinder,
+				CompiledTransitSchedule schedule, BaselineTransitConfigGroup transitConfig) {
+			TransitConnectionFinder connectionFinder = new DefaultTransitConnectionFinder(departureFinder, schedule);
+
+			if (transitConfig.getConnectionCacheSize() > 0) {
+				connectionFinder = new CachingTransitConnectionFinder(connectionFinder, schedule,
+						transitConfig.getConnectionCacheSize());
+			}
+
+			return connectionFinder;
+		}
+
+		@Provides
+		@Singleton
+		public TransitRouteDistances provideTransitRouteDistances(CompiledTransitSchedule schedule,
+				Network network) {
+			return new TransitRouteDistances(schedule, network);
+		}
+
+		@Provides
+		@Singleton
+		public TransitIdIndex provideTransitIdIndex(CompiledTransitSchedule schedule) {
+			return new TransitIdIndex(schedule);
 		}
 
 		@Provides
 		@Singleton
-		public DepartureFinder provideDepartureFinder() {
-			return new DefaultDepartureFinder();
+		public DepartureFinder provideDepartureFinder(CompiledTransitSchedule schedule) {
+			return new IndexedDepartureFinder(schedule);
 		}
 	}
 }
@@ -0,0 +1,123 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Time wheel with one bucket per simulation second. An entry with time t is
+ * put into bucket ceil(t), which is exactly the first simulation step in which
+ * it is due. Polling hence only walks forward through the buckets and drains
+ * each of them once. Within a bucket, entries are returned in the order of
+ * their times and, for equal times, in insertion order.
+ */
+public class CalendarAgentQueue<T extends AgentQueue.Entry> implements AgentQueue<T> {
+	final private List<List<T>> buckets = new ArrayList<>();
+
+	private int currentBucketIndex = 0;
+	private int currentBucketPosition = 0;
+	private int size = 0;
+
+	@Override
+	public void add(T entry) {
+		int bucketIndex = Math.max(currentBucketIndex, (int) Math.ceil(entry.getTime()));
+
+		while (buckets.size() <= bucketIndex) {
+			buckets.add(null);
+		}
+
+		List<T> bucket = buckets.get(bucketIndex);
+
+		if (bucket == null) {
+			bucket = new ArrayList<>();
+			buckets.set(bucketIndex, bucket);
+		}
+
+		if (bucketIndex == currentBucketIndex && currentBucketPosition > 0) {
+			// The bucket is already being drained, so keep its remaining part ordered
+			int insertionIndex = bucket.size();
+
+			while (insertionIndex > currentBucketPosition
+					&& bucket.get(insertionIndex - 1).getTime() > entry.getTime()) {
+				insertionIndex--;
+			}
+
+			bucket.add(insertionIndex, entry);
+		} else {
+			bucket.add(entry);
+		}
+
+		size++;
+	}
+
+	@Override
+	public T pollDue(double time) {
+		int lastDueBucketIndex = (int) Math.floor(time);
+
+		while (currentBucketIndex <= lastDueBucketIndex && currentBucketIndex < buckets.size()) {
+			List<T> bucket = buckets.get(currentBucketIndex);
+
+			if (bucket != null && currentBucketPosition < bucket.size()) {
+				if (currentBucketPosition == 0) {
+					sortBucket(bucket);
+				}
+
+				size--;
+				return bucket.get(currentBucketPosition++);
+			}
+
+			if (bucket != null) {
+				bucket.clear();
+			}
+
+			currentBucketIndex++;
+			currentBucketPosition = 0;
+		}
+
+		return null;
+	}
+
+	private void sortBucket(List<T> bucket) {
+		for (int i = 1; i < bucket.size(); i++) {
+			if (bucket.get(i - 1).getTime() > bucket.get(i).getTime()) {
+				// Stable, so entries with equal times keep their insertion order
+				bucket.sort((a, b) -> Double.compare(a.getTime(), b.getTime()));
+				return;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (List<T> bucket : buckets) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+
+		currentBucketIndex = 0;
+		currentBucketPosition = 0;
+		size = 0;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		List<T> pending = new ArrayList<>(size);
+
+		for (int bucketIndex = currentBucketIndex; bucketIndex < buckets.size(); bucketIndex++) {
+			List<T> bucket = buckets.get(bucketIndex);
+
+			if (bucket != null) {
+				int start = bucketIndex == currentBucketIndex ? currentBucketPosition : 0;
+				pending.addAll(bucket.subList(start, bucket.size()));
+			}
+		}
+
+		return pending.iterator();
+	}
+}
@@ -0,0 +1,41 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.StartupListener;
+
+import com.google.inject.Singleton;
+
+import ch.ethz.matsim.baseline_scenario.transit.schedule.HeadwayIndex;
+
+/**
+ * Reports the routes that the HeadwayIndex has classified as headway-based.
+ */
+@Singleton
+public class HeadwayIndexListener implements StartupListener {
+	final private static Logger logger = Logger.getLogger(HeadwayIndexListener.class);
+
+	final private HeadwayIndex headwayIndex;
+	final private OutputDirectoryHierarchy hierarchy;
+
+	public HeadwayIndexListener(HeadwayIndex headwayIndex, OutputDirectoryHierarchy hierarchy) {
+		this.headwayIndex = headwayIndex;
+		this.hierarchy = hierarchy;
+	}
+
+	@Override
+	public void notifyStartup(StartupEvent event) {
+		logger.info(String.format("%d of %d transit routes are headway-based",
+				headwayIndex.getNumberOfHeadwayBasedRoutes(), headwayIndex.getNumberOfRoutes()));
+
+		try {
+			headwayIndex.write(hierarchy.getOutputFilename("pt_headway_routes.csv.gz"));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
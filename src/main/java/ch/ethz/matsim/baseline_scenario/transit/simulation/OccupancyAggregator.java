@@ -0,0 +1,116 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import org.matsim.core.utils.io.IOUtils;
+
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+
+/**
+ * Counts boardings and alightings per departure and stop while the transit
+ * engine runs. Counters of a departure are only allocated once the first
+ * passenger boards it. The on-board load between two stops is derived from the
+ * counters when writing.
+ * 
+ * The counters are updated from the simulation thread of the transit engine
+ * only and are not synchronized.
+ */
+public class OccupancyAggregator {
+	final private CompiledTransitSchedule schedule;
+
+	// Per departure: boardings at [0, n), alightings at [n, 2n) for a route with n stops
+	final private int[][] counts;
+	private boolean enabled = false;
+
+	public OccupancyAggregator(CompiledTransitSchedule schedule) {
+		this.schedule = schedule;
+		this.counts = new int[schedule.getNumberOfDepartures()][];
+	}
+
+	/**
+	 * Clears all counters and enables or disables counting for the next run.
+	 */
+	public void reset(boolean enabled) {
+		this.enabled = enabled;
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = null;
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void addBoarding(int departureIndex, int stopIndex) {
+		if (enabled) {
+			getCounts(departureIndex)[stopIndex]++;
+		}
+	}
+
+	public void addAlighting(int departureIndex, int stopIndex) {
+		if (enabled) {
+			int[] departureCounts = getCounts(departureIndex);
+			departureCounts[departureCounts.length / 2 + stopIndex]++;
+		}
+	}
+
+	private int[] getCounts(int departureIndex) {
+		int[] departureCounts = counts[departureIndex];
+
+		if (departureCounts == null) {
+			int routeIndex = schedule.getDepartureRouteIndex(departureIndex);
+			departureCounts = new int[2 * schedule.getNumberOfStops(routeIndex)];
+			counts[departureIndex] = departureCounts;
+		}
+
+		return departureCounts;
+	}
+
+	/**
+	 * Writes one row per stop of every used departure at which passengers board,
+	 * alight or stay on board. The load is the number of passengers on board when
+	 * the vehicle leaves the stop.
+	 */
+	public void write(String path) throws IOException {
+		BufferedWriter writer = IOUtils.getBufferedWriter(path);
+
+		writer.write(String.join(";", new String[] { "line_id", "route_id", "departure_id", "departure_time",
+				"stop_index", "stop_id", "stop_departure_time", "boardings", "alightings", "load" }) + "\n");
+
+		for (int departureIndex = 0; departureIndex < counts.length; departureIndex++) {
+			int[] departureCounts = counts[departureIndex];
+
+			if (departureCounts == null) {
+				continue;
+			}
+
+			int routeIndex = schedule.getDepartureRouteIndex(departureIndex);
+			int numberOfStops = departureCounts.length / 2;
+
+			String lineId = schedule.getLine(schedule.getLineIndex(routeIndex)).getId().toString();
+			String routeId = schedule.getRoute(routeIndex).getId().toString();
+			String departureId = schedule.getDeparture(departureIndex).getId().toString();
+			double departureTime = schedule.getDepartureTime(departureIndex);
+
+			int load = 0;
+
+			for (int stopIndex = 0; stopIndex < numberOfStops; stopIndex++) {
+				int boardings = departureCounts[stopIndex];
+				int alightings = departureCounts[numberOfStops + stopIndex];
+				load += boardings - alightings;
+
+				if (boardings > 0 || alightings > 0 || load > 0) {
+					writer.write(String.join(";", new String[] { lineId, routeId, departureId,
+							String.valueOf(departureTime), String.valueOf(stopIndex),
+							schedule.getStopFacilityId(routeIndex, stopIndex).toString(),
+							String.valueOf(departureTime + schedule.getDepartureOffset(routeIndex, stopIndex)),
+							String.valueOf(boardings), String.valueOf(alightings), String.valueOf(load) }) + "\n");
+				}
+			}
+		}
+
+		writer.close();
+	}
+}
@@ -0,0 +1,51 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+import com.google.inject.Singleton;
+
+/**
+ * Enables the OccupancyAggregator in every n-th iteration and writes its
+ * counts to pt_occupancy.csv.gz in the iteration directory.
+ */
+@Singleton
+public class OccupancyListener implements BeforeMobsimListener, AfterMobsimListener {
+	final private OccupancyAggregator aggregator;
+	final private OutputDirectoryHierarchy hierarchy;
+	final private int interval;
+	final private int lastIteration;
+
+	public OccupancyListener(OccupancyAggregator aggregator, OutputDirectoryHierarchy hierarchy, int interval,
+			int lastIteration) {
+		this.aggregator = aggregator;
+		this.hierarchy = hierarchy;
+		this.interval = interval;
+		this.lastIteration = lastIteration;
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		int iteration = event.getIteration();
+		aggregator.reset(interval > 0 && (iteration % interval == 0 || iteration == lastIteration));
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		if (aggregator.isEnabled()) {
+			try {
+				aggregator.write(hierarchy.getIterationFilename(event.getIteration(), "pt_occupancy.csv.gz"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			aggregator.reset(false);
+		}
+	}
+}
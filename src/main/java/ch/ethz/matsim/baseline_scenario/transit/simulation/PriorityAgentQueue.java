@@ -0,0 +1,37 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+public class PriorityAgentQueue<T extends AgentQueue.Entry> implements AgentQueue<T> {
+	final private PriorityQueue<T> queue = new PriorityQueue<>((a, b) -> Double.compare(a.getTime(), b.getTime()));
+
+	@Override
+	public void add(T entry) {
+		queue.add(entry);
+	}
+
+	@Override
+	public T pollDue(double time) {
+		if (!queue.isEmpty() && queue.peek().getTime() <= time) {
+			return queue.poll();
+		}
+
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return queue.iterator();
+	}
+}
@@ -0,0 +1,160 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-iteration metrics of the BaselineTransitEngine.
+ * 
+ * To keep the overhead low, only a random sample of one in n calls of
+ * handleDeparture is timed and the total time is extrapolated from it, and queue sizes are
+ * sampled in fixed intervals of simulation time. Counters that are updated
+ * from handleDeparture are thread-safe, all others are only updated from the
+ * simulation thread.
+ */
+public class TransitEngineStatistics {
+	final private int timingSampleInterval;
+	final private double queueSampleInterval;
+
+	final private LongAdder handledDepartures = new LongAdder();
+	final private LongAdder noDepartureStucks = new LongAdder();
+	final private LongAdder sampledDepartures = new LongAdder();
+	final private LongAdder sampledHandleDepartureNanos = new LongAdder();
+
+	private long simStepNanos = 0;
+	private long afterSimStucks = 0;
+
+	private double nextQueueSampleTime = Double.NEGATIVE_INFINITY;
+	private long queueSamples = 0;
+	private long departureQueueSum = 0;
+	private long arrivalQueueSum = 0;
+	private long sampledPeakDepartureQueueSize = 0;
+	private long sampledPeakArrivalQueueSize = 0;
+
+	/**
+	 * @param timingSampleInterval one in n calls of handleDeparture is timed
+	 * @param queueSampleInterval  simulation time between two samples of the
+	 *                             queue sizes [s]
+	 */
+	public TransitEngineStatistics(int timingSampleInterval, double queueSampleInterval) {
+		this.timingSampleInterval = Math.max(1, timingSampleInterval);
+		this.queueSampleInterval = queueSampleInterval;
+	}
+
+	public TransitEngineStatistics() {
+		this(16, 60.0);
+	}
+
+	public void reset() {
+		handledDepartures.reset();
+		noDepartureStucks.reset();
+		sampledDepartures.reset();
+		sampledHandleDepartureNanos.reset();
+
+		simStepNanos = 0;
+		afterSimStucks = 0;
+
+		nextQueueSampleTime = Double.NEGATIVE_INFINITY;
+		queueSamples = 0;
+		departureQueueSum = 0;
+		arrivalQueueSum = 0;
+		sampledPeakDepartureQueueSize = 0;
+		sampledPeakArrivalQueueSize = 0;
+	}
+
+	/**
+	 * Counts a handled departure and returns whether its processing time should
+	 * be measured.
+	 */
+	public boolean addHandledDeparture() {
+		handledDepartures.increment();
+		return ThreadLocalRandom.current().nextInt(timingSampleInterval) == 0;
+	}
+
+	public void addHandleDepartureSample(long nanos) {
+		sampledDepartures.increment();
+		sampledHandleDepartureNanos.add(nanos);
+	}
+
+	public void addNoDepartureStuck() {
+		noDepartureStucks.increment();
+	}
+
+	public void addSimStepTime(long nanos) {
+		simStepNanos += nanos;
+	}
+
+	public void addAfterSimStucks(long stucks) {
+		afterSimStucks += stucks;
+	}
+
+	public boolean isQueueSampleDue(double time) {
+		return time >= nextQueueSampleTime;
+	}
+
+	public void addQueueSample(double time, long departureQueueSize, long arrivalQueueSize) {
+		nextQueueSampleTime = time + queueSampleInterval;
+
+		queueSamples++;
+		departureQueueSum += departureQueueSize;
+		arrivalQueueSum += arrivalQueueSize;
+		sampledPeakDepartureQueueSize = Math.max(sampledPeakDepartureQueueSize, departureQueueSize);
+		sampledPeakArrivalQueueSize = Math.max(sampledPeakArrivalQueueSize, arrivalQueueSize);
+	}
+
+	public long getHandledDepartures() {
+		return handledDepartures.sum();
+	}
+
+	public long getNoDepartureStucks() {
+		return noDepartureStucks.sum();
+	}
+
+	public long getAfterSimStucks() {
+		return afterSimStucks;
+	}
+
+	/**
+	 * Returns the largest sampled departure queue size. The actual peak between
+	 * two samples may be higher.
+	 */
+	public long getSampledPeakDepartureQueueSize() {
+		return sampledPeakDepartureQueueSize;
+	}
+
+	/**
+	 * Returns the largest sampled arrival queue size. The actual peak between two
+	 * samples may be higher.
+	 */
+	public long getSampledPeakArrivalQueueSize() {
+		return sampledPeakArrivalQueueSize;
+	}
+
+	public double getAverageDepartureQueueSize() {
+		return queueSamples == 0 ? 0.0 : (double) departureQueueSum / queueSamples;
+	}
+
+	public double getAverageArrivalQueueSize() {
+		return queueSamples == 0 ? 0.0 : (double) arrivalQueueSum / queueSamples;
+	}
+
+	/**
+	 * Returns the estimated total time spent in handleDeparture [ms].
+	 */
+	public double getHandleDepartureTime() {
+		long samples = sampledDepartures.sum();
+
+		if (samples == 0) {
+			return 0.0;
+		}
+
+		return 1e-6 * sampledHandleDepartureNanos.sum() * handledDepartures.sum() / samples;
+	}
+
+	/**
+	 * Returns the total time spent in doSimStep [ms].
+	 */
+	public double getSimStepTime() {
+		return 1e-6 * simStepNanos;
+	}
+}
@@ -0,0 +1,60 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.inject.Singleton;
+
+/**
+ * Writes the TransitEngineStatistics of each iteration to
+ * pt_engine_statistics.csv in the iteration directory. Queue sizes are sampled
+ * in intervals of simulation time, so the peaks are the largest samples.
+ */
+@Singleton
+public class TransitEngineStatisticsListener implements IterationEndsListener {
+	final private TransitEngineStatistics statistics;
+	final private OutputDirectoryHierarchy hierarchy;
+
+	public TransitEngineStatisticsListener(TransitEngineStatistics statistics, OutputDirectoryHierarchy hierarchy) {
+		this.statistics = statistics;
+		this.hierarchy = hierarchy;
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		try {
+			BufferedWriter writer = IOUtils.getBufferedWriter(
+					hierarchy.getIterationFilename(event.getIteration(), "pt_engine_statistics.csv"));
+
+			writer.write(String.join(";",
+					new String[] { "iteration", "handled_departures", "no_departure_stucks", "after_sim_stucks",
+							"sampled_peak_departure_queue_size", "average_departure_queue_size",
+							"sampled_peak_arrival_queue_size", "average_arrival_queue_size", "handle_departure_time_ms",
+							"sim_step_time_ms" })
+					+ "\n");
+
+			writer.write(String.join(";",
+					new String[] { String.valueOf(event.getIteration()),
+							String.valueOf(statistics.getHandledDepartures()),
+							String.valueOf(statistics.getNoDepartureStucks()),
+							String.valueOf(statistics.getAfterSimStucks()),
+							String.valueOf(statistics.getSampledPeakDepartureQueueSize()),
+							String.valueOf(statistics.getAverageDepartureQueueSize()),
+							String.valueOf(statistics.getSampledPeakArrivalQueueSize()),
+							String.valueOf(statistics.getAverageArrivalQueueSize()),
+							String.valueOf(statistics.getHandleDepartureTime()),
+							String.valueOf(statistics.getSimStepTime()) })
+					+ "\n");
+
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -26,12 +26,17 @@ import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import ch.ethz.matsim.baseline_scenario.analysis.counts.items.DailyCountItem;
 import ch.ethz.matsim.baseline_scenario.analysis.counts.utils.compatibility.DeprecatedDailyReferenceCountsReader;
 import ch.ethz.matsim.baseline_scenario.utils.routing.CarRouting;
+import ch.ethz.matsim.baseline_scenario.utils.routing.landmarks.LandmarkRouterFactory;
+import ch.ethz.matsim.baseline_scenario.utils.routing.landmarks.LandmarkTable;
 
 public class TrafficCountPlanSelector {
+	final private static int DEFAULT_NUMBER_OF_LANDMARKS = 16;
+
 	final private double scaling;
 	final private double rerouting;
 	final private int numberOfThreads;
 	final private int maximumNumberOfIterations;
+	final private int numberOfLandmarks;
 
 	final private Network network;
 	final private Collection<DailyCountItem> countItems;
@@ -42,6 +47,18 @@ public class TrafficCountPlanSelector {
 	public TrafficCountPlanSelector(Network network, Collection<DailyCountItem> countItems, double scaling,
 			double rerouting, int numberOfThreads, String countOutputPath, int maximumNumberOfIterations)
 			throws FileNotFoundException {
+		this(network, countItems, scaling, rerouting, numberOfThreads, countOutputPath, maximumNumberOfIterations,
+				DEFAULT_NUMBER_OF_LANDMARKS);
+	}
+
+	/**
+	 * Reroutes with landmark A*. Without landmarks the search settles the same
+	 * nodes as Dijkstra, which can be used to compare the settled nodes per
+	 * query.
+	 */
+	public TrafficCountPlanSelector(Network network, Collection<DailyCountItem> countItems, double scaling,
+			double rerouting, int numberOfThreads, String countOutputPath, int maximumNumberOfIterations,
+			int numberOfLandmarks) throws FileNotFoundException {
 		this.network = network;
 		this.countItems = countItems;
 		this.scaling = scaling;
@@ -49,6 +66,7 @@ public class TrafficCountPlanSelector {
 		this.numberOfThreads = numberOfThreads;
 		this.countWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(countOutputPath)));
 		this.maximumNumberOfIterations = maximumNumberOfIterations;
+		this.numberOfLandmarks = numberOfLandmarks;
 	}
 
 	public void run(Population population) throws IOException, InterruptedException {
@@ -57,7 +75,11 @@ public class TrafficCountPlanSelector {
 		logger.info("Setting up choice problem ...");
 		CountFittingProblem choiceProblem = new CountFittingProblem(scaling, countItems, persons);
 		TravelTime previousTravelTime = new FreeSpeedTravelTime();
-		CarRouting routing = new CarRouting(numberOfThreads, network);
+
+		logger.info("Computing landmarks ...");
+		LandmarkRouterFactory routerFactory = new LandmarkRouterFactory(
+				LandmarkTable.create(network, numberOfLandmarks));
+		CarRouting routing = new CarRouting(numberOfThreads, network, routerFactory);
 
 		int[] reference = choiceProblem.getReference();
 
@@ -102,6 +124,9 @@ public class TrafficCountPlanSelector {
 			activePersons = persons.subList(start, start + n);
 			routing.run(activePersons, travelTime);
 
+			routerFactory.printStatistics();
+			routerFactory.resetStatistics();
+
 			previousTravelTime = travelTime;
 		}
 
@@ -118,6 +143,7 @@ public class TrafficCountPlanSelector {
 		double rerouting = Double.parseDouble(args[5]);
 		int numberOfThreads = Integer.parseInt(args[6]);
 		int maximumNumberOfIterations = Integer.parseInt(args[7]);
+		int numberOfLandmarks = args.length > 8 ? Integer.parseInt(args[8]) : DEFAULT_NUMBER_OF_LANDMARKS;
 
 		Network network = NetworkUtils.createNetwork();
 		new MatsimNetworkReader(network).readFile(networkInput);
@@ -128,6 +154,6 @@ public class TrafficCountPlanSelector {
 		new PopulationReader(scenario).readFile(populationInput);
 
 		new TrafficCountPlanSelector(network, countItems, scaling, rerouting, numberOfThreads, countOutputPath,
-				maximumNumberOfIterations).run(scenario.getPopulation());
+				maximumNumberOfIterations, numberOfLandmarks).run(scenario.getPopulation());
 	}
 }
@@ -1,24 +1,56 @@
 package ch.ethz.matsim.baseline_scenario.utils.routing;
 
 import java.util.Collection;
+import java.util.Optional;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 
 public class BestResponseCarRouting {
 	final private CarRouting carRouting;
+	final private Optional<StaticPathCache> pathCache;
 	
 	public BestResponseCarRouting(int numberOfThreads, Network network) {
 		this.carRouting = new CarRouting(numberOfThreads, network);
+		this.pathCache = Optional.empty();
+	}
+
+	public BestResponseCarRouting(int numberOfThreads, Network network,
+			LeastCostPathCalculatorFactory pathCalculatorFactory) {
+		this.carRouting = new CarRouting(numberOfThreads, network, pathCalculatorFactory);
+		this.pathCache = Optional.empty();
+	}
+
+	/**
+	 * Free-speed paths are cached in a StaticPathCache with the given memory
+	 * budget in bytes, which is shared by all routing threads. Since free-speed
+	 * travel times do not depend on the departure time, trips can also be
+	 * batched into one shortest path tree per origin (see CarRouting). Batched
+	 * trips bypass the path calculator and the cache. A budget of 0 disables the
+	 * cache.
+	 */
+	public BestResponseCarRouting(int numberOfThreads, Network network,
+			LeastCostPathCalculatorFactory pathCalculatorFactory, long pathCacheMemory, boolean batchByOrigin) {
+		if (pathCacheMemory > 0) {
+			StaticPathCache cache = new StaticPathCache(network, pathCacheMemory);
+			pathCalculatorFactory = new CachingLeastCostPathCalculatorFactory(pathCalculatorFactory, cache);
+			this.pathCache = Optional.of(cache);
+		} else {
+			this.pathCache = Optional.empty();
+		}
+
+		this.carRouting = new CarRouting(numberOfThreads, network, pathCalculatorFactory, batchByOrigin);
 	}
 	
 	public void run(Population population) throws InterruptedException {
-		carRouting.run(population, new FreeSpeedTravelTime());
+		run(population.getPersons().values());
 	}
 
 	public void run(Collection<? extends Person> persons) throws InterruptedException {
 		carRouting.run(persons, new FreeSpeedTravelTime());
+		pathCache.ifPresent(StaticPathCache::printStatistics);
 	}
 }
@@ -0,0 +1,64 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Looks up paths in a StaticPathCache and only asks the delegate on a miss.
+ * Travel time and cost of a cached path are computed along its links from the
+ * departure time.
+ */
+public class CachingLeastCostPathCalculator implements LeastCostPathCalculator {
+	final private LeastCostPathCalculator delegate;
+	final private StaticPathCache cache;
+
+	final private TravelTime travelTime;
+	final private TravelDisutility travelDisutility;
+
+	public CachingLeastCostPathCalculator(LeastCostPathCalculator delegate, StaticPathCache cache,
+			TravelTime travelTime, TravelDisutility travelDisutility) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
+		List<Link> pathLinks = cache.get(fromNode, toNode);
+
+		if (pathLinks == null) {
+			Path path = delegate.calcLeastCostPath(fromNode, toNode, startTime, person, vehicle);
+
+			if (path != null) {
+				cache.put(fromNode, toNode, path.links);
+			}
+
+			return path;
+		}
+
+		List<Node> pathNodes = new ArrayList<>(pathLinks.size() + 1);
+		pathNodes.add(fromNode);
+
+		double time = startTime;
+		double cost = 0.0;
+
+		for (Link link : pathLinks) {
+			pathNodes.add(link.getToNode());
+
+			double linkTravelTime = travelTime.getLinkTravelTime(link, time, person, vehicle);
+			cost += travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += linkTravelTime;
+		}
+
+		return new Path(pathNodes, pathLinks, time - startTime, cost);
+	}
+}
@@ -0,0 +1,33 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Wraps the path calculators of the delegate factory, so that all of them
+ * share one StaticPathCache. Must only be used with time-independent travel
+ * times and the same costs for all calculators.
+ */
+public class CachingLeastCostPathCalculatorFactory implements LeastCostPathCalculatorFactory {
+	final private LeastCostPathCalculatorFactory delegate;
+	final private StaticPathCache cache;
+
+	public CachingLeastCostPathCalculatorFactory(LeastCostPathCalculatorFactory delegate, StaticPathCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelDisutility,
+			TravelTime travelTime) {
+		if (network != cache.getNetwork()) {
+			throw new IllegalArgumentException("The path cache has been created for a different network");
+		}
+
+		return new CachingLeastCostPathCalculator(delegate.createPathCalculator(network, travelDisutility, travelTime),
+				cache, travelTime, travelDisutility);
+	}
+}
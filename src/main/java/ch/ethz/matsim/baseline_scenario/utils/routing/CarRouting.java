@@ -1,15 +1,27 @@
 package ch.ethz.matsim.baseline_scenario.utils.routing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
@@ -18,21 +30,78 @@ import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.MainModeIdentifierImpl;
 import org.matsim.core.router.StageActivityTypesImpl;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
-import org.matsim.core.utils.misc.Counter;
+import org.matsim.core.utils.misc.Time;
 
+import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.ThreadAffineInstances;
+
+/**
+ * Routes the car trips of a population in a fork-join pool with one path
+ * calculator per thread. Persons are routed longest-first by the estimate of
+ * the RoutingCostEstimator, so that no expensive persons are left for the end
+ * of the run.
+ */
 public class CarRouting {
+	final private static Logger logger = Logger.getLogger(CarRouting.class);
+
 	final private int numberOfThreads;
 	final private Network network;
+	final private RoutingCostEstimator estimator;
+	final private LeastCostPathCalculatorFactory pathCalculatorFactory;
+	final private boolean batchByOrigin;
+	final private RoutingCostReport report;
+
+	// Chunks of estimated routing cost per thread, more chunks balance better
+	final private static int CHUNKS_PER_THREAD = 16;
+	final private static int MAXIMUM_CHUNK_SIZE = 10000;
 
 	public CarRouting(int numberOfThreads, Network network) {
+		this(numberOfThreads, network, new DijkstraFactory());
+	}
+
+	public CarRouting(int numberOfThreads, Network network, LeastCostPathCalculatorFactory pathCalculatorFactory) {
+		this(numberOfThreads, network, pathCalculatorFactory, false);
+	}
+
+	/**
+	 * @param batchByOrigin if true, the car trips of every chunk of persons are
+	 *                      grouped by origin node and routed with one shortest
+	 *                      path tree per origin. The tree is computed for the
+	 *                      departure time of the first trip of the group, so this
+	 *                      is only exact for time-independent travel times.
+	 *                      Origins with more than one trip are routed by a plain
+	 *                      Dijkstra tree and never reach the path calculator of
+	 *                      the factory, i.e. neither a contraction hierarchy nor
+	 *                      a path cache is used for them.
+	 */
+	public CarRouting(int numberOfThreads, Network network, LeastCostPathCalculatorFactory pathCalculatorFactory,
+			boolean batchByOrigin) {
+		this(numberOfThreads, network, pathCalculatorFactory, batchByOrigin, null);
+	}
+
+	/**
+	 * @param numberOfThreads if not positive, all available processors are used
+	 * @param report          if not null, the routing time of every plan is
+	 *                        measured and added to the report, which is only done
+	 *                        without batching
+	 */
+	public CarRouting(int numberOfThreads, Network network, LeastCostPathCalculatorFactory pathCalculatorFactory,
+			boolean batchByOrigin, RoutingCostReport report) {
 		this.network = network;
-		this.numberOfThreads = numberOfThreads;
+		this.numberOfThreads = numberOfThreads > 0 ? numberOfThreads : Runtime.getRuntime().availableProcessors();
+		this.pathCalculatorFactory = pathCalculatorFactory;
+		this.batchByOrigin = batchByOrigin;
+		this.report = report;
+		this.estimator = RoutingCostEstimator.createForCar(new StageActivityTypesImpl(),
+				new MainModeIdentifierImpl());
 	}
 
 	public void run(Population population, TravelTime travelTime) throws InterruptedException {
@@ -40,70 +109,346 @@ public class CarRouting {
 	}
 
 	public void run(Collection<? extends Person> persons, TravelTime travelTime) throws InterruptedException {
-		Iterator<? extends Person> personIterator = persons.iterator();
+		List<RoutingUnit> units = createUnits(persons);
+		units.sort((a, b) -> Double.compare(b.estimatedCost, a.estimatedCost));
+
+		// Persons in the order of their units and the offset of every unit
+		List<Person> orderedPersons = new ArrayList<>(persons.size());
+		int[] unitOffsets = new int[units.size() + 1];
 
-		List<Thread> threads = new ArrayList<>(numberOfThreads);
+		// Cumulative estimated cost of the units before every index
+		double[] cumulativeCosts = new double[units.size() + 1];
 
-		final Counter counter = new Counter("", " legs routed");
-		long chunkSize = 10000;
+		for (int i = 0; i < units.size(); i++) {
+			orderedPersons.addAll(units.get(i).persons);
+			unitOffsets[i + 1] = orderedPersons.size();
+			cumulativeCosts[i + 1] = cumulativeCosts[i] + units.get(i).estimatedCost;
+		}
 
-		for (int i = 0; i < numberOfThreads; i++) {
-			LeastCostPathCalculator router = new DijkstraFactory().createPathCalculator(network,
-					new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+		NetworkIndex networkIndex = batchByOrigin ? new NetworkIndex(network) : null;
 
-			threads.add(new Thread(() -> {
-				while (true) {
-					List<Person> tasks = new LinkedList<>();
+		LongAdder numberOfBatchedTrips = new LongAdder();
+		LongAdder numberOfTrees = new LongAdder();
 
-					synchronized (personIterator) {
-						while (personIterator.hasNext() && tasks.size() < chunkSize) {
-							tasks.add(personIterator.next());
-						}
-					}
+		ThreadAffineInstances<Worker> workers = new ThreadAffineInstances<>(
+				() -> new Worker(travelTime, networkIndex));
 
-					if (tasks.size() == 0) {
+		RoutingProgress progress = new RoutingProgress(orderedPersons.size(), cumulativeCosts[units.size()]);
+		double chunkCost = cumulativeCosts[units.size()] / (CHUNKS_PER_THREAD * numberOfThreads);
+
+		RecursiveAction rootTask = new RoutingTask(0, units.size(), chunkCost, cumulativeCosts,
+				(from, to) -> {
+					Worker current = workers.get();
+					List<Person> tasks = orderedPersons.subList(unitOffsets[from], unitOffsets[to]);
+
+					if (batchByOrigin) {
+						routeBatched(tasks, current.router, current.treeRouter, numberOfBatchedTrips,
+								numberOfTrees);
+						progress.add(tasks.size(), cumulativeCosts[to] - cumulativeCosts[from]);
 						return;
 					}
 
-					for (Person person : tasks) {
-						for (Plan plan : person.getPlans()) {
-							for (TripStructureUtils.Trip trip : TripStructureUtils.getTrips(plan,
-									new StageActivityTypesImpl())) {
-								if (trip.getLegsOnly().get(0).getMode().equals(TransportMode.car)) {
-									Id<Link> originId = trip.getOriginActivity().getLinkId();
-									Id<Link> destinationId = trip.getDestinationActivity().getLinkId();
-									double departureTime = trip.getOriginActivity().getEndTime();
-
-									Path path = router.calcLeastCostPath(network.getLinks().get(originId).getToNode(),
-											network.getLinks().get(destinationId).getFromNode(), departureTime, null,
-											null);
-
-									LinkNetworkRouteFactory factory = new LinkNetworkRouteFactory();
-									NetworkRoute route = (NetworkRoute) factory.createRoute(originId, destinationId);
-									route.setLinkIds(originId, NetworkUtils.getLinkIds(path.links), destinationId);
-									route.setTravelTime((int) path.travelTime);
-									route.setTravelCost(path.travelCost);
-									route.setDistance(RouteUtils.calcDistance(route, 1.0, 1.0, network));
-
-									trip.getLegsOnly().get(0).setRoute(route);
+					for (int i = from; i < to; i++) {
+						RoutingUnit unit = units.get(i);
+
+						for (Person person : unit.persons) {
+							for (Plan plan : person.getPlans()) {
+								long startTime = current.report == null ? 0 : System.nanoTime();
+
+								for (TripStructureUtils.Trip trip : getCarTrips(plan)) {
+									routeTrip(trip, current.router);
+								}
+
+								if (current.report != null) {
+									current.report.add(person.getId(), estimator.estimate(plan.getPlanElements()),
+											System.nanoTime() - startTime);
 								}
 							}
 						}
 
-						synchronized (counter) {
-							counter.incCounter();
-						}
+						progress.add(unit.persons.size(), unit.estimatedCost);
 					}
+				});
+
+		ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+
+		try {
+			pool.submit(rootTask).get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		progress.printProgress();
+
+		if (batchByOrigin) {
+			long numberOfSettledNodes = 0;
+
+			for (Worker current : workers.getInstances()) {
+				numberOfSettledNodes += current.treeRouter.getNumberOfSettledNodes();
+			}
+
+			logger.info(String.format("Routed %d car trips in %d shortest path trees, %d settled nodes in trees",
+					numberOfBatchedTrips.sum(), numberOfTrees.sum(), numberOfSettledNodes));
+		} else if (report != null) {
+			for (Worker current : workers.getInstances()) {
+				report.addAll(current.report);
+			}
+
+			report.printSummary();
+		}
+	}
+
+	/**
+	 * Path calculators of one thread of the pool. Routing times are collected in
+	 * a report per worker, which is only merged into the shared report after the
+	 * run, so that the threads do not contend for it.
+	 */
+	private class Worker {
+		final LeastCostPathCalculator router;
+		final OneToManyDijkstra treeRouter;
+		final RoutingCostReport report;
+
+		Worker(TravelTime travelTime, NetworkIndex networkIndex) {
+			TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+			this.router = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
+			this.treeRouter = networkIndex == null ? null
+					: new OneToManyDijkstra(networkIndex, travelTime, travelDisutility);
+			this.report = CarRouting.this.report == null ? null : new RoutingCostReport();
+		}
+	}
+
+	/**
+	 * Persons that are always routed in the same chunk.
+	 */
+	static private class RoutingUnit {
+		final List<Person> persons = new ArrayList<>(1);
+		double estimatedCost = 0.0;
+	}
+
+	/**
+	 * Every person is a unit of its own. In batched mode, all persons whose first
+	 * car trip starts at the same node form one unit, so that the members of a
+	 * household end up in the same chunk and share their shortest path trees.
+	 */
+	private List<RoutingUnit> createUnits(Collection<? extends Person> persons) {
+		List<RoutingUnit> units = new ArrayList<>();
+		Map<Node, RoutingUnit> unitsByOrigin = new HashMap<>();
+
+		for (Person person : persons) {
+			Node originNode = batchByOrigin ? getFirstOriginNode(person) : null;
+			RoutingUnit unit = originNode == null ? null : unitsByOrigin.get(originNode);
+
+			if (unit == null) {
+				unit = new RoutingUnit();
+				units.add(unit);
+
+				if (originNode != null) {
+					unitsByOrigin.put(originNode, unit);
 				}
-			}));
+			}
+
+			unit.persons.add(person);
+
+			for (Plan plan : person.getPlans()) {
+				unit.estimatedCost += estimator.estimate(plan.getPlanElements());
+			}
 		}
 
-		for (Thread thread : threads) {
-			thread.run();
+		return units;
+	}
+
+	private Node getFirstOriginNode(Person person) {
+		for (Plan plan : person.getPlans()) {
+			List<TripStructureUtils.Trip> carTrips = getCarTrips(plan);
+
+			if (carTrips.size() > 0) {
+				return network.getLinks().get(carTrips.get(0).getOriginActivity().getLinkId()).getToNode();
+			}
 		}
 
-		for (Thread thread : threads) {
-			thread.join();
+		return null;
+	}
+
+	private interface ChunkRouter {
+		void route(int from, int to);
+	}
+
+	/**
+	 * Splits a range of the ordered units until the estimated routing cost of a
+	 * chunk is small enough. Since the units are ordered longest-first, the
+	 * chunks at the beginning contain few and the chunks at the end many units.
+	 * Idle threads of the pool steal the remaining halves.
+	 */
+	static private class RoutingTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final private int from;
+		final private int to;
+		final private double chunkCost;
+		final private double[] cumulativeCosts;
+		final private ChunkRouter chunkRouter;
+
+		RoutingTask(int from, int to, double chunkCost, double[] cumulativeCosts, ChunkRouter chunkRouter) {
+			this.from = from;
+			this.to = to;
+			this.chunkCost = chunkCost;
+			this.cumulativeCosts = cumulativeCosts;
+			this.chunkRouter = chunkRouter;
+		}
+
+		@Override
+		protected void compute() {
+			int size = to - from;
+			double cost = cumulativeCosts[to] - cumulativeCosts[from];
+
+			if (size <= 1 || (cost <= chunkCost && size <= MAXIMUM_CHUNK_SIZE)) {
+				chunkRouter.route(from, to);
+				return;
+			}
+
+			// Split at half of the estimated cost, or at half of the persons if it
+			// is too large anyway
+			int split = from + size / 2;
+
+			if (cost > chunkCost) {
+				int index = Arrays.binarySearch(cumulativeCosts, from, to + 1, cumulativeCosts[from] + 0.5 * cost);
+				split = index >= 0 ? index : -index - 1;
+				split = Math.max(from + 1, Math.min(to - 1, split));
+			}
+
+			invokeAll(new RoutingTask(from, split, chunkCost, cumulativeCosts, chunkRouter),
+					new RoutingTask(split, to, chunkCost, cumulativeCosts, chunkRouter));
+		}
+	}
+
+	/**
+	 * Counts the routed persons without locks. The ETA is based on the estimated
+	 * routing cost, since the expensive persons are routed first.
+	 */
+	static private class RoutingProgress {
+		final private static long REPORT_INTERVAL = 10000000000L; // 10s
+
+		final private long numberOfPersons;
+		final private double totalCost;
+		final private long startTime = System.nanoTime();
+
+		final private LongAdder routedPersons = new LongAdder();
+		final private DoubleAdder routedCost = new DoubleAdder();
+		final private AtomicLong nextReportTime = new AtomicLong(startTime + REPORT_INTERVAL);
+
+		RoutingProgress(long numberOfPersons, double totalCost) {
+			this.numberOfPersons = numberOfPersons;
+			this.totalCost = totalCost;
+		}
+
+		void add(long persons, double cost) {
+			routedPersons.add(persons);
+			routedCost.add(cost);
+
+			long now = System.nanoTime();
+			long reportTime = nextReportTime.get();
+
+			if (now >= reportTime && nextReportTime.compareAndSet(reportTime, now + REPORT_INTERVAL)) {
+				printProgress();
+			}
+		}
+
+		void printProgress() {
+			long persons = routedPersons.sum();
+			double elapsedTime = 1e-9 * (System.nanoTime() - startTime);
+
+			double fraction = totalCost > 0.0 ? routedCost.sum() / totalCost
+					: (numberOfPersons == 0 ? 1.0 : (double) persons / numberOfPersons);
+			double remainingTime = fraction > 0.0 ? elapsedTime * (1.0 - fraction) / fraction : 0.0;
+
+			logger.info(String.format("Car routing: %d/%d persons (%.2f%%), %.1f persons/s, ETA: %s", persons,
+					numberOfPersons, numberOfPersons == 0 ? 100.0 : 100.0 * persons / numberOfPersons,
+					elapsedTime > 0.0 ? persons / elapsedTime : 0.0, Time.writeTime(Math.ceil(remainingTime))));
+		}
+	}
+
+	private List<TripStructureUtils.Trip> getCarTrips(Plan plan) {
+		List<TripStructureUtils.Trip> carTrips = new LinkedList<>();
+
+		for (TripStructureUtils.Trip trip : TripStructureUtils.getTrips(plan, new StageActivityTypesImpl())) {
+			if (trip.getLegsOnly().get(0).getMode().equals(TransportMode.car)) {
+				carTrips.add(trip);
+			}
+		}
+
+		return carTrips;
+	}
+
+	/**
+	 * Groups the car trips of the persons by origin node. Origins with only one
+	 * trip are routed by the path calculator, for all others one shortest path
+	 * tree is grown until all destinations of the group are settled.
+	 */
+	private void routeBatched(List<Person> persons, LeastCostPathCalculator router, OneToManyDijkstra treeRouter,
+			LongAdder numberOfBatchedTrips, LongAdder numberOfTrees) {
+		Map<Node, List<TripStructureUtils.Trip>> tripsByOrigin = new HashMap<>();
+
+		for (Person person : persons) {
+			for (Plan plan : person.getPlans()) {
+				for (TripStructureUtils.Trip trip : getCarTrips(plan)) {
+					Node originNode = network.getLinks().get(trip.getOriginActivity().getLinkId()).getToNode();
+					tripsByOrigin.computeIfAbsent(originNode, n -> new LinkedList<>()).add(trip);
+				}
+			}
+		}
+
+		for (Map.Entry<Node, List<TripStructureUtils.Trip>> entry : tripsByOrigin.entrySet()) {
+			List<TripStructureUtils.Trip> trips = entry.getValue();
+
+			if (trips.size() == 1) {
+				routeTrip(trips.get(0), router);
+				continue;
+			}
+
+			Set<Node> destinationNodes = new HashSet<>();
+
+			for (TripStructureUtils.Trip trip : trips) {
+				destinationNodes.add(network.getLinks().get(trip.getDestinationActivity().getLinkId()).getFromNode());
+			}
+
+			treeRouter.run(entry.getKey(), destinationNodes, trips.get(0).getOriginActivity().getEndTime(), null,
+					null);
+
+			for (TripStructureUtils.Trip trip : trips) {
+				Node destinationNode = network.getLinks().get(trip.getDestinationActivity().getLinkId())
+						.getFromNode();
+				setRoute(trip, treeRouter.getPath(destinationNode, trip.getOriginActivity().getEndTime(), null, null));
+			}
+
+			numberOfBatchedTrips.add(trips.size());
+			numberOfTrees.increment();
 		}
 	}
+
+	private void routeTrip(TripStructureUtils.Trip trip, LeastCostPathCalculator router) {
+		Id<Link> originId = trip.getOriginActivity().getLinkId();
+		Id<Link> destinationId = trip.getDestinationActivity().getLinkId();
+		double departureTime = trip.getOriginActivity().getEndTime();
+
+		Path path = router.calcLeastCostPath(network.getLinks().get(originId).getToNode(),
+				network.getLinks().get(destinationId).getFromNode(), departureTime, null, null);
+
+		setRoute(trip, path);
+	}
+
+	private void setRoute(TripStructureUtils.Trip trip, Path path) {
+		Id<Link> originId = trip.getOriginActivity().getLinkId();
+		Id<Link> destinationId = trip.getDestinationActivity().getLinkId();
+
+		LinkNetworkRouteFactory factory = new LinkNetworkRouteFactory();
+		NetworkRoute route = (NetworkRoute) factory.createRoute(originId, destinationId);
+		route.setLinkIds(originId, NetworkUtils.getLinkIds(path.links), destinationId);
+		route.setTravelTime((int) path.travelTime);
+		route.setTravelCost(path.travelCost);
+		route.setDistance(RouteUtils.calcDistance(route, 1.0, 1.0, network));
+
+		trip.getLegsOnly().get(0).setRoute(route);
+	}
 }
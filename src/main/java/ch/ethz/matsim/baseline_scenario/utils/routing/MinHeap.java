@@ -0,0 +1,92 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of nodes with double keys. There is no decrease-key: a node
+ * is pushed again with the lower key and outdated entries are skipped by the
+ * caller when they are polled.
+ */
+public class MinHeap {
+	private double[] keys = new double[64];
+	private int[] nodes = new int[64];
+	private int size = 0;
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public double peekKey() {
+		return keys[0];
+	}
+
+	public int peekNode() {
+		return nodes[0];
+	}
+
+	public void push(double key, int node) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * size);
+			nodes = Arrays.copyOf(nodes, 2 * size);
+		}
+
+		int i = size++;
+
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+
+			if (keys[parent] <= key) {
+				break;
+			}
+
+			keys[i] = keys[parent];
+			nodes[i] = nodes[parent];
+			i = parent;
+		}
+
+		keys[i] = key;
+		nodes[i] = node;
+	}
+
+	/**
+	 * Removes the top entry, whose key and node have to be read before.
+	 */
+	public void pop() {
+		size--;
+
+		if (size == 0) {
+			return;
+		}
+
+		double key = keys[size];
+		int node = nodes[size];
+		int i = 0;
+
+		while (true) {
+			int child = 2 * i + 1;
+
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+
+			if (key <= keys[child]) {
+				break;
+			}
+
+			keys[i] = keys[child];
+			nodes[i] = nodes[child];
+			i = child;
+		}
+
+		keys[i] = key;
+		nodes[i] = node;
+	}
+}
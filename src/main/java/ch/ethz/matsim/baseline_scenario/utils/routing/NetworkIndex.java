@@ -0,0 +1,173 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Numbers the nodes and links of a network in the order of their ids and
+ * keeps the outgoing and incoming links of every node in one array each, so
+ * that searches can work on int indices. Since the numbering only depends on
+ * the ids, it is the same for every index of the same network. The index is
+ * immutable and can be shared by threads and by the routing structures that
+ * are built on it.
+ */
+public class NetworkIndex {
+	final private Network network;
+	final private Node[] nodes;
+	final private Link[] links;
+	final private Map<Id<Node>, Integer> nodeIndices;
+	final private Map<Id<Link>, Integer> linkIndices;
+
+	final private int[] linkFrom;
+	final private int[] linkTo;
+	final private int[] outOffsets;
+	final private int[] outLinks;
+	final private int[] inOffsets;
+	final private int[] inLinks;
+
+	public NetworkIndex(Network network) {
+		this.network = network;
+
+		List<Node> sortedNodes = new ArrayList<>(network.getNodes().values());
+		sortedNodes.sort((a, b) -> a.getId().compareTo(b.getId()));
+
+		List<Link> sortedLinks = new ArrayList<>(network.getLinks().values());
+		sortedLinks.sort((a, b) -> a.getId().compareTo(b.getId()));
+
+		this.nodes = sortedNodes.toArray(new Node[sortedNodes.size()]);
+		this.links = sortedLinks.toArray(new Link[sortedLinks.size()]);
+		this.nodeIndices = new HashMap<>(2 * nodes.length);
+
+		for (int i = 0; i < nodes.length; i++) {
+			nodeIndices.put(nodes[i].getId(), i);
+		}
+
+		this.linkIndices = new HashMap<>(2 * links.length);
+		this.linkFrom = new int[links.length];
+		this.linkTo = new int[links.length];
+
+		for (int i = 0; i < links.length; i++) {
+			linkIndices.put(links[i].getId(), i);
+			linkFrom[i] = nodeIndices.get(links[i].getFromNode().getId());
+			linkTo[i] = nodeIndices.get(links[i].getToNode().getId());
+		}
+
+		this.outOffsets = createOffsets(linkFrom, nodes.length);
+		this.outLinks = createAdjacency(linkFrom, outOffsets);
+		this.inOffsets = createOffsets(linkTo, nodes.length);
+		this.inLinks = createAdjacency(linkTo, inOffsets);
+	}
+
+	static private int[] createOffsets(int[] linkNodes, int numberOfNodes) {
+		int[] offsets = new int[numberOfNodes + 1];
+
+		for (int node : linkNodes) {
+			offsets[node + 1]++;
+		}
+
+		for (int v = 0; v < numberOfNodes; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+
+		return offsets;
+	}
+
+	static private int[] createAdjacency(int[] linkNodes, int[] offsets) {
+		int[] adjacency = new int[linkNodes.length];
+		int[] position = Arrays.copyOf(offsets, offsets.length - 1);
+
+		for (int link = 0; link < linkNodes.length; link++) {
+			adjacency[position[linkNodes[link]]++] = link;
+		}
+
+		return adjacency;
+	}
+
+	public Network getNetwork() {
+		return network;
+	}
+
+	public int getNumberOfNodes() {
+		return nodes.length;
+	}
+
+	public int getNumberOfLinks() {
+		return links.length;
+	}
+
+	public int getNodeIndex(Node node) {
+		int index = findNodeIndex(node);
+
+		if (index < 0) {
+			throw new IllegalArgumentException("Node is not part of the network: " + node.getId());
+		}
+
+		return index;
+	}
+
+	/**
+	 * Returns the index of the node or -1 if it is not part of the network.
+	 */
+	public int findNodeIndex(Node node) {
+		Integer index = nodeIndices.get(node.getId());
+		return index == null ? -1 : index;
+	}
+
+	public int getLinkIndex(Link link) {
+		Integer index = linkIndices.get(link.getId());
+
+		if (index == null) {
+			throw new IllegalArgumentException("Link is not part of the network: " + link.getId());
+		}
+
+		return index;
+	}
+
+	public Node getNode(int index) {
+		return nodes[index];
+	}
+
+	public Link getLink(int index) {
+		return links[index];
+	}
+
+	public int getFromNodeIndex(int link) {
+		return linkFrom[link];
+	}
+
+	public int getToNodeIndex(int link) {
+		return linkTo[link];
+	}
+
+	public int getOutLinksStart(int node) {
+		return outOffsets[node];
+	}
+
+	public int getOutLinksEnd(int node) {
+		return outOffsets[node + 1];
+	}
+
+	public int getOutLink(int position) {
+		return outLinks[position];
+	}
+
+	public int getInLinksStart(int node) {
+		return inOffsets[node];
+	}
+
+	public int getInLinksEnd(int node) {
+		return inOffsets[node + 1];
+	}
+
+	public int getInLink(int position) {
+		return inLinks[position];
+	}
+}
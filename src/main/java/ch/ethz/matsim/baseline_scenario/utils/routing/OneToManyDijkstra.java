@@ -0,0 +1,156 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Grows one shortest path tree from an origin until all given destinations are
+ * settled, so that the paths to all of them are found with one search. The
+ * tree is computed for one departure time. For travel times that depend on the
+ * time of day, the paths are only least cost paths for that departure time.
+ *
+ * An instance keeps the state of the last tree and must only be used by one
+ * thread at a time.
+ */
+public class OneToManyDijkstra {
+	final private NetworkIndex index;
+	final private TravelTime travelTime;
+	final private TravelDisutility travelDisutility;
+
+	final private double[] cost;
+	final private double[] time;
+	final private int[] previousLink;
+	final private int[] reachedStamp;
+	final private int[] settledStamp;
+	final private int[] destinationStamp;
+	private int stamp = 0;
+
+	final private MinHeap heap = new MinHeap();
+	private long numberOfSettledNodes = 0;
+
+	public OneToManyDijkstra(NetworkIndex index, TravelTime travelTime, TravelDisutility travelDisutility) {
+		this.index = index;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+
+		int numberOfNodes = index.getNumberOfNodes();
+		this.cost = new double[numberOfNodes];
+		this.time = new double[numberOfNodes];
+		this.previousLink = new int[numberOfNodes];
+		this.reachedStamp = new int[numberOfNodes];
+		this.settledStamp = new int[numberOfNodes];
+		this.destinationStamp = new int[numberOfNodes];
+	}
+
+	public void run(Node origin, Collection<Node> destinations, double departureTime, Person person,
+			Vehicle vehicle) {
+		stamp++;
+		heap.clear();
+
+		int remainingDestinations = 0;
+
+		for (Node destination : destinations) {
+			int destinationIndex = index.getNodeIndex(destination);
+
+			if (destinationStamp[destinationIndex] != stamp) {
+				destinationStamp[destinationIndex] = stamp;
+				remainingDestinations++;
+			}
+		}
+
+		int originIndex = index.getNodeIndex(origin);
+		reachedStamp[originIndex] = stamp;
+		cost[originIndex] = 0.0;
+		time[originIndex] = departureTime;
+		previousLink[originIndex] = -1;
+		heap.push(0.0, originIndex);
+
+		while (!heap.isEmpty() && remainingDestinations > 0) {
+			double distance = heap.peekKey();
+			int node = heap.peekNode();
+			heap.pop();
+
+			if (settledStamp[node] == stamp || distance > cost[node]) {
+				continue; // Outdated entry
+			}
+
+			settledStamp[node] = stamp;
+			numberOfSettledNodes++;
+
+			if (destinationStamp[node] == stamp) {
+				remainingDestinations--;
+			}
+
+			for (int i = index.getOutLinksStart(node); i < index.getOutLinksEnd(node); i++) {
+				int linkIndex = index.getOutLink(i);
+				int next = index.getToNodeIndex(linkIndex);
+
+				if (settledStamp[next] == stamp) {
+					continue;
+				}
+
+				Link link = index.getLink(linkIndex);
+				double nextCost = distance + travelDisutility.getLinkTravelDisutility(link, time[node], person, vehicle);
+
+				if (reachedStamp[next] != stamp || nextCost < cost[next]) {
+					reachedStamp[next] = stamp;
+					cost[next] = nextCost;
+					time[next] = time[node] + travelTime.getLinkTravelTime(link, time[node], person, vehicle);
+					previousLink[next] = linkIndex;
+					heap.push(nextCost, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the path of the last tree to the destination or null if it has not
+	 * been reached. Travel time and cost are computed along the links from the
+	 * given departure time.
+	 */
+	public Path getPath(Node destination, double departureTime, Person person, Vehicle vehicle) {
+		int node = index.getNodeIndex(destination);
+
+		if (settledStamp[node] != stamp) {
+			return null;
+		}
+
+		List<Link> pathLinks = new ArrayList<>();
+
+		for (; previousLink[node] != -1; node = index.getFromNodeIndex(previousLink[node])) {
+			pathLinks.add(index.getLink(previousLink[node]));
+		}
+
+		Collections.reverse(pathLinks);
+
+		List<Node> pathNodes = new ArrayList<>(pathLinks.size() + 1);
+		pathNodes.add(index.getNode(node));
+
+		double currentTime = departureTime;
+		double pathCost = 0.0;
+
+		for (Link link : pathLinks) {
+			pathNodes.add(link.getToNode());
+
+			double linkTravelTime = travelTime.getLinkTravelTime(link, currentTime, person, vehicle);
+			pathCost += travelDisutility.getLinkTravelDisutility(link, currentTime, person, vehicle);
+			currentTime += linkTravelTime;
+		}
+
+		return new Path(pathNodes, pathLinks, currentTime - departureTime, pathCost);
+	}
+
+	public long getNumberOfSettledNodes() {
+		return numberOfSettledNodes;
+	}
+}
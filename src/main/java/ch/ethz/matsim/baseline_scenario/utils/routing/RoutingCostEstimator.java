@@ -0,0 +1,114 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.router.MainModeIdentifier;
+import org.matsim.core.router.StageActivityTypes;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+
+/**
+ * Estimates how expensive it is to route a plan, in arbitrary units. Every
+ * trip costs a fixed amount depending on its main mode, plus an amount per
+ * kilometer of crowfly distance between origin and destination. Modes without
+ * a cost are free.
+ *
+ * The estimate is only used to order the work, so it only needs to be roughly
+ * proportional to the actual routing time. RoutingCostReport compares both.
+ */
+public class RoutingCostEstimator {
+	final private StageActivityTypes stageActivityTypes;
+	final private MainModeIdentifier mainModeIdentifier;
+	final private ActivityFacilities activityFacilities;
+
+	final private Map<String, Double> costPerTrip;
+	final private Map<String, Double> costPerKilometer;
+
+	/**
+	 * @param activityFacilities used to find the coordinates of activities
+	 *                           without a coordinate, may be null
+	 */
+	public RoutingCostEstimator(StageActivityTypes stageActivityTypes, MainModeIdentifier mainModeIdentifier,
+			ActivityFacilities activityFacilities, Map<String, Double> costPerTrip,
+			Map<String, Double> costPerKilometer) {
+		this.stageActivityTypes = stageActivityTypes;
+		this.mainModeIdentifier = mainModeIdentifier;
+		this.activityFacilities = activityFacilities;
+		this.costPerTrip = costPerTrip;
+		this.costPerKilometer = costPerKilometer;
+	}
+
+	/**
+	 * Estimator for routing all modes. Public transport is the most expensive,
+	 * followed by car; teleported modes only have a small cost per trip.
+	 */
+	static public RoutingCostEstimator createDefault(StageActivityTypes stageActivityTypes,
+			MainModeIdentifier mainModeIdentifier, ActivityFacilities activityFacilities) {
+		Map<String, Double> costPerTrip = new HashMap<>();
+		costPerTrip.put(TransportMode.pt, 4.0);
+		costPerTrip.put(TransportMode.car, 2.0);
+		costPerTrip.put(TransportMode.bike, 1.0);
+		costPerTrip.put(TransportMode.walk, 1.0);
+		costPerTrip.put("outside", 1.0);
+
+		Map<String, Double> costPerKilometer = new HashMap<>();
+		costPerKilometer.put(TransportMode.pt, 1.0);
+		costPerKilometer.put(TransportMode.car, 0.5);
+
+		return new RoutingCostEstimator(stageActivityTypes, mainModeIdentifier, activityFacilities, costPerTrip,
+				costPerKilometer);
+	}
+
+	/**
+	 * Estimator for routing car trips only.
+	 */
+	static public RoutingCostEstimator createForCar(StageActivityTypes stageActivityTypes,
+			MainModeIdentifier mainModeIdentifier) {
+		return new RoutingCostEstimator(stageActivityTypes, mainModeIdentifier, null,
+				Collections.singletonMap(TransportMode.car, 1.0), Collections.singletonMap(TransportMode.car, 0.5));
+	}
+
+	public double estimate(List<? extends PlanElement> plan) {
+		double cost = 0.0;
+
+		for (TripStructureUtils.Trip trip : TripStructureUtils.getTrips(plan, stageActivityTypes)) {
+			String mainMode = mainModeIdentifier.identifyMainMode(trip.getTripElements());
+
+			Double tripCost = costPerTrip.get(mainMode);
+			Double kilometerCost = costPerKilometer.get(mainMode);
+
+			if (tripCost != null) {
+				cost += tripCost;
+			}
+
+			if (kilometerCost != null) {
+				Coord originCoord = getCoord(trip.getOriginActivity());
+				Coord destinationCoord = getCoord(trip.getDestinationActivity());
+
+				if (originCoord != null && destinationCoord != null) {
+					cost += kilometerCost * CoordUtils.calcEuclideanDistance(originCoord, destinationCoord) * 1e-3;
+				}
+			}
+		}
+
+		return cost;
+	}
+
+	private Coord getCoord(Activity activity) {
+		if (activity.getCoord() != null || activityFacilities == null || activity.getFacilityId() == null) {
+			return activity.getCoord();
+		}
+
+		ActivityFacility facility = activityFacilities.getFacilities().get(activity.getFacilityId());
+		return facility == null ? null : facility.getCoord();
+	}
+}
@@ -0,0 +1,112 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Collects the estimated and the actual routing cost of each plan, so that the
+ * RoutingCostEstimator can be calibrated. Records may be added concurrently.
+ */
+public class RoutingCostReport {
+	final private static Logger logger = Logger.getLogger(RoutingCostReport.class);
+
+	final private List<Record> records = new ArrayList<>();
+
+	static private class Record {
+		final Id<Person> personId;
+		final double estimatedCost;
+		final long routingTime;
+
+		Record(Id<Person> personId, double estimatedCost, long routingTime) {
+			this.personId = personId;
+			this.estimatedCost = estimatedCost;
+			this.routingTime = routingTime;
+		}
+	}
+
+	/**
+	 * @param routingTime actual routing time in nanoseconds
+	 */
+	public synchronized void add(Id<Person> personId, double estimatedCost, long routingTime) {
+		records.add(new Record(personId, estimatedCost, routingTime));
+	}
+
+	public synchronized void addAll(RoutingCostReport other) {
+		synchronized (other) {
+			records.addAll(other.records);
+		}
+	}
+
+	public synchronized int size() {
+		return records.size();
+	}
+
+	/**
+	 * Logs the total estimated cost and routing time, the routing time per unit
+	 * of estimated cost (least squares through the origin) and the correlation
+	 * between estimate and routing time.
+	 */
+	public synchronized void printSummary() {
+		if (records.size() == 0) {
+			return;
+		}
+
+		double sumEstimate = 0.0;
+		double sumTime = 0.0;
+		double sumEstimateSquared = 0.0;
+		double sumTimeSquared = 0.0;
+		double sumProduct = 0.0;
+
+		for (Record record : records) {
+			double time = record.routingTime * 1e-6;
+
+			sumEstimate += record.estimatedCost;
+			sumTime += time;
+			sumEstimateSquared += record.estimatedCost * record.estimatedCost;
+			sumTimeSquared += time * time;
+			sumProduct += record.estimatedCost * time;
+		}
+
+		int n = records.size();
+		double covariance = sumProduct - sumEstimate * sumTime / n;
+		double estimateVariance = sumEstimateSquared - sumEstimate * sumEstimate / n;
+		double timeVariance = sumTimeSquared - sumTime * sumTime / n;
+
+		double correlation = estimateVariance > 0.0 && timeVariance > 0.0
+				? covariance / Math.sqrt(estimateVariance * timeVariance)
+				: Double.NaN;
+		double timePerCost = sumEstimateSquared > 0.0 ? sumProduct / sumEstimateSquared : Double.NaN;
+
+		logger.info(String.format(
+				"Routing cost of %d plans: estimated %.2f, actual %.2fs, %.4fms per unit, correlation %.3f", n,
+				sumEstimate, sumTime * 1e-3, timePerCost, correlation));
+	}
+
+	public synchronized void write(File path) {
+		try {
+			BufferedWriter writer = IOUtils.getBufferedWriter(path.getPath());
+
+			writer.write(String.join(";", new String[] { "person_id", "estimated_cost", "routing_time_ms" }) + "\n");
+
+			for (Record record : records) {
+				writer.write(String.join(";",
+						new String[] { record.personId.toString(), String.valueOf(record.estimatedCost),
+								String.valueOf(record.routingTime * 1e-6) })
+						+ "\n");
+			}
+
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Cache of least cost paths by origin and destination node, which is only
+ * valid if the link costs do not depend on the departure time, e.g. for the
+ * FreeSpeedTravelTime. Paths are stored as arrays of the link indices of a
+ * NetworkIndex.
+ *
+ * The cache is split into segments with their own lock and LRU order, so that
+ * many routers can share it. Every segment evicts its least recently used
+ * paths once its part of the memory budget is exceeded.
+ */
+public class StaticPathCache {
+	final private static Logger logger = Logger.getLogger(StaticPathCache.class);
+
+	final private static int NUMBER_OF_SEGMENTS = 16;
+
+	// Approximate size of a map entry, its key and the array header
+	final private static long ENTRY_OVERHEAD = 96;
+
+	final private NetworkIndex index;
+
+	final private Segment[] segments = new Segment[NUMBER_OF_SEGMENTS];
+	final private long segmentMemoryBudget;
+
+	final private LongAdder hits = new LongAdder();
+	final private LongAdder misses = new LongAdder();
+
+	static private class Segment {
+		final LinkedHashMap<Long, int[]> paths = new LinkedHashMap<>(16, 0.75f, true);
+		long memory = 0;
+	}
+
+	/**
+	 * @param memoryBudget approximate number of bytes for all cached paths
+	 */
+	public StaticPathCache(Network network, long memoryBudget) {
+		this(new NetworkIndex(network), memoryBudget);
+	}
+
+	/**
+	 * @param memoryBudget approximate number of bytes for all cached paths
+	 */
+	public StaticPathCache(NetworkIndex index, long memoryBudget) {
+		this.index = index;
+		this.segmentMemoryBudget = memoryBudget / NUMBER_OF_SEGMENTS;
+
+		for (int i = 0; i < NUMBER_OF_SEGMENTS; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	public Network getNetwork() {
+		return index.getNetwork();
+	}
+
+	private long createKey(Node fromNode, Node toNode) {
+		int fromIndex = index.findNodeIndex(fromNode);
+		int toIndex = index.findNodeIndex(toNode);
+
+		if (fromIndex < 0 || toIndex < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Nodes %s and %s must be part of the network of the path cache", fromNode.getId(), toNode.getId()));
+		}
+
+		return ((long) fromIndex << 32) | toIndex;
+	}
+
+	private Segment getSegment(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return segments[(int) (hash >>> 60) & (NUMBER_OF_SEGMENTS - 1)];
+	}
+
+	/**
+	 * Returns the links of the cached path or null.
+	 */
+	public List<Link> get(Node fromNode, Node toNode) {
+		long key = createKey(fromNode, toNode);
+		Segment segment = getSegment(key);
+		int[] path;
+
+		synchronized (segment) {
+			path = segment.paths.get(key);
+		}
+
+		if (path == null) {
+			misses.increment();
+			long numberOfMisses = misses.sum();
+
+			if (numberOfMisses >= 1024 && Long.bitCount(numberOfMisses) == 1) {
+				printStatistics();
+			}
+
+			return null;
+		}
+
+		hits.increment();
+		List<Link> pathLinks = new ArrayList<>(path.length);
+
+		for (int linkIndex : path) {
+			pathLinks.add(index.getLink(linkIndex));
+		}
+
+		return pathLinks;
+	}
+
+	public void put(Node fromNode, Node toNode, List<Link> pathLinks) {
+		long key = createKey(fromNode, toNode);
+		int[] path = new int[pathLinks.size()];
+
+		for (int i = 0; i < path.length; i++) {
+			path[i] = index.getLinkIndex(pathLinks.get(i));
+		}
+
+		Segment segment = getSegment(key);
+
+		synchronized (segment) {
+			int[] previous = segment.paths.put(key, path);
+
+			if (previous != null) {
+				segment.memory -= getMemory(previous);
+			}
+
+			segment.memory += getMemory(path);
+			Iterator<int[]> iterator = segment.paths.values().iterator();
+
+			while (segment.memory > segmentMemoryBudget && iterator.hasNext()) {
+				segment.memory -= getMemory(iterator.next());
+				iterator.remove();
+			}
+		}
+	}
+
+	static private long getMemory(int[] path) {
+		return ENTRY_OVERHEAD + 4L * path.length;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long numberOfHits = getHits();
+		long total = numberOfHits + getMisses();
+		return total == 0 ? 0.0 : (double) numberOfHits / total;
+	}
+
+	public int size() {
+		int size = 0;
+
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.paths.size();
+			}
+		}
+
+		return size;
+	}
+
+	public long getMemory() {
+		long memory = 0;
+
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				memory += segment.memory;
+			}
+		}
+
+		return memory;
+	}
+
+	public void printStatistics() {
+		logger.info(String.format("Static path cache: %d paths, %.1f MB, %d hits, %d misses, hit rate %.2f%%", size(),
+				getMemory() / 1e6, getHits(), getMisses(), 100.0 * getHitRate()));
+	}
+}
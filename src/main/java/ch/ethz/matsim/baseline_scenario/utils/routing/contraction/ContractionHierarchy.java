@@ -0,0 +1,173 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.contraction;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy of a static directed graph with nodes 0..n-1.
+ *
+ * Every edge is either an original link (with a link index) or a shortcut that
+ * replaces two consecutive edges via a node of lower rank. Edges towards
+ * higher ranked nodes form the upward graph which is searched from the origin;
+ * edges coming from higher ranked nodes form the downward graph which is
+ * searched backwards from the destination. The hierarchy is immutable and can
+ * be shared by any number of ContractionHierarchyQuery instances.
+ */
+public class ContractionHierarchy {
+	final private static int FORMAT_VERSION = 1;
+
+	final int numberOfNodes;
+	final int numberOfLinks;
+	final int[] rank;
+
+	final int[] edgeFrom;
+	final int[] edgeTo;
+	final int[] edgeLink; // -1 for shortcuts
+	final int[] edgeFirst; // First replaced edge of a shortcut
+	final int[] edgeSecond; // Second replaced edge of a shortcut
+	final double[] edgeCost;
+
+	// Upward edges by origin node, downward edges by destination node
+	final int[] upOffsets;
+	final int[] upEdges;
+	final int[] downOffsets;
+	final int[] downEdges;
+
+	ContractionHierarchy(int numberOfNodes, int numberOfLinks, int[] rank, int numberOfEdges, int[] edgeFrom,
+			int[] edgeTo, int[] edgeLink, int[] edgeFirst, int[] edgeSecond, double[] edgeCost) {
+		this.numberOfNodes = numberOfNodes;
+		this.numberOfLinks = numberOfLinks;
+		this.rank = rank;
+		this.edgeFrom = trim(edgeFrom, numberOfEdges);
+		this.edgeTo = trim(edgeTo, numberOfEdges);
+		this.edgeLink = trim(edgeLink, numberOfEdges);
+		this.edgeFirst = trim(edgeFirst, numberOfEdges);
+		this.edgeSecond = trim(edgeSecond, numberOfEdges);
+		this.edgeCost = edgeCost.length == numberOfEdges ? edgeCost : Arrays.copyOf(edgeCost, numberOfEdges);
+
+		this.upOffsets = new int[numberOfNodes + 1];
+		this.downOffsets = new int[numberOfNodes + 1];
+
+		for (int e = 0; e < numberOfEdges; e++) {
+			if (isUpward(e)) {
+				upOffsets[edgeFrom[e] + 1]++;
+			} else {
+				downOffsets[edgeTo[e] + 1]++;
+			}
+		}
+
+		for (int v = 0; v < numberOfNodes; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+
+		this.upEdges = new int[upOffsets[numberOfNodes]];
+		this.downEdges = new int[downOffsets[numberOfNodes]];
+
+		int[] upPosition = Arrays.copyOf(upOffsets, numberOfNodes);
+		int[] downPosition = Arrays.copyOf(downOffsets, numberOfNodes);
+
+		for (int e = 0; e < numberOfEdges; e++) {
+			if (isUpward(e)) {
+				upEdges[upPosition[edgeFrom[e]]++] = e;
+			} else {
+				downEdges[downPosition[edgeTo[e]]++] = e;
+			}
+		}
+	}
+
+	static private int[] trim(int[] values, int size) {
+		return values.length == size ? values : Arrays.copyOf(values, size);
+	}
+
+	private boolean isUpward(int edge) {
+		return rank[edgeTo[edge]] > rank[edgeFrom[edge]];
+	}
+
+	/**
+	 * Contracts the graph given by the links. Links with the same origin and
+	 * destination node (loops) are ignored.
+	 */
+	static public ContractionHierarchy build(int numberOfNodes, int[] linkFrom, int[] linkTo, double[] linkCost) {
+		return new ContractionHierarchyBuilder(numberOfNodes, linkFrom, linkTo, linkCost).build();
+	}
+
+	public int getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	public int getNumberOfLinks() {
+		return numberOfLinks;
+	}
+
+	public int getNumberOfShortcuts() {
+		int numberOfShortcuts = 0;
+
+		for (int link : edgeLink) {
+			if (link < 0) {
+				numberOfShortcuts++;
+			}
+		}
+
+		return numberOfShortcuts;
+	}
+
+	public void write(DataOutputStream output) throws IOException {
+		output.writeInt(FORMAT_VERSION);
+		output.writeInt(numberOfNodes);
+		output.writeInt(numberOfLinks);
+		output.writeInt(edgeFrom.length);
+
+		for (int v = 0; v < numberOfNodes; v++) {
+			output.writeInt(rank[v]);
+		}
+
+		for (int e = 0; e < edgeFrom.length; e++) {
+			output.writeInt(edgeFrom[e]);
+			output.writeInt(edgeTo[e]);
+			output.writeInt(edgeLink[e]);
+			output.writeInt(edgeFirst[e]);
+			output.writeInt(edgeSecond[e]);
+			output.writeDouble(edgeCost[e]);
+		}
+	}
+
+	static public ContractionHierarchy read(DataInputStream input) throws IOException {
+		int version = input.readInt();
+
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported contraction hierarchy format: " + version);
+		}
+
+		int numberOfNodes = input.readInt();
+		int numberOfLinks = input.readInt();
+		int numberOfEdges = input.readInt();
+
+		int[] rank = new int[numberOfNodes];
+
+		for (int v = 0; v < numberOfNodes; v++) {
+			rank[v] = input.readInt();
+		}
+
+		int[] edgeFrom = new int[numberOfEdges];
+		int[] edgeTo = new int[numberOfEdges];
+		int[] edgeLink = new int[numberOfEdges];
+		int[] edgeFirst = new int[numberOfEdges];
+		int[] edgeSecond = new int[numberOfEdges];
+		double[] edgeCost = new double[numberOfEdges];
+
+		for (int e = 0; e < numberOfEdges; e++) {
+			edgeFrom[e] = input.readInt();
+			edgeTo[e] = input.readInt();
+			edgeLink[e] = input.readInt();
+			edgeFirst[e] = input.readInt();
+			edgeSecond[e] = input.readInt();
+			edgeCost[e] = input.readDouble();
+		}
+
+		return new ContractionHierarchy(numberOfNodes, numberOfLinks, rank, numberOfEdges, edgeFrom, edgeTo,
+				edgeLink, edgeFirst, edgeSecond, edgeCost);
+	}
+}
@@ -0,0 +1,401 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.contraction;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.MinHeap;
+
+/**
+ * Contracts nodes one by one in the order of their priority, which is the
+ * edge difference (shortcuts added minus edges removed) plus the number of
+ * already contracted neighbors. Priorities are updated lazily and for the
+ * neighbors of every contracted node.
+ *
+ * Shortcuts are only added if a local witness search cannot find a path of
+ * at most the same cost that avoids the contracted node. The witness search is
+ * limited, so some unnecessary shortcuts may be added, which does not affect
+ * correctness.
+ */
+class ContractionHierarchyBuilder {
+	final private static Logger logger = Logger.getLogger(ContractionHierarchyBuilder.class);
+
+	final private static int CONTRACTION_SETTLED_LIMIT = 500;
+	final private static int SIMULATION_SETTLED_LIMIT = 50;
+	final private static int PRIORITY_OFFSET = 1 << 30;
+
+	final private int numberOfNodes;
+	final private int numberOfLinks;
+
+	// Edges, including shortcuts
+	private int numberOfEdges = 0;
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private int[] edgeLink;
+	private int[] edgeFirst;
+	private int[] edgeSecond;
+	private double[] edgeCost;
+
+	// Adjacency of the remaining graph, edges to contracted nodes are skipped
+	final private int[][] outEdges;
+	final private int[] outSizes;
+	final private int[][] inEdges;
+	final private int[] inSizes;
+
+	final private boolean[] contracted;
+	final private int[] rank;
+	final private int[] priority;
+	final private int[] deletedNeighbors;
+
+	// Temporary state of a contraction
+	private int stamp = 0;
+	final private int[] inMark;
+	final private int[] inIndex;
+	final private int[] outMark;
+	final private int[] outIndex;
+	private int[] candidateIn = new int[16];
+	private int[] candidateOut = new int[16];
+	private int numberOfCandidateIn;
+	private int numberOfCandidateOut;
+
+	// Temporary state of a witness search
+	final private double[] witnessDistance;
+	final private int[] witnessSettled;
+	private int[] touched = new int[64];
+	private int numberOfTouched = 0;
+	final private MinHeap heap = new MinHeap();
+
+	ContractionHierarchyBuilder(int numberOfNodes, int[] linkFrom, int[] linkTo, double[] linkCost) {
+		this.numberOfNodes = numberOfNodes;
+		this.numberOfLinks = linkFrom.length;
+
+		int capacity = Math.max(16, 2 * numberOfLinks);
+		this.edgeFrom = new int[capacity];
+		this.edgeTo = new int[capacity];
+		this.edgeLink = new int[capacity];
+		this.edgeFirst = new int[capacity];
+		this.edgeSecond = new int[capacity];
+		this.edgeCost = new double[capacity];
+
+		this.outEdges = new int[numberOfNodes][];
+		this.outSizes = new int[numberOfNodes];
+		this.inEdges = new int[numberOfNodes][];
+		this.inSizes = new int[numberOfNodes];
+
+		this.contracted = new boolean[numberOfNodes];
+		this.rank = new int[numberOfNodes];
+		this.priority = new int[numberOfNodes];
+		this.deletedNeighbors = new int[numberOfNodes];
+
+		this.inMark = new int[numberOfNodes];
+		this.inIndex = new int[numberOfNodes];
+		this.outMark = new int[numberOfNodes];
+		this.outIndex = new int[numberOfNodes];
+
+		this.witnessDistance = new double[numberOfNodes];
+		this.witnessSettled = new int[numberOfNodes];
+		Arrays.fill(witnessDistance, Double.POSITIVE_INFINITY);
+
+		for (int link = 0; link < numberOfLinks; link++) {
+			if (linkFrom[link] != linkTo[link]) {
+				addEdge(linkFrom[link], linkTo[link], link, -1, -1, linkCost[link]);
+			}
+		}
+	}
+
+	private void addEdge(int from, int to, int link, int first, int second, double cost) {
+		if (numberOfEdges == edgeFrom.length) {
+			int capacity = 2 * numberOfEdges;
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+			edgeLink = Arrays.copyOf(edgeLink, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+			edgeCost = Arrays.copyOf(edgeCost, capacity);
+		}
+
+		int edge = numberOfEdges++;
+		edgeFrom[edge] = from;
+		edgeTo[edge] = to;
+		edgeLink[edge] = link;
+		edgeFirst[edge] = first;
+		edgeSecond[edge] = second;
+		edgeCost[edge] = cost;
+
+		outEdges[from] = append(outEdges[from], outSizes[from]++, edge);
+		inEdges[to] = append(inEdges[to], inSizes[to]++, edge);
+	}
+
+	static private int[] append(int[] values, int index, int value) {
+		if (values == null) {
+			values = new int[4];
+		} else if (index == values.length) {
+			values = Arrays.copyOf(values, 2 * index);
+		}
+
+		values[index] = value;
+		return values;
+	}
+
+	ContractionHierarchy build() {
+		PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, numberOfNodes));
+
+		for (int v = 0; v < numberOfNodes; v++) {
+			priority[v] = computePriority(v);
+			queue.add(encode(priority[v], v));
+		}
+
+		int nextRank = 0;
+		int nextReport = 1;
+
+		while (!queue.isEmpty()) {
+			long entry = queue.poll();
+			int v = (int) (entry & 0xFFFFFFFFL);
+
+			if (contracted[v] || decodePriority(entry) != priority[v]) {
+				continue; // Outdated entry
+			}
+
+			int updatedPriority = computePriority(v);
+
+			if (updatedPriority > priority[v] && !queue.isEmpty() && updatedPriority > decodePriority(queue.peek())) {
+				priority[v] = updatedPriority;
+				queue.add(encode(updatedPriority, v));
+				continue;
+			}
+
+			contract(v, false);
+			contracted[v] = true;
+			rank[v] = nextRank++;
+
+			// The candidates of the contraction are exactly the remaining neighbors
+			int[] neighbors = new int[numberOfCandidateIn + numberOfCandidateOut];
+			int numberOfNeighbors = 0;
+
+			for (int i = 0; i < numberOfCandidateIn; i++) {
+				neighbors[numberOfNeighbors++] = edgeFrom[candidateIn[i]];
+			}
+
+			for (int i = 0; i < numberOfCandidateOut; i++) {
+				int w = edgeTo[candidateOut[i]];
+
+				if (inMark[w] != stamp) {
+					neighbors[numberOfNeighbors++] = w;
+				}
+			}
+
+			for (int i = 0; i < numberOfNeighbors; i++) {
+				int neighbor = neighbors[i];
+				deletedNeighbors[neighbor]++;
+				priority[neighbor] = computePriority(neighbor);
+				queue.add(encode(priority[neighbor], neighbor));
+			}
+
+			if (nextRank >= nextReport * (numberOfNodes / 10) && numberOfNodes >= 10) {
+				logger.info(String.format("Contracted %d/%d nodes, %d edges", nextRank, numberOfNodes, numberOfEdges));
+				nextReport++;
+			}
+		}
+
+		return new ContractionHierarchy(numberOfNodes, numberOfLinks, rank, numberOfEdges, edgeFrom, edgeTo,
+				edgeLink, edgeFirst, edgeSecond, edgeCost);
+	}
+
+	static private long encode(int priority, int node) {
+		return ((long) (priority + PRIORITY_OFFSET) << 32) | node;
+	}
+
+	static private int decodePriority(long entry) {
+		return (int) (entry >>> 32) - PRIORITY_OFFSET;
+	}
+
+	private int computePriority(int v) {
+		int numberOfShortcuts = contract(v, true);
+		return numberOfShortcuts - numberOfCandidateIn - numberOfCandidateOut + deletedNeighbors[v];
+	}
+
+	/**
+	 * Collects the cheapest edge from every remaining in-neighbor and to every
+	 * remaining out-neighbor of v, and adds (or only counts) the shortcuts that
+	 * are needed between them.
+	 */
+	private int contract(int v, boolean simulate) {
+		removeContractedEdges(v);
+		stamp++;
+		numberOfCandidateIn = 0;
+		numberOfCandidateOut = 0;
+
+		for (int i = 0; i < inSizes[v]; i++) {
+			int edge = inEdges[v][i];
+			int u = edgeFrom[edge];
+
+			if (contracted[u]) {
+				continue;
+			}
+
+			if (inMark[u] == stamp) {
+				if (edgeCost[edge] < edgeCost[candidateIn[inIndex[u]]]) {
+					candidateIn[inIndex[u]] = edge;
+				}
+			} else {
+				inMark[u] = stamp;
+				inIndex[u] = numberOfCandidateIn;
+				candidateIn = append(candidateIn, numberOfCandidateIn++, edge);
+			}
+		}
+
+		double maximumOutCost = 0.0;
+
+		for (int i = 0; i < outSizes[v]; i++) {
+			int edge = outEdges[v][i];
+			int w = edgeTo[edge];
+
+			if (contracted[w]) {
+				continue;
+			}
+
+			if (outMark[w] == stamp) {
+				if (edgeCost[edge] < edgeCost[candidateOut[outIndex[w]]]) {
+					candidateOut[outIndex[w]] = edge;
+				}
+			} else {
+				outMark[w] = stamp;
+				outIndex[w] = numberOfCandidateOut;
+				candidateOut = append(candidateOut, numberOfCandidateOut++, edge);
+			}
+
+			maximumOutCost = Math.max(maximumOutCost, edgeCost[edge]);
+		}
+
+		int numberOfShortcuts = 0;
+
+		// Shortcuts may be added below, so the candidates are copied first
+		int[] inCandidates = Arrays.copyOf(candidateIn, numberOfCandidateIn);
+		int[] outCandidates = Arrays.copyOf(candidateOut, numberOfCandidateOut);
+
+		for (int inEdge : inCandidates) {
+			int u = edgeFrom[inEdge];
+
+			witnessSearch(u, v, edgeCost[inEdge] + maximumOutCost, outCandidates.length,
+					simulate ? SIMULATION_SETTLED_LIMIT : CONTRACTION_SETTLED_LIMIT);
+
+			for (int outEdge : outCandidates) {
+				int w = edgeTo[outEdge];
+
+				if (w == u) {
+					continue;
+				}
+
+				double cost = edgeCost[inEdge] + edgeCost[outEdge];
+
+				if (witnessDistance[w] > cost) {
+					numberOfShortcuts++;
+
+					if (!simulate) {
+						addEdge(u, w, -1, inEdge, outEdge, cost);
+					}
+				}
+			}
+
+			resetWitnessSearch();
+		}
+
+		return numberOfShortcuts;
+	}
+
+	/**
+	 * Dijkstra from origin in the remaining graph without the contracted node.
+	 * Stops at maximumCost, after settledLimit nodes or when all out-neighbors of
+	 * the contracted node are settled.
+	 */
+	private void witnessSearch(int origin, int excluded, double maximumCost, int numberOfTargets, int settledLimit) {
+		heap.clear();
+		witnessDistance[origin] = 0.0;
+		touch(origin);
+		heap.push(0.0, origin);
+
+		int numberOfSettled = 0;
+		int remainingTargets = numberOfTargets;
+
+		while (!heap.isEmpty()) {
+			double distance = heap.peekKey();
+			int node = heap.peekNode();
+			heap.pop();
+
+			if (distance > witnessDistance[node] || witnessSettled[node] == stamp) {
+				continue;
+			}
+
+			if (distance > maximumCost || numberOfSettled >= settledLimit) {
+				break;
+			}
+
+			witnessSettled[node] = stamp;
+			numberOfSettled++;
+
+			if (outMark[node] == stamp && --remainingTargets == 0) {
+				break;
+			}
+
+			removeContractedEdges(node);
+
+			for (int i = 0; i < outSizes[node]; i++) {
+				int edge = outEdges[node][i];
+				int next = edgeTo[edge];
+
+				if (next == excluded) {
+					continue;
+				}
+
+				double nextDistance = distance + edgeCost[edge];
+
+				if (nextDistance < witnessDistance[next]) {
+					if (witnessDistance[next] == Double.POSITIVE_INFINITY) {
+						touch(next);
+					}
+
+					witnessDistance[next] = nextDistance;
+					heap.push(nextDistance, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the edges from and to contracted nodes from the adjacency of v.
+	 */
+	private void removeContractedEdges(int v) {
+		int size = 0;
+
+		for (int i = 0; i < outSizes[v]; i++) {
+			if (!contracted[edgeTo[outEdges[v][i]]]) {
+				outEdges[v][size++] = outEdges[v][i];
+			}
+		}
+
+		outSizes[v] = size;
+		size = 0;
+
+		for (int i = 0; i < inSizes[v]; i++) {
+			if (!contracted[edgeFrom[inEdges[v][i]]]) {
+				inEdges[v][size++] = inEdges[v][i];
+			}
+		}
+
+		inSizes[v] = size;
+	}
+
+	private void touch(int node) {
+		touched = append(touched, numberOfTouched++, node);
+	}
+
+	private void resetWitnessSearch() {
+		for (int i = 0; i < numberOfTouched; i++) {
+			witnessDistance[touched[i]] = Double.POSITIVE_INFINITY;
+			witnessSettled[touched[i]] = 0;
+		}
+
+		numberOfTouched = 0;
+	}
+}
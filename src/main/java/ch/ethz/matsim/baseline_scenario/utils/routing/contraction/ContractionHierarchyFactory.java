@@ -0,0 +1,197 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.contraction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.NetworkIndex;
+
+/**
+ * Creates ContractionHierarchyRouters. The hierarchy is built once from the
+ * link costs of the travel disutility at time zero and shared by all routers
+ * that are created for the same network and costs, so this is only a
+ * replacement for the Dijkstra if the costs do not depend on the time, as with
+ * the FreeSpeedTravelTime.
+ *
+ * If a cache directory is given, hierarchies are stored there in a file named
+ * by a hash of the network structure and the link costs, and loaded again
+ * instead of contracting the same network twice.
+ */
+public class ContractionHierarchyFactory implements LeastCostPathCalculatorFactory {
+	final private static Logger logger = Logger.getLogger(ContractionHierarchyFactory.class);
+
+	final private Optional<File> cacheDirectory;
+	private Preprocessing latest = null;
+
+	public ContractionHierarchyFactory() {
+		this.cacheDirectory = Optional.empty();
+	}
+
+	public ContractionHierarchyFactory(File cacheDirectory) {
+		this.cacheDirectory = Optional.of(cacheDirectory);
+	}
+
+	static private class Preprocessing {
+		NetworkIndex index;
+		double[] costs;
+		ContractionHierarchy hierarchy;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(Network network,
+			TravelDisutility travelDisutility, TravelTime travelTime) {
+		if (latest == null || latest.index.getNetwork() != network) {
+			latest = preprocess(new NetworkIndex(network), travelDisutility);
+		} else if (!Arrays.equals(latest.costs, computeCosts(latest.index, travelDisutility))) {
+			latest = preprocess(latest.index, travelDisutility);
+		}
+
+		return new ContractionHierarchyRouter(latest.index, latest.hierarchy, travelTime, travelDisutility);
+	}
+
+	static private double[] computeCosts(NetworkIndex index, TravelDisutility travelDisutility) {
+		double[] costs = new double[index.getNumberOfLinks()];
+
+		for (int i = 0; i < costs.length; i++) {
+			Link link = index.getLink(i);
+			costs[i] = travelDisutility.getLinkTravelDisutility(link, 0.0, null, null);
+
+			if (!(costs[i] >= 0.0) || Double.isInfinite(costs[i])) {
+				throw new IllegalStateException(String.format("Invalid cost for link %s: %f", link.getId(), costs[i]));
+			}
+		}
+
+		return costs;
+	}
+
+	private Preprocessing preprocess(NetworkIndex index, TravelDisutility travelDisutility) {
+		int numberOfNodes = index.getNumberOfNodes();
+		int numberOfLinks = index.getNumberOfLinks();
+
+		Preprocessing preprocessing = new Preprocessing();
+		preprocessing.index = index;
+		preprocessing.costs = computeCosts(index, travelDisutility);
+
+		int[] linkFrom = new int[numberOfLinks];
+		int[] linkTo = new int[numberOfLinks];
+
+		for (int i = 0; i < numberOfLinks; i++) {
+			linkFrom[i] = index.getFromNodeIndex(i);
+			linkTo[i] = index.getToNodeIndex(i);
+		}
+
+		Optional<File> cacheFile = cacheDirectory.map(directory -> new File(directory,
+				"contraction_hierarchy_" + computeHash(index, linkFrom, linkTo, preprocessing.costs) + ".bin"));
+
+		if (cacheFile.isPresent() && cacheFile.get().exists()) {
+			logger.info("Loading contraction hierarchy from cache: " + cacheFile.get().getPath());
+			preprocessing.hierarchy = load(cacheFile.get());
+		} else {
+			logger.info(String.format("Contracting network with %d nodes and %d links ...", numberOfNodes,
+					numberOfLinks));
+			preprocessing.hierarchy = ContractionHierarchy.build(numberOfNodes, linkFrom, linkTo,
+					preprocessing.costs);
+			logger.info(String.format("Contracted network with %d shortcuts",
+					preprocessing.hierarchy.getNumberOfShortcuts()));
+
+			if (cacheFile.isPresent()) {
+				save(cacheFile.get(), preprocessing.hierarchy);
+				logger.info("Saved contraction hierarchy to cache: " + cacheFile.get().getPath());
+			}
+		}
+
+		return preprocessing;
+	}
+
+	static private String computeHash(NetworkIndex index, int[] linkFrom, int[] linkTo, double[] costs) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+			for (int i = 0; i < index.getNumberOfNodes(); i++) {
+				digest.update(index.getNode(i).getId().toString().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+
+			for (int i = 0; i < index.getNumberOfLinks(); i++) {
+				digest.update(index.getLink(i).getId().toString().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+
+				buffer.clear();
+				buffer.putInt(linkFrom[i]).putInt(linkTo[i]);
+				digest.update(buffer.array());
+
+				buffer.clear();
+				buffer.putLong(Double.doubleToLongBits(costs[i]));
+				digest.update(buffer.array());
+			}
+
+			StringBuilder builder = new StringBuilder();
+
+			for (byte value : digest.digest()) {
+				builder.append(String.format("%02x", value));
+			}
+
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static private ContractionHierarchy load(File cacheFile) {
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			return ContractionHierarchy.read(input);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the hierarchy to a temporary file next to the cache file and renames
+	 * it, so that an interrupted run or a concurrent reader never sees a partial
+	 * file under the final name.
+	 */
+	static private void save(File cacheFile, ContractionHierarchy hierarchy) {
+		File temporaryFile = null;
+
+		try {
+			temporaryFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+				hierarchy.write(output);
+			}
+
+			Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			if (temporaryFile != null) {
+				temporaryFile.delete();
+			}
+
+			throw new RuntimeException(e);
+		}
+	}
+}
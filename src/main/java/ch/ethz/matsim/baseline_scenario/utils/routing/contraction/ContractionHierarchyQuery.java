@@ -0,0 +1,244 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.contraction;
+
+import java.util.Arrays;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.MinHeap;
+
+/**
+ * Bidirectional search in a ContractionHierarchy. The forward search only
+ * follows upward edges from the origin, the backward search only follows
+ * downward edges towards the destination. The path is unpacked into the
+ * original links afterwards.
+ *
+ * An instance holds the mutable search state and must not be used by several
+ * threads at the same time.
+ */
+public class ContractionHierarchyQuery {
+	final private ContractionHierarchy hierarchy;
+
+	final private double[] forwardDistance;
+	final private double[] backwardDistance;
+	final private int[] forwardEdge;
+	final private int[] backwardEdge;
+	final private int[] forwardStamp;
+	final private int[] backwardStamp;
+	private int stamp = 0;
+
+	final private MinHeap forwardHeap = new MinHeap();
+	final private MinHeap backwardHeap = new MinHeap();
+
+	private int[] unpackStack = new int[64];
+	private int[] links = new int[64];
+	private int numberOfLinks = 0;
+	private double cost = Double.NaN;
+
+	public ContractionHierarchyQuery(ContractionHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+
+		int numberOfNodes = hierarchy.numberOfNodes;
+		this.forwardDistance = new double[numberOfNodes];
+		this.backwardDistance = new double[numberOfNodes];
+		this.forwardEdge = new int[numberOfNodes];
+		this.backwardEdge = new int[numberOfNodes];
+		this.forwardStamp = new int[numberOfNodes];
+		this.backwardStamp = new int[numberOfNodes];
+	}
+
+	/**
+	 * Finds the cheapest path. If one exists, the links are available through
+	 * getNumberOfLinks and getLink afterwards.
+	 */
+	public boolean route(int origin, int destination) {
+		stamp++;
+		numberOfLinks = 0;
+		cost = Double.NaN;
+
+		if (origin == destination) {
+			cost = 0.0;
+			return true;
+		}
+
+		forwardHeap.clear();
+		backwardHeap.clear();
+
+		forwardStamp[origin] = stamp;
+		forwardDistance[origin] = 0.0;
+		forwardEdge[origin] = -1;
+		forwardHeap.push(0.0, origin);
+
+		backwardStamp[destination] = stamp;
+		backwardDistance[destination] = 0.0;
+		backwardEdge[destination] = -1;
+		backwardHeap.push(0.0, destination);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+
+		while (true) {
+			double forwardKey = forwardHeap.isEmpty() ? Double.POSITIVE_INFINITY : forwardHeap.peekKey();
+			double backwardKey = backwardHeap.isEmpty() ? Double.POSITIVE_INFINITY : backwardHeap.peekKey();
+
+			if (Math.min(forwardKey, backwardKey) >= bestCost) {
+				break; // Also covers both heaps being empty
+			}
+
+			boolean forward = forwardKey <= backwardKey;
+			MinHeap heap = forward ? forwardHeap : backwardHeap;
+
+			double distance = heap.peekKey();
+			int node = heap.peekNode();
+			heap.pop();
+
+			if (forward) {
+				if (distance > forwardDistance[node]) {
+					continue;
+				}
+
+				if (backwardStamp[node] == stamp && distance + backwardDistance[node] < bestCost) {
+					bestCost = distance + backwardDistance[node];
+					meetingNode = node;
+				}
+
+				if (isForwardStalled(node, distance)) {
+					continue;
+				}
+
+				for (int i = hierarchy.upOffsets[node]; i < hierarchy.upOffsets[node + 1]; i++) {
+					int edge = hierarchy.upEdges[i];
+					int next = hierarchy.edgeTo[edge];
+					double nextDistance = distance + hierarchy.edgeCost[edge];
+
+					if (forwardStamp[next] != stamp || nextDistance < forwardDistance[next]) {
+						forwardStamp[next] = stamp;
+						forwardDistance[next] = nextDistance;
+						forwardEdge[next] = edge;
+						forwardHeap.push(nextDistance, next);
+					}
+				}
+			} else {
+				if (distance > backwardDistance[node]) {
+					continue;
+				}
+
+				if (forwardStamp[node] == stamp && distance + forwardDistance[node] < bestCost) {
+					bestCost = distance + forwardDistance[node];
+					meetingNode = node;
+				}
+
+				if (isBackwardStalled(node, distance)) {
+					continue;
+				}
+
+				for (int i = hierarchy.downOffsets[node]; i < hierarchy.downOffsets[node + 1]; i++) {
+					int edge = hierarchy.downEdges[i];
+					int previous = hierarchy.edgeFrom[edge];
+					double previousDistance = distance + hierarchy.edgeCost[edge];
+
+					if (backwardStamp[previous] != stamp || previousDistance < backwardDistance[previous]) {
+						backwardStamp[previous] = stamp;
+						backwardDistance[previous] = previousDistance;
+						backwardEdge[previous] = edge;
+						backwardHeap.push(previousDistance, previous);
+					}
+				}
+			}
+		}
+
+		if (meetingNode == -1) {
+			return false;
+		}
+
+		cost = bestCost;
+
+		// Forward edges are found from the meeting node back to the origin
+		int numberOfForwardEdges = 0;
+
+		for (int node = meetingNode; forwardEdge[node] != -1; node = hierarchy.edgeFrom[forwardEdge[node]]) {
+			numberOfForwardEdges++;
+		}
+
+		int[] forwardEdges = new int[numberOfForwardEdges];
+
+		for (int node = meetingNode, i = numberOfForwardEdges - 1; forwardEdge[node] != -1; node = hierarchy.edgeFrom[forwardEdge[node]]) {
+			forwardEdges[i--] = forwardEdge[node];
+		}
+
+		for (int edge : forwardEdges) {
+			unpack(edge);
+		}
+
+		for (int node = meetingNode; backwardEdge[node] != -1; node = hierarchy.edgeTo[backwardEdge[node]]) {
+			unpack(backwardEdge[node]);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stall-on-demand: a node does not need to be expanded if it can be reached
+	 * more cheaply from a higher ranked node that the same search has already
+	 * reached, because then it is not on a shortest path of this search.
+	 */
+	private boolean isForwardStalled(int node, double distance) {
+		for (int i = hierarchy.downOffsets[node]; i < hierarchy.downOffsets[node + 1]; i++) {
+			int edge = hierarchy.downEdges[i];
+			int higher = hierarchy.edgeFrom[edge];
+
+			if (forwardStamp[higher] == stamp && forwardDistance[higher] + hierarchy.edgeCost[edge] < distance) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean isBackwardStalled(int node, double distance) {
+		for (int i = hierarchy.upOffsets[node]; i < hierarchy.upOffsets[node + 1]; i++) {
+			int edge = hierarchy.upEdges[i];
+			int higher = hierarchy.edgeTo[edge];
+
+			if (backwardStamp[higher] == stamp && backwardDistance[higher] + hierarchy.edgeCost[edge] < distance) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void unpack(int edge) {
+		int size = 0;
+		unpackStack[size++] = edge;
+
+		while (size > 0) {
+			int current = unpackStack[--size];
+			int link = hierarchy.edgeLink[current];
+
+			if (link >= 0) {
+				if (numberOfLinks == links.length) {
+					links = Arrays.copyOf(links, 2 * numberOfLinks);
+				}
+
+				links[numberOfLinks++] = link;
+			} else {
+				if (size + 2 > unpackStack.length) {
+					unpackStack = Arrays.copyOf(unpackStack, 2 * unpackStack.length);
+				}
+
+				unpackStack[size++] = hierarchy.edgeSecond[current];
+				unpackStack[size++] = hierarchy.edgeFirst[current];
+			}
+		}
+	}
+
+	public int getNumberOfLinks() {
+		return numberOfLinks;
+	}
+
+	public int getLink(int index) {
+		return links[index];
+	}
+
+	public double getCost() {
+		return cost;
+	}
+}
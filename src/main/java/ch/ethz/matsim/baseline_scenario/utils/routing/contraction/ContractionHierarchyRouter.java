@@ -0,0 +1,79 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.contraction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.NetworkIndex;
+
+/**
+ * LeastCostPathCalculator on top of a ContractionHierarchy. The path is found
+ * with the costs the hierarchy has been built with, the travel time and cost of
+ * the returned path are then computed link by link from the departure time.
+ *
+ * Like the Dijkstra of MATSim, an instance must only be used by one thread at a
+ * time and null is returned if there is no path.
+ */
+public class ContractionHierarchyRouter implements LeastCostPathCalculator {
+	final private NetworkIndex index;
+	final private ContractionHierarchyQuery query;
+
+	final private TravelTime travelTime;
+	final private TravelDisutility travelDisutility;
+
+	ContractionHierarchyRouter(NetworkIndex index, ContractionHierarchy hierarchy, TravelTime travelTime,
+			TravelDisutility travelDisutility) {
+		this.index = index;
+		this.query = new ContractionHierarchyQuery(hierarchy);
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
+		int origin = index.findNodeIndex(fromNode);
+		int destination = index.findNodeIndex(toNode);
+
+		if (origin < 0 || destination < 0) {
+			throw new IllegalArgumentException(
+					String.format("Nodes %s and %s must be part of the network of the contraction hierarchy",
+							fromNode.getId(), toNode.getId()));
+		}
+
+		if (origin == destination) {
+			return new Path(Collections.singletonList(fromNode), Collections.emptyList(), 0.0, 0.0);
+		}
+
+		if (!query.route(origin, destination)) {
+			return null;
+		}
+
+		List<Node> pathNodes = new ArrayList<>(query.getNumberOfLinks() + 1);
+		List<Link> pathLinks = new ArrayList<>(query.getNumberOfLinks());
+
+		pathNodes.add(fromNode);
+
+		double time = startTime;
+		double cost = 0.0;
+
+		for (int i = 0; i < query.getNumberOfLinks(); i++) {
+			Link link = index.getLink(query.getLink(i));
+			pathLinks.add(link);
+			pathNodes.add(link.getToNode());
+
+			double linkTravelTime = travelTime.getLinkTravelTime(link, time, person, vehicle);
+			cost += travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += linkTravelTime;
+		}
+
+		return new Path(pathNodes, pathLinks, time - startTime, cost);
+	}
+}
@@ -0,0 +1,191 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.landmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.MinHeap;
+import ch.ethz.matsim.baseline_scenario.utils.routing.NetworkIndex;
+
+/**
+ * Time-dependent A* search with landmark bounds (ALT). Link costs are
+ * evaluated at the arrival time at the link, like in the Dijkstra of MATSim.
+ * For every query only the landmarks that give the best bound between origin
+ * and destination are used.
+ *
+ * The bounds are free-speed travel times, so the travel disutility must not be
+ * lower than the free-speed travel time of a link, as for the
+ * OnlyTimeDependentTravelDisutility with travel times of at least free speed.
+ * An instance must only be used by one thread at a time and null is returned
+ * if there is no path.
+ */
+public class LandmarkRouter implements LeastCostPathCalculator {
+	final private static int MAXIMUM_ACTIVE_LANDMARKS = 4;
+
+	final private LandmarkTable table;
+	final private NetworkIndex index;
+	final private TravelTime travelTime;
+	final private TravelDisutility travelDisutility;
+	final private LandmarkRouterFactory statistics;
+
+	final private double[] cost;
+	final private double[] time;
+	final private int[] previousLink;
+	final private int[] reachedStamp;
+	final private int[] settledStamp;
+	private int stamp = 0;
+
+	final private MinHeap heap = new MinHeap();
+	final private int[] activeLandmarks;
+	private int numberOfActiveLandmarks = 0;
+
+	LandmarkRouter(LandmarkTable table, TravelTime travelTime, TravelDisutility travelDisutility,
+			LandmarkRouterFactory statistics) {
+		this.table = table;
+		this.index = table.getNetworkIndex();
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.statistics = statistics;
+
+		this.cost = new double[index.getNumberOfNodes()];
+		this.time = new double[index.getNumberOfNodes()];
+		this.previousLink = new int[index.getNumberOfNodes()];
+		this.reachedStamp = new int[index.getNumberOfNodes()];
+		this.settledStamp = new int[index.getNumberOfNodes()];
+		this.activeLandmarks = new int[Math.min(MAXIMUM_ACTIVE_LANDMARKS, table.getNumberOfLandmarks())];
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
+		int origin = index.findNodeIndex(fromNode);
+		int destination = index.findNodeIndex(toNode);
+
+		if (origin < 0 || destination < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Nodes %s and %s must be part of the network of the landmarks", fromNode.getId(), toNode.getId()));
+		}
+
+		if (origin == destination) {
+			statistics.addQuery(0);
+			return new Path(Collections.singletonList(fromNode), Collections.emptyList(), 0.0, 0.0);
+		}
+
+		stamp++;
+		heap.clear();
+		selectActiveLandmarks(origin, destination);
+
+		reachedStamp[origin] = stamp;
+		cost[origin] = 0.0;
+		time[origin] = startTime;
+		previousLink[origin] = -1;
+		heap.push(getLowerBound(origin, destination), origin);
+
+		int numberOfSettledNodes = 0;
+
+		while (!heap.isEmpty()) {
+			int node = heap.peekNode();
+			heap.pop();
+
+			if (settledStamp[node] == stamp) {
+				continue; // Outdated entry
+			}
+
+			settledStamp[node] = stamp;
+			numberOfSettledNodes++;
+
+			if (node == destination) {
+				break;
+			}
+
+			for (int i = index.getOutLinksStart(node); i < index.getOutLinksEnd(node); i++) {
+				int linkIndex = index.getOutLink(i);
+				int next = index.getToNodeIndex(linkIndex);
+
+				if (settledStamp[next] == stamp) {
+					continue;
+				}
+
+				Link link = index.getLink(linkIndex);
+				double nextCost = cost[node]
+						+ travelDisutility.getLinkTravelDisutility(link, time[node], person, vehicle);
+
+				if (reachedStamp[next] != stamp || nextCost < cost[next]) {
+					reachedStamp[next] = stamp;
+					cost[next] = nextCost;
+					time[next] = time[node] + travelTime.getLinkTravelTime(link, time[node], person, vehicle);
+					previousLink[next] = linkIndex;
+					heap.push(nextCost + getLowerBound(next, destination), next);
+				}
+			}
+		}
+
+		statistics.addQuery(numberOfSettledNodes);
+
+		if (settledStamp[destination] != stamp) {
+			return null;
+		}
+
+		List<Link> pathLinks = new ArrayList<>();
+
+		for (int node = destination; previousLink[node] != -1; node = index.getFromNodeIndex(previousLink[node])) {
+			pathLinks.add(index.getLink(previousLink[node]));
+		}
+
+		Collections.reverse(pathLinks);
+
+		List<Node> pathNodes = new ArrayList<>(pathLinks.size() + 1);
+		pathNodes.add(fromNode);
+
+		for (Link link : pathLinks) {
+			pathNodes.add(link.getToNode());
+		}
+
+		return new Path(pathNodes, pathLinks, time[destination] - startTime, cost[destination]);
+	}
+
+	/**
+	 * Keeps the landmarks with the highest bounds between origin and destination.
+	 */
+	private void selectActiveLandmarks(int origin, int destination) {
+		numberOfActiveLandmarks = 0;
+		double[] bounds = new double[activeLandmarks.length];
+
+		for (int l = 0; l < table.getNumberOfLandmarks(); l++) {
+			double bound = table.getLowerBound(l, origin, destination);
+			int position = numberOfActiveLandmarks;
+
+			while (position > 0 && bounds[position - 1] < bound) {
+				if (position < activeLandmarks.length) {
+					bounds[position] = bounds[position - 1];
+					activeLandmarks[position] = activeLandmarks[position - 1];
+				}
+
+				position--;
+			}
+
+			if (position < activeLandmarks.length) {
+				bounds[position] = bound;
+				activeLandmarks[position] = l;
+				numberOfActiveLandmarks = Math.min(numberOfActiveLandmarks + 1, activeLandmarks.length);
+			}
+		}
+	}
+
+	private double getLowerBound(int node, int destination) {
+		double bound = 0.0;
+
+		for (int i = 0; i < numberOfActiveLandmarks; i++) {
+			bound = Math.max(bound, table.getLowerBound(activeLandmarks[i], node, destination));
+		}
+
+		return bound;
+	}
+}
@@ -0,0 +1,64 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.landmarks;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates LandmarkRouters that share one LandmarkTable, so the table can be
+ * reused for any number of travel times. The factory also counts the queries
+ * and settled nodes of all its routers.
+ */
+public class LandmarkRouterFactory implements LeastCostPathCalculatorFactory {
+	final private static Logger logger = Logger.getLogger(LandmarkRouterFactory.class);
+
+	final private LandmarkTable table;
+
+	final private LongAdder numberOfQueries = new LongAdder();
+	final private LongAdder numberOfSettledNodes = new LongAdder();
+
+	public LandmarkRouterFactory(LandmarkTable table) {
+		this.table = table;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelDisutility,
+			TravelTime travelTime) {
+		if (network != table.getNetwork()) {
+			throw new IllegalArgumentException("The landmarks have been computed for a different network");
+		}
+
+		return new LandmarkRouter(table, travelTime, travelDisutility, this);
+	}
+
+	void addQuery(int settledNodes) {
+		numberOfQueries.increment();
+		numberOfSettledNodes.add(settledNodes);
+	}
+
+	public long getNumberOfQueries() {
+		return numberOfQueries.sum();
+	}
+
+	public long getNumberOfSettledNodes() {
+		return numberOfSettledNodes.sum();
+	}
+
+	public void resetStatistics() {
+		numberOfQueries.reset();
+		numberOfSettledNodes.reset();
+	}
+
+	public void printStatistics() {
+		long queries = getNumberOfQueries();
+		long settledNodes = getNumberOfSettledNodes();
+
+		logger.info(String.format("Landmark routing with %d landmarks: %d queries, %.1f settled nodes per query",
+				table.getNumberOfLandmarks(), queries, queries == 0 ? 0.0 : (double) settledNodes / queries));
+	}
+}
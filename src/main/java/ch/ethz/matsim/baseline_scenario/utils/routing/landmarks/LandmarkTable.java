@@ -0,0 +1,198 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.landmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.MinHeap;
+import ch.ethz.matsim.baseline_scenario.utils.routing.NetworkIndex;
+
+/**
+ * Landmarks and the free-speed travel times from and to every landmark for all
+ * nodes of a network. By the triangle inequality they give a lower bound of the
+ * travel time between any two nodes, which stays valid as long as no link is
+ * faster than at free speed. Therefore one table can be reused for all travel
+ * times that are derived from the free-speed travel time, e.g. by a BPR
+ * function.
+ *
+ * Landmarks are chosen one by one as the node that is farthest from the
+ * landmarks chosen before. Distances are stored as floats that are rounded
+ * down. In a bound, the distance that is subtracted is rounded up to the next
+ * float, so that the bounds never overestimate.
+ */
+public class LandmarkTable {
+	final private static Logger logger = Logger.getLogger(LandmarkTable.class);
+
+	final private NetworkIndex index;
+	final private int numberOfNodes;
+
+	final int[] landmarks;
+	final float[][] fromLandmark;
+	final float[][] toLandmark;
+
+	private LandmarkTable(NetworkIndex index, int numberOfLandmarks, Random random) {
+		this.index = index;
+		this.numberOfNodes = index.getNumberOfNodes();
+
+		double[] linkTravelTime = new double[index.getNumberOfLinks()];
+
+		for (int i = 0; i < linkTravelTime.length; i++) {
+			Link link = index.getLink(i);
+			linkTravelTime[i] = link.getLength() / link.getFreespeed();
+		}
+
+		this.landmarks = new int[Math.min(numberOfLandmarks, numberOfNodes)];
+		this.fromLandmark = new float[landmarks.length][];
+		this.toLandmark = new float[landmarks.length][];
+
+		if (numberOfNodes == 0) {
+			return;
+		}
+
+		// The first landmark is the farthest node from a random start node
+		double[] minimumDistance = new double[numberOfNodes];
+		double[] distance = new double[numberOfNodes];
+		computeDistances(random.nextInt(numberOfNodes), true, linkTravelTime, distance);
+		System.arraycopy(distance, 0, minimumDistance, 0, numberOfNodes);
+
+		for (int l = 0; l < landmarks.length; l++) {
+			landmarks[l] = findFarthestNode(minimumDistance);
+
+			computeDistances(landmarks[l], true, linkTravelTime, distance);
+			fromLandmark[l] = roundDown(distance);
+
+			if (l == 0) {
+				System.arraycopy(distance, 0, minimumDistance, 0, numberOfNodes);
+			} else {
+				for (int v = 0; v < numberOfNodes; v++) {
+					minimumDistance[v] = Math.min(minimumDistance[v], distance[v]);
+				}
+			}
+
+			computeDistances(landmarks[l], false, linkTravelTime, distance);
+			toLandmark[l] = roundDown(distance);
+
+			logger.info(String.format("Landmark %d/%d: node %s", l + 1, landmarks.length,
+					index.getNode(landmarks[l]).getId()));
+		}
+	}
+
+	/**
+	 * Chooses the given number of landmarks and computes their free-speed travel
+	 * times. Without landmarks the bounds are zero, so routing with such a table
+	 * is equivalent to Dijkstra.
+	 */
+	static public LandmarkTable create(Network network, int numberOfLandmarks) {
+		return create(new NetworkIndex(network), numberOfLandmarks);
+	}
+
+	/**
+	 * Same as {@link #create(Network, int)} on an existing index of the network.
+	 */
+	static public LandmarkTable create(NetworkIndex index, int numberOfLandmarks) {
+		return new LandmarkTable(index, numberOfLandmarks, new Random(0));
+	}
+
+	public Network getNetwork() {
+		return index.getNetwork();
+	}
+
+	public NetworkIndex getNetworkIndex() {
+		return index;
+	}
+
+	public int getNumberOfLandmarks() {
+		return landmarks.length;
+	}
+
+	/**
+	 * Lower bound of the free-speed travel time from node to target by the
+	 * given landmark. The stored distances are at most one float step below the
+	 * exact ones, so the subtracted one is replaced by the next larger float.
+	 */
+	double getLowerBound(int landmark, int node, int target) {
+		double bound = 0.0;
+
+		float fromNode = fromLandmark[landmark][node];
+		float fromTarget = fromLandmark[landmark][target];
+
+		if (fromNode != Float.POSITIVE_INFINITY && fromTarget != Float.POSITIVE_INFINITY) {
+			bound = (double) fromTarget - Math.nextUp(fromNode);
+		}
+
+		float toNode = toLandmark[landmark][node];
+		float toTarget = toLandmark[landmark][target];
+
+		if (toNode != Float.POSITIVE_INFINITY && toTarget != Float.POSITIVE_INFINITY) {
+			bound = Math.max(bound, (double) toNode - Math.nextUp(toTarget));
+		}
+
+		return bound;
+	}
+
+	static private int findFarthestNode(double[] distance) {
+		int farthest = 0;
+
+		for (int v = 1; v < distance.length; v++) {
+			if (distance[v] != Double.POSITIVE_INFINITY
+					&& (distance[farthest] == Double.POSITIVE_INFINITY || distance[v] > distance[farthest])) {
+				farthest = v;
+			}
+		}
+
+		return farthest;
+	}
+
+	static private float[] roundDown(double[] distance) {
+		float[] rounded = new float[distance.length];
+
+		for (int v = 0; v < distance.length; v++) {
+			rounded[v] = (float) distance[v];
+
+			if (rounded[v] > distance[v]) {
+				rounded[v] = Math.nextDown(rounded[v]);
+			}
+		}
+
+		return rounded;
+	}
+
+	/**
+	 * One-to-all Dijkstra forward along the outgoing links or backward along the
+	 * incoming links.
+	 */
+	private void computeDistances(int origin, boolean forward, double[] linkCost, double[] distance) {
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[origin] = 0.0;
+
+		MinHeap heap = new MinHeap();
+		heap.push(0.0, origin);
+
+		while (!heap.isEmpty()) {
+			double current = heap.peekKey();
+			int node = heap.peekNode();
+			heap.pop();
+
+			if (current > distance[node]) {
+				continue;
+			}
+
+			int start = forward ? index.getOutLinksStart(node) : index.getInLinksStart(node);
+			int end = forward ? index.getOutLinksEnd(node) : index.getInLinksEnd(node);
+
+			for (int i = start; i < end; i++) {
+				int link = forward ? index.getOutLink(i) : index.getInLink(i);
+				int next = forward ? index.getToNodeIndex(link) : index.getFromNodeIndex(link);
+				double nextDistance = current + linkCost[link];
+
+				if (nextDistance < distance[next]) {
+					distance[next] = nextDistance;
+					heap.push(nextDistance, next);
+				}
+			}
+		}
+	}
+}
@@ -22,10 +22,12 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.network.io.NetworkWriter;
 import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.router.DijkstraFactory;
 import org.matsim.core.router.MainModeIdentifier;
 import org.matsim.core.router.MainModeIdentifierImpl;
 import org.matsim.core.router.StageActivityTypes;
 import org.matsim.core.router.StageActivityTypesImpl;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.facilities.FacilitiesWriter;
 import org.matsim.households.HouseholdsWriterV10;
@@ -39,6 +41,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.Injector;
 import com.google.inject.name.Names;
 
 import ch.ethz.matsim.baseline_scenario.config.SwitzerlandConfig;
@@ -48,6 +51,9 @@ import ch.ethz.matsim.baseline_scenario.utils.HomeFacilitiesCleaner;
 import ch.ethz.matsim.baseline_scenario.utils.HouseholdAttributeCleaner;
 import ch.ethz.matsim.baseline_scenario.utils.HouseholdsCleaner;
 import ch.ethz.matsim.baseline_scenario.utils.consistency.MD5Collector;
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostReport;
+import ch.ethz.matsim.baseline_scenario.utils.routing.StaticPathCache;
+import ch.ethz.matsim.baseline_scenario.utils.routing.contraction.ContractionHierarchyFactory;
 import ch.ethz.matsim.baseline_scenario.zurich.consistency.ActivityCheck;
 import ch.ethz.matsim.baseline_scenario.zurich.consistency.BatchCheck;
 import ch.ethz.matsim.baseline_scenario.zurich.consistency.ChainStructureCheck;
@@ -107,6 +113,14 @@ public class MakeZurichScenario {
 		int numberOfThreads = scenarioConfig.numberOfThreads == 0 ? Runtime.getRuntime().availableProcessors()
 				: scenarioConfig.numberOfThreads;
 
+		ParallelRouterModule.Granularity routingGranularity = ParallelRouterModule.Granularity
+				.valueOf(scenarioConfig.routingGranularity.toUpperCase());
+
+		LeastCostPathCalculatorFactory carPathCalculatorFactory = scenarioConfig.useContractionHierarchies
+				? new ContractionHierarchyFactory(outputPath)
+				: new DijkstraFactory();
+		long carPathCacheMemory = scenarioConfig.carPathCacheMegabytes * 1024L * 1024L;
+
 		Config config = ConfigUtils.loadConfig(new File(baselinePath, baselineConfig.prefix + "config.xml").getPath());
 		Scenario scenario = ScenarioUtils.loadScenario(config);
 
@@ -144,8 +158,14 @@ public class MakeZurichScenario {
 		outsideModeRoutingParams.setBeelineDistanceFactor(1.0);
 		outsideModeRoutingParams.setTeleportedModeSpeed(1e6);
 
-		ParallelPopulationRouter populationRouter = Guice.createInjector(
-				new ParallelRouterModule(numberOfThreads, scenario.getActivityFacilities()), new AbstractModule() {
+		RoutingCostReport initialRoutingCostReport = scenarioConfig.writeRoutingCostReport ? new RoutingCostReport()
+				: null;
+
+		Injector routerInjector = Guice.createInjector(
+				new ParallelRouterModule(numberOfThreads, scenario.getActivityFacilities(),
+						scenarioConfig.useThreadAffineRouters, routingGranularity, scenarioConfig.plansInFlight,
+						initialRoutingCostReport),
+				new AbstractModule() {
 					@Override
 					protected void configure() {
 						bind(StageActivityTypes.class).toInstance(stageActivityTypes);
@@ -154,15 +174,24 @@ public class MakeZurichScenario {
 						bind(Population.class).toInstance(scenario.getPopulation());
 						bind(EventsManager.class).toInstance(EventsUtils.createEventsManager());
 					}
-				}, new CarRoutingModule(roadNetwork),
+				}, new CarRoutingModule(roadNetwork, carPathCalculatorFactory, carPathCacheMemory),
 				new PublicTransitRoutingModule(scenario.getNetwork(), scenario.getTransitSchedule(),
 						config.plansCalcRoute().getOrCreateModeRoutingParams("walk")),
 				new BikeRoutingModule(config.plansCalcRoute().getOrCreateModeRoutingParams("bike")),
 				new WalkRoutingModule(config.plansCalcRoute().getOrCreateModeRoutingParams("walk")),
-				new OutsideRoutingModule(outsideModeRoutingParams)).getInstance(ParallelPopulationRouter.class);
+				new OutsideRoutingModule(outsideModeRoutingParams));
 
+		ParallelPopulationRouter populationRouter = routerInjector.getInstance(ParallelPopulationRouter.class);
 		populationRouter.run(scenario.getPopulation(), mainExecutor);
 
+		if (carPathCacheMemory > 0) {
+			routerInjector.getInstance(StaticPathCache.class).printStatistics();
+		}
+
+		if (initialRoutingCostReport != null) {
+			initialRoutingCostReport.write(new File(outputPath, scenarioConfig.prefix + "routing_cost_initial.csv"));
+		}
+
 		// Cut the population at the border
 
 		PlanCutter planCutter = Guice
@@ -208,8 +237,14 @@ public class MakeZurichScenario {
 
 		// Reroute the cut population
 
-		populationRouter = Guice.createInjector(
-				new ParallelRouterModule(numberOfThreads, scenario.getActivityFacilities()), new AbstractModule() {
+		RoutingCostReport cutRoutingCostReport = scenarioConfig.writeRoutingCostReport ? new RoutingCostReport()
+				: null;
+
+		routerInjector = Guice.createInjector(
+				new ParallelRouterModule(numberOfThreads, scenario.getActivityFacilities(),
+						scenarioConfig.useThreadAffineRouters, routingGranularity, scenarioConfig.plansInFlight,
+						cutRoutingCostReport),
+				new AbstractModule() {
 					@Override
 					protected void configure() {
 						bind(StageActivityTypes.class).toInstance(stageActivityTypes);
@@ -218,19 +253,28 @@ public class MakeZurichScenario {
 						bind(Config.class).toInstance(routingConfig);
 						bind(EventsManager.class).toInstance(EventsUtils.createEventsManager());
 					}
-				}, new CarRoutingModule(updatedRoadNetwork),
+				}, new CarRoutingModule(updatedRoadNetwork, carPathCalculatorFactory, carPathCacheMemory),
 				new PublicTransitRoutingModule(scenario.getNetwork(), scenario.getTransitSchedule(),
 						config.plansCalcRoute().getOrCreateModeRoutingParams("walk")),
 				new BikeRoutingModule(config.plansCalcRoute().getOrCreateModeRoutingParams("bike")),
 				new WalkRoutingModule(config.plansCalcRoute().getOrCreateModeRoutingParams("walk")),
-				new OutsideRoutingModule(outsideModeRoutingParams)).getInstance(ParallelPopulationRouter.class);
+				new OutsideRoutingModule(outsideModeRoutingParams));
 
+		populationRouter = routerInjector.getInstance(ParallelPopulationRouter.class);
 		populationRouter.run(scenario.getPopulation(), mainExecutor);
 
+		if (carPathCacheMemory > 0) {
+			routerInjector.getInstance(StaticPathCache.class).printStatistics();
+		}
+
+		if (cutRoutingCostReport != null) {
+			cutRoutingCostReport.write(new File(outputPath, scenarioConfig.prefix + "routing_cost_cut.csv"));
+		}
+
 		// Cut the network
 
 		MinimumNetworkFinder minimumNetworkFinder = new ParallelMinimumNetworkFinder(mainExecutor, numberOfThreads,
-				updatedRoadNetwork, referenceLink);
+				updatedRoadNetwork, referenceLink, carPathCalculatorFactory);
 
 		if (scenarioConfig.useMinimumNetworkCache) {
 			minimumNetworkFinder = new CachedMinimumNetworkFinder(new File(outputPath, "minimum_network.cache"),
@@ -10,8 +10,10 @@ import ch.ethz.matsim.baseline_scenario.BaselineModule;
 import ch.ethz.matsim.baseline_scenario.config.CommandLine;
 import ch.ethz.matsim.baseline_scenario.config.CommandLine.ConfigurationException;
 import ch.ethz.matsim.baseline_scenario.transit.BaselineTransitQSimModule;
-import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRoute;
-import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRouteFactory;
+import ch.ethz.matsim.baseline_scenario.transit.events.BaselineEventWriterListener;
+import ch.ethz.matsim.baseline_scenario.transit.routing.CompactEnrichedTransitRoute;
+import ch.ethz.matsim.baseline_scenario.transit.routing.CompactEnrichedTransitRouteFactory;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitConfigGroup;
 import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitModule;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorModule;
 
@@ -19,12 +21,13 @@ public class RunZurichScenario {
 	static public void main(String[] args) throws ConfigurationException {
 		CommandLine cmd = new CommandLine.Builder(args).build();
 
-		Config config = ConfigUtils.loadConfig(cmd.getPositionalArgumentStrict(0));
+		Config config = ConfigUtils.loadConfig(cmd.getPositionalArgumentStrict(0), new BaselineTransitConfigGroup());
 		cmd.applyConfiguration(config);
+		BaselineEventWriterListener.adaptConfig(config);
 
 		Scenario scenario = ScenarioUtils.createScenario(config);
-		scenario.getPopulation().getFactory().getRouteFactories().setRouteFactory(DefaultEnrichedTransitRoute.class,
-				new DefaultEnrichedTransitRouteFactory());
+		scenario.getPopulation().getFactory().getRouteFactories().setRouteFactory(CompactEnrichedTransitRoute.class,
+				new CompactEnrichedTransitRouteFactory());
 		ScenarioUtils.loadScenario(scenario);
 
 		Controler controler = new Controler(scenario);
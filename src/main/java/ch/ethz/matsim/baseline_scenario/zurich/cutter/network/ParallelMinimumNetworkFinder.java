@@ -19,6 +19,7 @@ import org.matsim.core.router.DijkstraFactory;
 import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
@@ -30,13 +31,26 @@ public class ParallelMinimumNetworkFinder implements MinimumNetworkFinder {
 	final private Network network;
 	final private ExecutorService executor;
 	final private int numberOfRunners;
+	final private LeastCostPathCalculatorFactory pathCalculatorFactory;
 
 	public ParallelMinimumNetworkFinder(ExecutorService executor, int numberOfRunners, Network network,
 			Link referenceLink) {
+		this(executor, numberOfRunners, network, referenceLink, new DijkstraFactory());
+	}
+
+	/**
+	 * @param pathCalculatorFactory creates one path calculator per runner. All
+	 *                              paths are computed with free speed travel
+	 *                              times, so a ContractionHierarchyFactory can be
+	 *                              used.
+	 */
+	public ParallelMinimumNetworkFinder(ExecutorService executor, int numberOfRunners, Network network,
+			Link referenceLink, LeastCostPathCalculatorFactory pathCalculatorFactory) {
 		this.network = network;
 		this.referenceLink = referenceLink;
 		this.executor = executor;
 		this.numberOfRunners = numberOfRunners;
+		this.pathCalculatorFactory = pathCalculatorFactory;
 	}
 
 	@Override
@@ -58,7 +72,7 @@ public class ParallelMinimumNetworkFinder implements MinimumNetworkFinder {
 			futures.add(CompletableFuture.supplyAsync(() -> {
 				TravelTime travelTime = new FreeSpeedTravelTime();
 				TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
-				LeastCostPathCalculator calculator = new DijkstraFactory().createPathCalculator(network,
+				LeastCostPathCalculator calculator = pathCalculatorFactory.createPathCalculator(network,
 						travelDisutility, travelTime);
 
 				Set<Id<Link>> forwardTabuSet = new HashSet<>();
@@ -1,9 +1,7 @@
 package ch.ethz.matsim.baseline_scenario.zurich.cutter.network;
 
 import java.io.File;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -17,15 +15,10 @@ import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkWriter;
 import org.matsim.core.population.io.PopulationReader;
-import org.matsim.core.router.DijkstraFactory;
-import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
-import org.matsim.core.router.util.LeastCostPathCalculator;
-import org.matsim.core.router.util.TravelDisutility;
-import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioUtils;
-import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
 
+import ch.ethz.matsim.baseline_scenario.utils.routing.contraction.ContractionHierarchyFactory;
 import ch.ethz.matsim.baseline_scenario.zurich.extent.CircularScenarioExtent;
 import ch.ethz.matsim.baseline_scenario.zurich.extent.ScenarioExtent;
 
@@ -47,20 +40,13 @@ public class RunNetworkCutter {
 
 		Link referenceLink = NetworkUtils.getNearestLink(roadNetwork, bellevue);
 
-		Collection<LeastCostPathCalculator> calculators = new LinkedList<>();
-
-		TravelTime travelTime = new FreeSpeedTravelTime();
-		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
-
-		for (int i = 0; i < 4; i++) {
-			calculators.add(new DijkstraFactory().createPathCalculator(roadNetwork, travelDisutility, travelTime));
-		}
-
 		File cacheFile = new File("minimum_network.cache");
 
 		ExecutorService executor = Executors.newFixedThreadPool(4);
+		// The minimum network is found with free speed travel times, which do not
+		// change, so the road network only needs to be contracted once
 		MinimumNetworkFinder minimumNetworkFinder = new ParallelMinimumNetworkFinder(executor, 4, roadNetwork,
-				referenceLink);
+				referenceLink, new ContractionHierarchyFactory());
 		MinimumNetworkFinder cachedMinimumNetworkFinder = new CachedMinimumNetworkFinder(cacheFile,
 				minimumNetworkFinder);
 
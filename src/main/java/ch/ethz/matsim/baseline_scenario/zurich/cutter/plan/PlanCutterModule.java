@@ -14,6 +14,7 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.points.DefaultNetworkCrossingPointFinder;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.points.DefaultTeleportationCrossingPointFinder;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.points.DefaultTransitRouteCrossingPointFinder;
@@ -27,8 +28,8 @@ import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.trips.ModeAwareTripPr
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.trips.PublicTransitTripProcessor;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.trips.TeleportationTripProcessor;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.trips.TripProcessor;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DefaultDepartureFinder;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.IndexedDepartureFinder;
 import ch.ethz.matsim.baseline_scenario.zurich.extent.ScenarioExtent;
 
 public class PlanCutterModule extends AbstractModule {
@@ -83,14 +84,21 @@ public class PlanCutterModule extends AbstractModule {
 
 	@Provides
 	@Singleton
-	public DepartureFinder provideDepartureFinder() {
-		return new DefaultDepartureFinder();
+	public CompiledTransitSchedule provideCompiledTransitSchedule() {
+		return new CompiledTransitSchedule(transitSchedule);
 	}
 
 	@Provides
 	@Singleton
-	public TransitRouteCrossingPointFinder provideTransitRouteCrossingPointFinder(ScenarioExtent extent) {
-		return new DefaultTransitRouteCrossingPointFinder(extent, transitSchedule);
+	public DepartureFinder provideDepartureFinder(CompiledTransitSchedule schedule) {
+		return new IndexedDepartureFinder(schedule);
+	}
+
+	@Provides
+	@Singleton
+	public TransitRouteCrossingPointFinder provideTransitRouteCrossingPointFinder(ScenarioExtent extent,
+			CompiledTransitSchedule schedule) {
+		return new DefaultTransitRouteCrossingPointFinder(extent, schedule);
 	}
 
 	@Provides
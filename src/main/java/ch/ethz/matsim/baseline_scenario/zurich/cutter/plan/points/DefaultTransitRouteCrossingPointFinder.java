@@ -3,13 +3,12 @@ package ch.ethz.matsim.baseline_scenario.zurich.cutter.plan.points;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.matsim.pt.transitSchedule.api.Departure;
-import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRoute;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
 import ch.ethz.matsim.baseline_scenario.zurich.extent.ScenarioExtent;
 
 /*
@@ -17,9 +16,13 @@ import ch.ethz.matsim.baseline_scenario.zurich.extent.ScenarioExtent;
  */
 public class DefaultTransitRouteCrossingPointFinder implements TransitRouteCrossingPointFinder {
 	final private ScenarioExtent extent;
-	final private TransitSchedule schedule;
+	final private CompiledTransitSchedule schedule;
 
 	public DefaultTransitRouteCrossingPointFinder(ScenarioExtent extent, TransitSchedule schedule) {
+		this(extent, new CompiledTransitSchedule(schedule));
+	}
+
+	public DefaultTransitRouteCrossingPointFinder(ScenarioExtent extent, CompiledTransitSchedule schedule) {
 		this.extent = extent;
 		this.schedule = schedule;
 	}
@@ -28,31 +31,35 @@ public class DefaultTransitRouteCrossingPointFinder implements TransitRouteCross
 	public List<TransitRouteCrossingPoint> findCrossingPoints(EnrichedTransitRoute route, double departureTime) {
 		List<TransitRouteCrossingPoint> crossingPoints = new LinkedList<>();
 
-		TransitLine transitLine = schedule.getTransitLines().get(route.getTransitLineId());
-		TransitRoute transitRoute = transitLine.getRoutes().get(route.getTransitRouteId());
+		int routeIndex = schedule.getRouteIndex(route);
+		TransitRoute transitRoute = schedule.getRoute(routeIndex);
 
-		Departure departure = transitRoute.getDepartures().get(route.getDepartureId());
-		double routeDepartureTime = departure.getDepartureTime();
+		int departureIndex = schedule.getDepartureIndex(routeIndex, route.getDepartureId());
 
-		List<TransitRouteStop> stops = transitRoute.getStops().subList(route.getAccessStopIndex(),
-				route.getEgressStopIndex() + 1);
+		if (departureIndex < 0) {
+			throw new IllegalStateException("Departure not found: " + route.getDepartureId());
+		}
 
-		for (int i = 0; i < stops.size() - 1; i++) {
-			TransitRouteStop firstStop = stops.get(i);
-			TransitRouteStop secondStop = stops.get(i + 1);
+		double routeDepartureTime = schedule.getDepartureTime(departureIndex);
 
-			boolean firstIsInside = extent.isInside(firstStop.getStopFacility().getCoord());
-			boolean secondIsInside = extent.isInside(secondStop.getStopFacility().getCoord());
+		for (int i = route.getAccessStopIndex(); i < route.getEgressStopIndex(); i++) {
+			boolean firstIsInside = extent.isInside(schedule.getStopFacility(routeIndex, i).getCoord());
+			boolean secondIsInside = extent.isInside(schedule.getStopFacility(routeIndex, i + 1).getCoord());
 
 			if (firstIsInside != secondIsInside) { // We found a crossing
-				TransitRouteStop insideStop = firstIsInside ? firstStop : secondStop;
-				TransitRouteStop outsideStop = firstIsInside ? secondStop : firstStop;
+				int insideIndex = firstIsInside ? i : i + 1;
+				int outsideIndex = firstIsInside ? i + 1 : i;
+
+				TransitRouteStop insideStop = transitRoute.getStops().get(insideIndex);
+				TransitRouteStop outsideStop = transitRoute.getStops().get(outsideIndex);
 
-				double outsideDepartureTime = routeDepartureTime + outsideStop.getDepartureOffset();
-				double insideDepartureTime = routeDepartureTime + insideStop.getDepartureOffset();
+				double outsideDepartureTime = routeDepartureTime
+						+ schedule.getDepartureOffset(routeIndex, outsideIndex);
+				double insideDepartureTime = routeDepartureTime + schedule.getDepartureOffset(routeIndex, insideIndex);
 
-				crossingPoints.add(new TransitRouteCrossingPoint(transitLine, transitRoute, outsideStop, insideStop,
-						outsideDepartureTime, insideDepartureTime, firstIsInside));
+				crossingPoints.add(new TransitRouteCrossingPoint(schedule.getLine(schedule.getLineIndex(routeIndex)),
+						transitRoute, outsideStop, insideStop, outsideDepartureTime, insideDepartureTime,
+						firstIsInside));
 			}
 		}
 
@@ -1,5 +1,7 @@
 package ch.ethz.matsim.baseline_scenario.zurich.cutter.utils;
 
+import java.util.Optional;
+
 import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
@@ -12,6 +14,20 @@ public interface DepartureFinder {
 	Departure findDeparture(TransitRoute route, TransitRouteStop accessStop, double departureTime)
 			throws NoDepartureFoundException;
 
+	/**
+	 * Same as {@link #findDeparture(TransitRoute, TransitRouteStop, double)}, but
+	 * returns an empty Optional instead of raising an exception if there is no
+	 * departure.
+	 */
+	default Optional<Departure> tryFindDeparture(TransitRoute route, TransitRouteStop accessStop,
+			double departureTime) {
+		try {
+			return Optional.of(findDeparture(route, accessStop, departureTime));
+		} catch (NoDepartureFoundException e) {
+			return Optional.empty();
+		}
+	}
+
 	static public class NoDepartureFoundException extends Exception {
 		private static final long serialVersionUID = -7437914556322222223L;
 	}
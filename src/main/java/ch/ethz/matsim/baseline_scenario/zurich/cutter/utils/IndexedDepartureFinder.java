@@ -0,0 +1,65 @@
+package ch.ethz.matsim.baseline_scenario.zurich.cutter.utils;
+
+import java.util.Optional;
+
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+
+/**
+ * Finds departures by binary search on the sorted departure times of each
+ * route, as provided by the CompiledTransitSchedule. The index is read-only, so
+ * one instance can be shared between threads. Routes that are not part of the
+ * schedule are answered by the DefaultDepartureFinder.
+ */
+public class IndexedDepartureFinder implements DepartureFinder {
+	final private CompiledTransitSchedule schedule;
+	final private DefaultDepartureFinder fallbackFinder = new DefaultDepartureFinder();
+
+	public IndexedDepartureFinder(TransitSchedule transitSchedule) {
+		this(new CompiledTransitSchedule(transitSchedule));
+	}
+
+	public IndexedDepartureFinder(CompiledTransitSchedule schedule) {
+		this.schedule = schedule;
+	}
+
+	@Override
+	public Departure findDeparture(TransitRoute route, TransitRouteStop accessStop, double departureTime)
+			throws NoDepartureFoundException {
+		int routeIndex = schedule.getRouteIndex(route);
+
+		if (routeIndex < 0) {
+			return fallbackFinder.findDeparture(route, accessStop, departureTime);
+		}
+
+		Departure departure = findDepartureOrNull(routeIndex, accessStop, departureTime);
+
+		if (departure == null) {
+			throw new NoDepartureFoundException();
+		}
+
+		return departure;
+	}
+
+	@Override
+	public Optional<Departure> tryFindDeparture(TransitRoute route, TransitRouteStop accessStop,
+			double departureTime) {
+		int routeIndex = schedule.getRouteIndex(route);
+
+		if (routeIndex < 0) {
+			return fallbackFinder.tryFindDeparture(route, accessStop, departureTime);
+		}
+
+		return Optional.ofNullable(findDepartureOrNull(routeIndex, accessStop, departureTime));
+	}
+
+	private Departure findDepartureOrNull(int routeIndex, TransitRouteStop accessStop, double departureTime) {
+		int departureIndex = schedule.findDepartureIndexWithOffset(routeIndex, accessStop.getDepartureOffset(),
+				departureTime);
+		return departureIndex < 0 ? null : schedule.getDeparture(departureIndex);
+	}
+}
@@ -3,26 +3,56 @@ package ch.ethz.matsim.baseline_scenario.zurich.router.modules;
 import java.util.Optional;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.MapBinder;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 
+import ch.ethz.matsim.baseline_scenario.utils.routing.CachingLeastCostPathCalculatorFactory;
+import ch.ethz.matsim.baseline_scenario.utils.routing.StaticPathCache;
 import ch.ethz.matsim.baseline_scenario.zurich.router.trip.CarTripRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.trip.TripRouter;
 
 public class CarRoutingModule extends AbstractModule {
 	final private Optional<Network> roadNetwork;
+	final private LeastCostPathCalculatorFactory pathCalculatorFactory;
+	final private long pathCacheMemory;
 
 	public CarRoutingModule(Network roadNetwork) {
+		this(roadNetwork, new DijkstraFactory());
+	}
+
+	/**
+	 * The path calculator factory is shared by all car trip routers, e.g. a
+	 * ContractionHierarchyFactory to contract the road network only once.
+	 */
+	public CarRoutingModule(Network roadNetwork, LeastCostPathCalculatorFactory pathCalculatorFactory) {
+		this(roadNetwork, pathCalculatorFactory, 0);
+	}
+
+	/**
+	 * @param pathCacheMemory memory budget in bytes of the StaticPathCache that
+	 *                        is shared by all car trip routers, 0 disables the
+	 *                        cache
+	 */
+	public CarRoutingModule(Network roadNetwork, LeastCostPathCalculatorFactory pathCalculatorFactory,
+			long pathCacheMemory) {
 		this.roadNetwork = Optional.of(roadNetwork);
+		this.pathCalculatorFactory = pathCalculatorFactory;
+		this.pathCacheMemory = pathCacheMemory;
 	}
 
 	public CarRoutingModule() {
 		this.roadNetwork = Optional.empty();
+		this.pathCalculatorFactory = new DijkstraFactory();
+		this.pathCacheMemory = 0;
 	}
 
 	@Override
@@ -35,7 +65,20 @@ public class CarRoutingModule extends AbstractModule {
 	}
 
 	@Provides
-	public CarTripRouter provideCarTripRouter(@Named("road") Network roadNetwork) {
-		return new CarTripRouter(roadNetwork);
+	@Singleton
+	public StaticPathCache provideStaticPathCache(@Named("road") Network roadNetwork) {
+		return new StaticPathCache(roadNetwork, pathCacheMemory);
+	}
+
+	@Provides
+	public CarTripRouter provideCarTripRouter(@Named("road") Network roadNetwork,
+			Provider<StaticPathCache> cacheProvider) {
+		// Car trips are routed with free-speed travel times, so paths can be cached
+		if (pathCacheMemory > 0) {
+			return new CarTripRouter(roadNetwork,
+					new CachingLeastCostPathCalculatorFactory(pathCalculatorFactory, cacheProvider.get()));
+		}
+
+		return new CarTripRouter(roadNetwork, pathCalculatorFactory);
 	}
 }
@@ -3,6 +3,7 @@ package ch.ethz.matsim.baseline_scenario.zurich.router.modules;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.matsim.core.router.MainModeIdentifier;
 import org.matsim.core.router.StageActivityTypes;
 import org.matsim.facilities.ActivityFacilities;
 
@@ -10,21 +11,84 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provider;
 import com.google.inject.Provides;
 
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostEstimator;
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostReport;
+import ch.ethz.matsim.baseline_scenario.zurich.router.DefaultPlanRouter;
+import ch.ethz.matsim.baseline_scenario.zurich.router.PlanRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.DefaultParallelPlanRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.DefaultParallelPopulationRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.DefaultParallelTripRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.ParallelPlanRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.ParallelPopulationRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.ParallelTripRouter;
+import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.SequentialParallelPlanRouter;
+import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.ThreadAffineParallelTripRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.trip.TripRouter;
 
 public class ParallelRouterModule extends AbstractModule {
 	final private ActivityFacilities activityFacilities;
 	final private int numberOfTripRunners;
+	final private boolean useThreadAffineRouters;
+	final private Granularity granularity;
+	final private int plansInFlightPerRunner;
+	final private RoutingCostReport report;
+
+	/**
+	 * Unit of work that is submitted to the executor. TRIP routes every trip in
+	 * its own task. PLAN routes all trips of a plan sequentially in one task with
+	 * one router instance. PERSON does the same for all plans of a person.
+	 */
+	public enum Granularity {
+		TRIP, PLAN, PERSON
+	}
+
+	// Plans that are routed at the same time, per trip runner
+	final public static int DEFAULT_PLANS_IN_FLIGHT_PER_RUNNER = 64;
 
 	public ParallelRouterModule(int numberOfTripRunners, ActivityFacilities activityFacilities) {
+		this(numberOfTripRunners, activityFacilities, false);
+	}
+
+	public ParallelRouterModule(int numberOfTripRunners, ActivityFacilities activityFacilities,
+			boolean useThreadAffineRouters) {
+		this(numberOfTripRunners, activityFacilities, useThreadAffineRouters, Granularity.TRIP);
+	}
+
+	/**
+	 * @param useThreadAffineRouters if true, every executor thread creates and
+	 *                               keeps its own TripRouter and
+	 *                               numberOfTripRunners is ignored. Otherwise,
+	 *                               numberOfTripRunners instances are shared
+	 *                               through a queue.
+	 */
+	public ParallelRouterModule(int numberOfTripRunners, ActivityFacilities activityFacilities,
+			boolean useThreadAffineRouters, Granularity granularity) {
+		this(numberOfTripRunners, activityFacilities, useThreadAffineRouters, granularity, null);
+	}
+
+	/**
+	 * @param report if not null, the estimated cost and the routing time of every
+	 *               plan are added to it
+	 */
+	public ParallelRouterModule(int numberOfTripRunners, ActivityFacilities activityFacilities,
+			boolean useThreadAffineRouters, Granularity granularity, RoutingCostReport report) {
+		this(numberOfTripRunners, activityFacilities, useThreadAffineRouters, granularity,
+				DEFAULT_PLANS_IN_FLIGHT_PER_RUNNER, report);
+	}
+
+	/**
+	 * @param plansInFlightPerRunner number of plans that are routed at the same
+	 *                               time per trip runner
+	 */
+	public ParallelRouterModule(int numberOfTripRunners, ActivityFacilities activityFacilities,
+			boolean useThreadAffineRouters, Granularity granularity, int plansInFlightPerRunner,
+			RoutingCostReport report) {
 		this.activityFacilities = activityFacilities;
 		this.numberOfTripRunners = numberOfTripRunners;
+		this.useThreadAffineRouters = useThreadAffineRouters;
+		this.granularity = granularity;
+		this.plansInFlightPerRunner = Math.max(1, plansInFlightPerRunner);
+		this.report = report;
 	}
 
 	@Override
@@ -36,18 +100,46 @@ public class ParallelRouterModule extends AbstractModule {
 	}
 
 	@Provides
-	public ParallelPopulationRouter provideParallelPopulationRouter(ParallelPlanRouter planRouter) {
-		return new DefaultParallelPopulationRouter(planRouter);
+	public ParallelPopulationRouter provideParallelPopulationRouter(ParallelPlanRouter planRouter,
+			StageActivityTypes stageActivityTypes, MainModeIdentifier mainModeIdentifier) {
+		RoutingCostEstimator estimator = RoutingCostEstimator.createDefault(stageActivityTypes, mainModeIdentifier,
+				activityFacilities);
+
+		return new DefaultParallelPopulationRouter(planRouter,
+				plansInFlightPerRunner * Math.max(1, numberOfTripRunners), granularity == Granularity.PERSON,
+				estimator, report);
 	}
 
 	@Provides
-	public ParallelPlanRouter provideParallelPlanRouter(ParallelTripRouter tripRouter,
-			StageActivityTypes stageActivityTypes) {
-		return new DefaultParallelPlanRouter(tripRouter, stageActivityTypes, activityFacilities);
+	public ParallelPlanRouter provideParallelPlanRouter(Provider<ParallelTripRouter> parallelTripRouterProvider,
+			Provider<TripRouter> tripRouterProvider, StageActivityTypes stageActivityTypes) {
+		if (granularity == Granularity.TRIP) {
+			return new DefaultParallelPlanRouter(parallelTripRouterProvider.get(), stageActivityTypes,
+					activityFacilities);
+		}
+
+		Provider<PlanRouter> planRouterProvider = () -> new DefaultPlanRouter(tripRouterProvider.get(),
+				stageActivityTypes, activityFacilities);
+
+		if (useThreadAffineRouters) {
+			return new SequentialParallelPlanRouter(planRouterProvider);
+		}
+
+		List<PlanRouter> instances = new LinkedList<>();
+
+		for (int i = 0; i < numberOfTripRunners; i++) {
+			instances.add(planRouterProvider.get());
+		}
+
+		return new SequentialParallelPlanRouter(instances);
 	}
 
 	@Provides
 	public ParallelTripRouter provideParallelTripRouter(Provider<TripRouter> tripRouterProvider) {
+		if (useThreadAffineRouters) {
+			return new ThreadAffineParallelTripRouter(tripRouterProvider);
+		}
+
 		List<TripRouter> instances = new LinkedList<>();
 
 		for (int i = 0; i < numberOfTripRunners; i++) {
@@ -9,6 +9,7 @@ import javax.inject.Provider;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.ModeRoutingParams;
 import org.matsim.core.router.RoutingModule;
@@ -23,12 +24,19 @@ import com.google.inject.Singleton;
 import com.google.inject.multibindings.MapBinder;
 import com.google.inject.name.Named;
 
+import ch.ethz.matsim.baseline_scenario.transit.connection.CachingTransitConnectionFinder;
 import ch.ethz.matsim.baseline_scenario.transit.connection.DefaultTransitConnectionFinder;
 import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnectionFinder;
+import ch.ethz.matsim.baseline_scenario.transit.routing.CachingEnrichedTransitRouter;
 import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRouter;
+import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRouteCache;
 import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRouter;
-import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DefaultDepartureFinder;
+import ch.ethz.matsim.baseline_scenario.transit.routing.TransitIdIndex;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.TransitRouteDistances;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitConfigGroup;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.IndexedDepartureFinder;
 import ch.ethz.matsim.baseline_scenario.zurich.router.trip.PublicTransitTripRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.trip.TripRouter;
 import ch.sbb.matsim.routing.pt.raptor.DefaultRaptorIntermodalAccessEgress;
@@ -40,21 +48,36 @@ import ch.sbb.matsim.routing.pt.raptor.RaptorRouteSelector;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorFactory;
 
 public class PublicTransitRoutingModule extends AbstractModule {
+	final private static double ROUTE_CACHE_BUCKET_SIZE = 60.0;
+
 	final private Optional<Network> network;
 	final private Optional<TransitSchedule> transitSchedule;
 	final private Optional<ModeRoutingParams> transitWalkParams;
+	final private int routeCacheSize;
 
 	public PublicTransitRoutingModule(Network network, TransitSchedule transitSchedule,
 			ModeRoutingParams transitWalkParams) {
+		this(network, transitSchedule, transitWalkParams, 0);
+	}
+
+	/**
+	 * @param routeCacheSize maximum number of routes in the origin-destination
+	 *                       cache that is shared by all pt trip routers, 0
+	 *                       disables the cache
+	 */
+	public PublicTransitRoutingModule(Network network, TransitSchedule transitSchedule,
+			ModeRoutingParams transitWalkParams, int routeCacheSize) {
 		this.network = Optional.of(network);
 		this.transitSchedule = Optional.of(transitSchedule);
 		this.transitWalkParams = Optional.of(transitWalkParams);
+		this.routeCacheSize = routeCacheSize;
 	}
 
 	public PublicTransitRoutingModule() {
 		this.network = Optional.empty();
 		this.transitSchedule = Optional.empty();
 		this.transitWalkParams = Optional.empty();
+		this.routeCacheSize = 0;
 	}
 
 	@Override
@@ -70,9 +93,22 @@ public class PublicTransitRoutingModule extends AbstractModule {
 			bind(TransitSchedule.class).toInstance(transitSchedule.get());
 		}
 
-		bind(TransitRouter.class).toProvider(SwissRailRaptorFactory.class);
+		bind(SwissRailRaptorFactory.class).in(Singleton.class);
 	}
-	
+
+	/**
+	 * The factory prepares the raptor data for the schedule on its first call and
+	 * hands the same data to every raptor it creates afterwards. Hence, all trip
+	 * routers share one copy of the data and only the raptor with its search
+	 * state is created per instance. Preparing the data is not thread-safe.
+	 */
+	@Provides
+	public TransitRouter provideTransitRouter(SwissRailRaptorFactory factory) {
+		synchronized (factory) {
+			return factory.get();
+		}
+	}
+
 	@Provides
 	@Singleton
 	public RaptorIntermodalAccessEgress provideRaptorIntermodalAccessEgress() {
@@ -117,31 +153,76 @@ public class PublicTransitRoutingModule extends AbstractModule {
 
 	@Provides
 	@Singleton
-	public DepartureFinder provideDepartureFinder() {
-		return new DefaultDepartureFinder();
+	public CompiledTransitSchedule provideCompiledTransitSchedule(TransitSchedule transitSchedule) {
+		return new CompiledTransitSchedule(transitSchedule);
+	}
+
+	@Provides
+	@Singleton
+	public TransitRouteDistances provideTransitRouteDistances(CompiledTransitSchedule schedule, Network network) {
+		return new TransitRouteDistances(schedule, network);
+	}
+
+	@Provides
+	@Singleton
+	public TransitIdIndex provideTransitIdIndex(CompiledTransitSchedule schedule) {
+		return new TransitIdIndex(schedule);
+	}
+
+	@Provides
+	@Singleton
+	public DepartureFinder provideDepartureFinder(CompiledTransitSchedule schedule) {
+		return new IndexedDepartureFinder(schedule);
 	}
 
 	@Provides
 	@Singleton
-	public TransitConnectionFinder provideTransitConnectionFinder(DepartureFinder departureFinder) {
-		return new DefaultTransitConnectionFinder(departureFinder);
+	public TransitConnectionFinder provideTransitConnectionFinder(DepartureFinder departureFinder,
+			CompiledTransitSchedule schedule, Config config) {
+		ConfigGroup configGroup = config.getModules().get(BaselineTransitConfigGroup.GROUP_NAME);
+		BaselineTransitConfigGroup transitConfig = configGroup instanceof BaselineTransitConfigGroup
+				? (BaselineTransitConfigGroup) configGroup
+				: new BaselineTransitConfigGroup();
+		TransitConnectionFinder connectionFinder = new DefaultTransitConnectionFinder(departureFinder, schedule);
+
+		if (transitConfig.getConnectionCacheSize() > 0) {
+			connectionFinder = new CachingTransitConnectionFinder(connectionFinder, schedule,
+					transitConfig.getConnectionCacheSize());
+		}
+
+		return connectionFinder;
+	}
+
+	@Provides
+	@Singleton
+	public EnrichedTransitRouteCache provideEnrichedTransitRouteCache(TransitRouterConfigGroup transitConfig) {
+		return new EnrichedTransitRouteCache(routeCacheSize, ROUTE_CACHE_BUCKET_SIZE,
+				transitConfig.getAdditionalTransferTime());
 	}
 
 	@Provides
 	public EnrichedTransitRouter provideEnrichedTransitRouter(TransitRouter delegate,
 			TransitConnectionFinder connectionFinder, PlansCalcRouteConfigGroup routeConfig,
-			TransitRouterConfigGroup transitConfig, TransitSchedule transitSchedule, Network network) {
+			TransitRouterConfigGroup transitConfig, CompiledTransitSchedule schedule,
+			TransitRouteDistances distances, TransitIdIndex idIndex,
+			Provider<EnrichedTransitRouteCache> cacheProvider) {
 		double beelineDistanceFactor = routeConfig.getBeelineDistanceFactors().get("walk");
 		double additionalTransferTime = transitConfig.getAdditionalTransferTime();
 
-		return new DefaultEnrichedTransitRouter(delegate, transitSchedule, connectionFinder, network,
-				beelineDistanceFactor, additionalTransferTime);
+		EnrichedTransitRouter router = new DefaultEnrichedTransitRouter(delegate, schedule, connectionFinder,
+				distances, idIndex, beelineDistanceFactor, additionalTransferTime);
+
+		if (routeCacheSize > 0) {
+			router = new CachingEnrichedTransitRouter(router, cacheProvider.get());
+		}
+
+		return router;
 	}
 
 	@Provides
 	public PublicTransitTripRouter providePublicTransitTripRouter(DepartureFinder departureFinder,
-			EnrichedTransitRouter transitRouter, TransitSchedule transitSchedule, Network network,
+			EnrichedTransitRouter transitRouter, CompiledTransitSchedule schedule, Network network,
 			@Named("transit_walk") ModeRoutingParams transitWalkParams) {
-		return new PublicTransitTripRouter(network, transitSchedule, transitRouter, transitWalkParams);
+		return new PublicTransitTripRouter(network, schedule, transitRouter, transitWalkParams);
 	}
 }
@@ -1,7 +1,7 @@
 package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -30,7 +30,7 @@ public class DefaultParallelPlanRouter implements ParallelPlanRouter {
 
 	@Override
 	public CompletableFuture<List<PlanElement>> route(List<PlanElement> plan, Executor executor) {
-		List<CompletableFuture<List<PlanElement>>> futures = new LinkedList<>();
+		List<CompletableFuture<List<PlanElement>>> futures = new ArrayList<>();
 
 		for (TripStructureUtils.Trip trip : TripStructureUtils.getTrips(plan, stageActivityTypes)) {
 			if (futures.size() == 0) {
@@ -56,7 +56,7 @@ public class DefaultParallelPlanRouter implements ParallelPlanRouter {
 		CompletableFuture<Void> allFuture = CompletableFuture.allOf(futures.toArray(temporary));
 
 		return allFuture.thenApply(o -> {
-			List<PlanElement> result = new LinkedList<>();
+			List<PlanElement> result = new ArrayList<>(plan.size());
 
 			futures.forEach(f -> {
 				try {
@@ -1,12 +1,16 @@
 package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Person;
@@ -14,14 +18,91 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostEstimator;
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostReport;
 import ch.ethz.matsim.baseline_scenario.zurich.router.DefaultPopulationRouter;
 
+/**
+ * Routes all plans of a population in parallel. Only a bounded number of tasks
+ * is in flight at any time: a new task is submitted when a previous one has
+ * finished, and each plan gets its new elements as soon as it is routed.
+ *
+ * By default, every plan is one task. If plans are grouped by person, all plans
+ * of a person are routed one after another in one task on the same executor
+ * thread.
+ *
+ * If an estimator is given, tasks are submitted longest-first by their
+ * estimated cost, so that the expensive plans do not end up in the tail of the
+ * run. If a report is given, the time spent routing each plan is added to it.
+ */
 public class DefaultParallelPopulationRouter implements ParallelPopulationRouter {
 	final private Logger logger = Logger.getLogger(DefaultPopulationRouter.class);
 	final private ParallelPlanRouter planRouter;
+	final private int maximumTasksInFlight;
+	final private boolean groupPlansByPerson;
 
-	public DefaultParallelPopulationRouter(ParallelPlanRouter planRouter) {
+	final private RoutingCostEstimator estimator;
+	final private RoutingCostReport report;
+
+	// Runs the plan router on the thread of the enclosing person task
+	final private static Executor DIRECT_EXECUTOR = Runnable::run;
+
+	/**
+	 * Counts the timed runnables that have not finished yet. The completion
+	 * callbacks of a plan run inside its last timed runnable, so a plan may be
+	 * finished before its routing time is recorded.
+	 */
+	static private class RunnableCounter {
+		final private AtomicInteger active = new AtomicInteger(0);
+		final private AtomicReference<CountDownLatch> finished = new AtomicReference<>();
+
+		void increment() {
+			active.incrementAndGet();
+		}
+
+		void decrement() {
+			if (active.decrementAndGet() == 0) {
+				CountDownLatch latch = finished.get();
+
+				if (latch != null) {
+					latch.countDown();
+				}
+			}
+		}
+
+		/**
+		 * Waits for the active runnables. No new runnables may be submitted.
+		 */
+		void await() throws InterruptedException {
+			CountDownLatch latch = new CountDownLatch(1);
+			finished.set(latch);
+
+			if (active.get() > 0) {
+				latch.await();
+			}
+		}
+	}
+
+	public DefaultParallelPopulationRouter(ParallelPlanRouter planRouter, int maximumTasksInFlight) {
+		this(planRouter, maximumTasksInFlight, false);
+	}
+
+	public DefaultParallelPopulationRouter(ParallelPlanRouter planRouter, int maximumTasksInFlight,
+			boolean groupPlansByPerson) {
+		this(planRouter, maximumTasksInFlight, groupPlansByPerson, null, null);
+	}
+
+	/**
+	 * @param estimator may be null to route in population order
+	 * @param report    may be null if routing times should not be recorded
+	 */
+	public DefaultParallelPopulationRouter(ParallelPlanRouter planRouter, int maximumTasksInFlight,
+			boolean groupPlansByPerson, RoutingCostEstimator estimator, RoutingCostReport report) {
 		this.planRouter = planRouter;
+		this.maximumTasksInFlight = maximumTasksInFlight;
+		this.groupPlansByPerson = groupPlansByPerson;
+		this.estimator = estimator;
+		this.report = report;
 	}
 
 	private void progress(int numberOfPlans, int currentlyProcessed) {
@@ -29,27 +110,206 @@ public class DefaultParallelPopulationRouter implements ParallelPopulationRouter
 				100.0 * currentlyProcessed / numberOfPlans));
 	}
 
+	/**
+	 * Sorts the task indices by decreasing cost. The sort is stable, so tasks with
+	 * the same cost stay in population order.
+	 */
+	static void sortByDecreasingCost(int[] order, double[] costs) {
+		int[] buffer = new int[order.length];
+
+		for (int width = 1; width < order.length; width *= 2) {
+			for (int start = 0; start < order.length; start += 2 * width) {
+				int middle = Math.min(start + width, order.length);
+				int end = Math.min(start + 2 * width, order.length);
+
+				int left = start;
+				int right = middle;
+				int target = start;
+
+				while (left < middle && right < end) {
+					buffer[target++] = costs[order[right]] > costs[order[left]] ? order[right++] : order[left++];
+				}
+
+				while (left < middle) {
+					buffer[target++] = order[left++];
+				}
+
+				while (right < end) {
+					buffer[target++] = order[right++];
+				}
+			}
+
+			System.arraycopy(buffer, 0, order, 0, order.length);
+		}
+	}
+
+	/**
+	 * Wraps the executor such that the run time of everything that is executed
+	 * for the plan is added to its routing time.
+	 */
+	private Executor createTimedExecutor(Executor executor, AtomicLongArray routingTimes, int planIndex,
+			RunnableCounter runnables) {
+		return command -> {
+			runnables.increment();
+
+			try {
+				executor.execute(() -> {
+					long startTime = System.nanoTime();
+
+					try {
+						command.run();
+					} finally {
+						routingTimes.addAndGet(planIndex, System.nanoTime() - startTime);
+						runnables.decrement();
+					}
+				});
+			} catch (RuntimeException e) {
+				runnables.decrement();
+				throw e;
+			}
+		};
+	}
+
+
+	private CompletableFuture<Void> routePlan(Plan plan, Executor executor, Runnable onRouted) {
+		List<PlanElement> oldElements = new ArrayList<>(plan.getPlanElements());
+		plan.getPlanElements().clear();
+
+		CompletableFuture<List<PlanElement>> future;
+
+		try {
+			future = planRouter.route(oldElements, executor);
+		} catch (RuntimeException e) {
+			future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+		}
+
+		return future.handle((newElements, error) -> {
+			if (error != null) {
+				plan.getPlanElements().addAll(oldElements);
+				throw error instanceof CompletionException ? (CompletionException) error
+						: new CompletionException(error);
+			}
+
+			plan.getPlanElements().addAll(newElements);
+			onRouted.run();
+			return null;
+		});
+	}
+
+	private void track(CompletableFuture<Void> task, Semaphore window, AtomicReference<Throwable> failure) {
+		task.whenComplete((result, error) -> {
+			if (error != null) {
+				failure.compareAndSet(null,
+						error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+			}
+
+			window.release();
+		});
+	}
+
 	@Override
 	public void run(Population population, Executor executor) throws InterruptedException, ExecutionException {
-		AtomicInteger numberOfPlans = new AtomicInteger(0);
-		AtomicInteger currentlyProcessed = new AtomicInteger(0);
+		int numberOfPlans = 0;
+
+		for (Person person : population.getPersons().values()) {
+			numberOfPlans += person.getPlans().size();
+		}
 
-		List<Future<?>> futures = new LinkedList<>();
+		// Task i routes the plans from taskOffsets[i] to taskOffsets[i + 1] - 1
+		Plan[] plans = new Plan[numberOfPlans];
+		int[] taskOffsets = new int[numberOfPlans + 1];
+		int numberOfTasks = 0;
+		int planIndex = 0;
 
 		for (Person person : population.getPersons().values()) {
+			if (groupPlansByPerson && person.getPlans().size() > 0) {
+				taskOffsets[numberOfTasks++] = planIndex;
+			}
+
 			for (Plan plan : person.getPlans()) {
-				List<PlanElement> oldElements = new LinkedList<>(plan.getPlanElements());
-				plan.getPlanElements().clear();
+				if (!groupPlansByPerson) {
+					taskOffsets[numberOfTasks++] = planIndex;
+				}
+
+				plans[planIndex++] = plan;
+			}
+		}
+
+		taskOffsets[numberOfTasks] = planIndex;
+
+		double[] estimatedCosts = new double[numberOfPlans];
+		int[] order = new int[numberOfTasks];
+
+		for (int taskIndex = 0; taskIndex < numberOfTasks; taskIndex++) {
+			order[taskIndex] = taskIndex;
+		}
 
-				futures.add(planRouter.route(oldElements, executor).thenAccept(newElements -> {
-					plan.getPlanElements().addAll(newElements);
-					progress(numberOfPlans.get(), currentlyProcessed.incrementAndGet());
-				}));
+		if (estimator != null) {
+			double[] taskCosts = new double[numberOfTasks];
 
-				numberOfPlans.incrementAndGet();
+			for (int taskIndex = 0; taskIndex < numberOfTasks; taskIndex++) {
+				for (int index = taskOffsets[taskIndex]; index < taskOffsets[taskIndex + 1]; index++) {
+					estimatedCosts[index] = estimator.estimate(plans[index].getPlanElements());
+					taskCosts[taskIndex] += estimatedCosts[index];
+				}
 			}
+
+			sortByDecreasingCost(order, taskCosts);
 		}
 
-		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+		final int totalNumberOfPlans = numberOfPlans;
+		AtomicInteger currentlyProcessed = new AtomicInteger(0);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Semaphore window = new Semaphore(maximumTasksInFlight);
+
+		AtomicLongArray routingTimes = report == null ? null : new AtomicLongArray(numberOfPlans);
+		RunnableCounter runnables = new RunnableCounter();
+
+		Runnable onRouted = () -> progress(totalNumberOfPlans, currentlyProcessed.incrementAndGet());
+
+		for (int taskIndex : order) {
+			window.acquire();
+
+			if (failure.get() != null) {
+				window.release();
+				break;
+			}
+
+			int firstPlanIndex = taskOffsets[taskIndex];
+			int endPlanIndex = taskOffsets[taskIndex + 1];
+
+			if (groupPlansByPerson) {
+				track(CompletableFuture.runAsync(() -> {
+					for (int index = firstPlanIndex; index < endPlanIndex; index++) {
+						Executor planExecutor = report == null ? DIRECT_EXECUTOR
+								: createTimedExecutor(DIRECT_EXECUTOR, routingTimes, index, runnables);
+						routePlan(plans[index], planExecutor, onRouted).join();
+					}
+				}, executor), window, failure);
+			} else {
+				Executor planExecutor = report == null ? executor
+						: createTimedExecutor(executor, routingTimes, firstPlanIndex, runnables);
+				track(routePlan(plans[firstPlanIndex], planExecutor, onRouted), window, failure);
+			}
+		}
+
+		// Wait until all submitted tasks are finished
+		window.acquire(maximumTasksInFlight);
+		window.release(maximumTasksInFlight);
+
+		if (report != null) {
+			runnables.await();
+
+			for (int index = 0; index < numberOfPlans; index++) {
+				report.add(plans[index].getPerson().getId(), estimatedCosts[index], routingTimes.get(index));
+			}
+
+			report.printSummary();
+		}
+
+		if (failure.get() != null) {
+			throw new ExecutionException(failure.get());
+		}
 	}
 }
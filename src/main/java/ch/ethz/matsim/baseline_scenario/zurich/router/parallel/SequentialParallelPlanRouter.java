@@ -0,0 +1,70 @@
+package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.matsim.api.core.v01.population.PlanElement;
+
+import com.google.inject.Provider;
+
+import ch.ethz.matsim.baseline_scenario.zurich.router.PlanRouter;
+
+/**
+ * Parallel plan router that routes all trips of a plan in one task. The trips
+ * are routed sequentially by one PlanRouter, which avoids the overhead of one
+ * future per trip if trips are cheap to route.
+ *
+ * The PlanRouter instances are either taken from a fixed pool or, if created
+ * with a provider, owned by the executor threads.
+ */
+public class SequentialParallelPlanRouter implements ParallelPlanRouter {
+	final private BlockingQueue<PlanRouter> queue;
+	final private ThreadAffineInstances<PlanRouter> routers;
+
+	public SequentialParallelPlanRouter(List<PlanRouter> instances) {
+		this.queue = new ArrayBlockingQueue<>(instances.size());
+		this.queue.addAll(instances);
+		this.routers = null;
+	}
+
+	public SequentialParallelPlanRouter(Provider<PlanRouter> provider) {
+		this.queue = null;
+		this.routers = new ThreadAffineInstances<>(provider);
+	}
+
+	/**
+	 * Number of PlanRouter instances, which for the thread-affine router is the
+	 * number of executor threads that have routed a plan so far.
+	 */
+	public int getNumberOfInstances() {
+		return routers == null ? queue.remainingCapacity() + queue.size() : routers.getNumberOfInstances();
+	}
+
+	private List<PlanElement> routeSequentially(List<PlanElement> plan) {
+		if (routers != null) {
+			return routers.get().route(plan);
+		}
+
+		try {
+			PlanRouter router = queue.take();
+
+			try {
+				return router.route(plan);
+			} finally {
+				queue.put(router);
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<PlanElement>> route(List<PlanElement> plan, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			return routeSequentially(plan);
+		}, executor);
+	}
+}
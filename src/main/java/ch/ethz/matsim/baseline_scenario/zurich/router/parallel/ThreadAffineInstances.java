@@ -0,0 +1,51 @@
+package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.inject.Provider;
+
+/**
+ * Holds one instance per executor thread, created from the provider on the
+ * first call of the thread. The instances are referenced by this object and not
+ * by ThreadLocals, so they are released together with the router that owns them
+ * and do not stay attached to the threads of a long-lived executor.
+ */
+public class ThreadAffineInstances<T> {
+	final private Provider<T> provider;
+	final private Map<Thread, T> instances = new ConcurrentHashMap<>();
+
+	public ThreadAffineInstances(Provider<T> provider) {
+		this.provider = provider;
+	}
+
+	public T get() {
+		Thread thread = Thread.currentThread();
+		T instance = instances.get(thread);
+
+		if (instance == null) {
+			// Some routers do heavy initialization which should not run concurrently
+			synchronized (provider) {
+				instance = provider.get();
+			}
+
+			// Only the current thread writes its own entry
+			instances.put(thread, instance);
+		}
+
+		return instance;
+	}
+
+	public int getNumberOfInstances() {
+		return instances.size();
+	}
+
+	/**
+	 * Returns the instances that have been created so far, e.g. to collect their
+	 * statistics once the executor is done.
+	 */
+	public Collection<T> getInstances() {
+		return instances.values();
+	}
+}
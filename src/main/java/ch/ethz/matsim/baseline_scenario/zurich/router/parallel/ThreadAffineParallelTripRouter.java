@@ -0,0 +1,38 @@
+package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.matsim.api.core.v01.population.PlanElement;
+
+import com.google.inject.Provider;
+
+import ch.ethz.matsim.baseline_scenario.zurich.router.trip.TripRouter;
+import ch.ethz.matsim.baseline_scenario.zurich.utils.ActivityWithFacility;
+
+/**
+ * Parallel trip router in which every executor thread owns one TripRouter.
+ * The instance is created on the first trip that the thread routes and is used
+ * for all further trips on that thread, so there is no handoff between threads
+ * and the number of instances equals the number of worker threads.
+ */
+public class ThreadAffineParallelTripRouter implements ParallelTripRouter {
+	final private ThreadAffineInstances<TripRouter> routers;
+
+	public ThreadAffineParallelTripRouter(Provider<TripRouter> provider) {
+		this.routers = new ThreadAffineInstances<>(provider);
+	}
+
+	public int getNumberOfInstances() {
+		return routers.getNumberOfInstances();
+	}
+
+	@Override
+	public CompletableFuture<List<PlanElement>> route(ActivityWithFacility originActivity, List<PlanElement> trip,
+			ActivityWithFacility destinationActivity, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			return routers.get().route(originActivity, trip, destinationActivity);
+		}, executor);
+	}
+}
@@ -16,6 +16,7 @@ import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.router.DijkstraFactory;
 import org.matsim.core.router.MainModeIdentifier;
 import org.matsim.core.router.MainModeIdentifierImpl;
 import org.matsim.core.router.StageActivityTypes;
@@ -23,14 +24,15 @@ import org.matsim.core.router.StageActivityTypesImpl;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.facilities.MatsimFacilitiesReader;
 import org.matsim.pt.PtConstants;
-import org.matsim.pt.router.TransitRouter;
 import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
+import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRouteCache;
 import ch.ethz.matsim.baseline_scenario.utils.Downsample;
+import ch.ethz.matsim.baseline_scenario.utils.routing.StaticPathCache;
 import ch.ethz.matsim.baseline_scenario.zurich.router.PopulationRouter;
 import ch.ethz.matsim.baseline_scenario.zurich.router.modules.BikeRoutingModule;
 import ch.ethz.matsim.baseline_scenario.zurich.router.modules.CarRoutingModule;
@@ -40,9 +42,11 @@ import ch.ethz.matsim.baseline_scenario.zurich.router.modules.PublicTransitRouti
 import ch.ethz.matsim.baseline_scenario.zurich.router.modules.SequentialRouterModule;
 import ch.ethz.matsim.baseline_scenario.zurich.router.modules.WalkRoutingModule;
 import ch.ethz.matsim.baseline_scenario.zurich.router.parallel.ParallelPopulationRouter;
-import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorFactory;
 
 public class RunPopulationRouter {
+	final private static int PT_ROUTE_CACHE_SIZE = 200000;
+	final private static long CAR_PATH_CACHE_MEMORY = 256L * 1024L * 1024L;
+
 	static public void main(String[] args) throws InterruptedException, ExecutionException {
 		String configInputPath = args[0];
 		String populationInputPath = args[1];
@@ -74,9 +78,10 @@ public class RunPopulationRouter {
 
 		config.transitRouter().setAdditionalTransferTime(120.0);
 
-		Injector injector = Guice.createInjector(routerModule, new CarRoutingModule(roadNetwork),
+		Injector injector = Guice.createInjector(routerModule,
+				new CarRoutingModule(roadNetwork, new DijkstraFactory(), CAR_PATH_CACHE_MEMORY),
 				new PublicTransitRoutingModule(scenario.getNetwork(), scenario.getTransitSchedule(),
-						config.plansCalcRoute().getModeRoutingParams().get("walk")),
+						config.plansCalcRoute().getModeRoutingParams().get("walk"), PT_ROUTE_CACHE_SIZE),
 				new BikeRoutingModule(config.plansCalcRoute().getModeRoutingParams().get("bike")),
 				new WalkRoutingModule(config.plansCalcRoute().getModeRoutingParams().get("walk")),
 				new OutsideRoutingModule(outsideModeRoutingParams), new AbstractModule() {
@@ -86,7 +91,6 @@ public class RunPopulationRouter {
 								.toInstance(new StageActivityTypesImpl(PtConstants.TRANSIT_ACTIVITY_TYPE));
 						bind(MainModeIdentifier.class).toInstance(new MainModeIdentifierImpl());
 						bind(Config.class).toInstance(config);
-						bind(TransitRouter.class).toProvider(SwissRailRaptorFactory.class);
 					}
 				});
 
@@ -98,6 +102,9 @@ public class RunPopulationRouter {
 			executor.shutdown();
 		}
 
+		injector.getInstance(EnrichedTransitRouteCache.class).printStatistics();
+		injector.getInstance(StaticPathCache.class).printStatistics();
+
 		new PopulationWriter(scenario.getPopulation()).write(populationOutputPath);
 	}
 }
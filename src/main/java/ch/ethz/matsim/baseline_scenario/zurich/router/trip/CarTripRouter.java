@@ -20,10 +20,13 @@ public class CarTripRouter implements TripRouter {
 	final private TripRouterWithRoutingModule delegate;
 
 	public CarTripRouter(Network network) {
+		this(network, new DijkstraFactory());
+	}
+
+	public CarTripRouter(Network network, LeastCostPathCalculatorFactory pathCalculatorFactory) {
 		TravelTime travelTime = new FreeSpeedTravelTime();
 		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
 
-		LeastCostPathCalculatorFactory pathCalculatorFactory = new DijkstraFactory();
 		LeastCostPathCalculator pathCalculator = pathCalculatorFactory.createPathCalculator(network, travelDisutility,
 				travelTime);
 
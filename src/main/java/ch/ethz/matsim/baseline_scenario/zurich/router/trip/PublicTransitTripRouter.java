@@ -5,19 +5,19 @@ import java.util.List;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.ModeRoutingParams;
-import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 import ch.ethz.matsim.baseline_scenario.transit.routing.BaselineTransitRoutingModule;
 import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRouter;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
 import ch.ethz.matsim.baseline_scenario.zurich.utils.ActivityWithFacility;
 
 public class PublicTransitTripRouter implements TripRouter {
 	final private TripRouterWithRoutingModule delegate;
 
-	public PublicTransitTripRouter(Network network, TransitSchedule transitSchedule,
+	public PublicTransitTripRouter(Network network, CompiledTransitSchedule schedule,
 			EnrichedTransitRouter transitRouter, ModeRoutingParams walkParams) {
 		this.delegate = new TripRouterWithRoutingModule(
-				new BaselineTransitRoutingModule(transitRouter, transitSchedule));
+				new BaselineTransitRoutingModule(transitRouter, schedule));
 	}
 
 	@Override
@@ -0,0 +1,88 @@
+package ch.ethz.matsim.baseline_scenario.transit.connection;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnectionFinder.NoConnectionFoundException;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DefaultDepartureFinder;
+
+public class TestCachingTransitConnectionFinder {
+	@Test
+	public void testCaching() throws NoConnectionFoundException {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitStopFacility facility1 = factory.createTransitStopFacility(Id.create("A", TransitStopFacility.class),
+				null, false);
+		TransitStopFacility facility2 = factory.createTransitStopFacility(Id.create("B", TransitStopFacility.class),
+				null, false);
+
+		TransitRouteStop stop1 = factory.createTransitRouteStop(facility1, 0.0, 0.0);
+		TransitRouteStop stop2 = factory.createTransitRouteStop(facility2, 300.0, 300.0);
+
+		TransitRoute transitRoute = factory.createTransitRoute(Id.create("route", TransitRoute.class), null,
+				Arrays.asList(stop1, stop2), "bus");
+		transitRoute.addDeparture(factory.createDeparture(Id.create("d1", Departure.class), 1000.0));
+		transitRoute.addDeparture(factory.createDeparture(Id.create("d2", Departure.class), 2000.0));
+
+		int[] delegateCalls = new int[] { 0 };
+		TransitLine transitLine = factory.createTransitLine(Id.create("line", TransitLine.class));
+		transitLine.addRoute(transitRoute);
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(transitLine);
+
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		TransitConnectionFinder defaultFinder = new DefaultTransitConnectionFinder(new DefaultDepartureFinder(),
+				schedule);
+
+		CachingTransitConnectionFinder finder = new CachingTransitConnectionFinder(
+				(departureTime, totalTravelTime, accessStopId, egressStopId, route) -> {
+					delegateCalls[0]++;
+					return defaultFinder.findConnection(departureTime, totalTravelTime, accessStopId, egressStopId,
+							route);
+				}, schedule, 16);
+
+		TransitConnection first = finder.findConnection(900.0, 400.0, facility1.getId(), facility2.getId(),
+				transitRoute);
+		TransitConnection second = finder.findConnection(900.0, 400.0, facility1.getId(), facility2.getId(),
+				transitRoute);
+		TransitConnection third = finder.findConnection(1900.0, 400.0, facility1.getId(), facility2.getId(),
+				transitRoute);
+
+		// Another agent arrives later at the stop, but boards the same departure
+		TransitConnection fourth = finder.findConnection(950.0, 350.0, facility1.getId(), facility2.getId(),
+				transitRoute);
+
+		Assert.assertEquals("d1", first.getDeparture().getId().toString());
+		Assert.assertEquals("d1", second.getDeparture().getId().toString());
+		Assert.assertEquals("d2", third.getDeparture().getId().toString());
+		Assert.assertEquals("d1", fourth.getDeparture().getId().toString());
+
+		Assert.assertEquals(100.0, first.getWaitingTime(), 1e-3);
+		Assert.assertEquals(100.0, second.getWaitingTime(), 1e-3);
+		Assert.assertEquals(100.0, third.getWaitingTime(), 1e-3);
+		Assert.assertEquals(50.0, fourth.getWaitingTime(), 1e-3);
+
+		Assert.assertEquals(300.0, fourth.getInVehicleTime(), 1e-3);
+		Assert.assertEquals(0, fourth.getAccessStopIndex());
+		Assert.assertEquals(1, fourth.getEgressStopIndex());
+		Assert.assertSame(stop1, fourth.getAccessStop());
+		Assert.assertSame(stop2, fourth.getEgressStop());
+
+		Assert.assertEquals(2, delegateCalls[0]);
+		Assert.assertEquals(2, finder.getHits());
+		Assert.assertEquals(2, finder.getMisses());
+	}
+}
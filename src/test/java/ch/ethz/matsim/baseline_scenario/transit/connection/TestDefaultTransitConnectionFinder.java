@@ -7,21 +7,32 @@ import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
 import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import ch.ethz.matsim.baseline_scenario.transit.connection.TransitConnectionFinder.NoConnectionFoundException;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DefaultDepartureFinder;
 import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
 
 public class TestDefaultTransitConnectionFinder {
-	@Test
-	public void testASM52() throws NoConnectionFoundException {
+	private TransitConnectionFinder createFinder(TransitScheduleFactory factory, TransitRoute transitRoute) {
+		TransitLine transitLine = factory.createTransitLine(Id.create("line", TransitLine.class));
+		transitLine.addRoute(transitRoute);
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(transitLine);
+
 		DepartureFinder departureFinder = new DefaultDepartureFinder();
-		TransitConnectionFinder finder = new DefaultTransitConnectionFinder(departureFinder);
+		return new DefaultTransitConnectionFinder(departureFinder, new CompiledTransitSchedule(transitSchedule));
+	}
 
+	@Test
+	public void testASM52() throws NoConnectionFoundException {
 		/*
 		 * Schedule based on Line 52 (Aare Seeland Mobil)in Switzerland Note that there
 		 * is a loop starting at stop 12, for a couple of stations the bus is going the
@@ -123,6 +134,8 @@ public class TestDefaultTransitConnectionFinder {
 				departure13, departure14, departure15, departure16, departure17, departure18, departure19, departure20)
 				.forEach(departure -> transitRoute.addDeparture(departure));
 
+		TransitConnectionFinder finder = createFinder(factory, transitRoute);
+
 		// Case 1: Simple
 
 		double departureTime = 9.0 * 3600.0 + 20.0 * 60.0; // (2min waiting time)
@@ -179,6 +192,8 @@ public class TestDefaultTransitConnectionFinder {
 
 		Assert.assertSame(stop13, connection.getAccessStop());
 		Assert.assertSame(stop22, connection.getEgressStop());
+		Assert.assertEquals(12, connection.getAccessStopIndex());
+		Assert.assertEquals(21, connection.getEgressStopIndex());
 		Assert.assertSame(departure14, connection.getDeparture());
 		Assert.assertEquals(13.0 * 60.0, connection.getInVehicleTime(), 1e-3);
 		Assert.assertEquals(3.0 * 60.0, connection.getWaitingTime(), 1e-3);
@@ -186,9 +201,6 @@ public class TestDefaultTransitConnectionFinder {
 
 	@Test
 	public void testLeysin170() throws NoConnectionFoundException {
-		DepartureFinder departureFinder = new DefaultDepartureFinder();
-		TransitConnectionFinder finder = new DefaultTransitConnectionFinder(departureFinder);
-
 		/*
 		 * Schedule based on Line 170 in Leysin, Switzerland. Note that there are
 		 * several loops in the route, but also a repetition of a sequence of stops
@@ -291,6 +303,8 @@ public class TestDefaultTransitConnectionFinder {
 		Arrays.asList(departure8, departure9, departure10, departure11, departure12, departure13, departure14,
 				departure15, departure16, departure17).forEach(departure -> transitRoute.addDeparture(departure));
 
+		TransitConnectionFinder finder = createFinder(factory, transitRoute);
+
 		// Case 1: The connection before the loop is meant
 
 		double departureTime = 9.0 * 3600.0 + 35.0 * 60.0 - 2.0 * 60.0; // (2min waiting time)
@@ -317,6 +331,8 @@ public class TestDefaultTransitConnectionFinder {
 
 		Assert.assertSame(stop21, connection.getAccessStop());
 		Assert.assertSame(stop22, connection.getEgressStop());
+		Assert.assertEquals(20, connection.getAccessStopIndex());
+		Assert.assertEquals(21, connection.getEgressStopIndex());
 		Assert.assertSame(departure12, connection.getDeparture());
 		Assert.assertEquals(2.0 * 60.0, connection.getInVehicleTime(), 1e-3);
 		Assert.assertEquals(1.0 * 60.0, connection.getWaitingTime(), 1e-3);
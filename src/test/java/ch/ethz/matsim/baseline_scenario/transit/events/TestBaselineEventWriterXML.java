@@ -0,0 +1,141 @@
+package ch.ethz.matsim.baseline_scenario.transit.events;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.events.EventsReaderXMLv1;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TestBaselineEventWriterXML {
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	private List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+
+		for (int i = 0; i < 10; i++) {
+			Id<Person> personId = Id.create("person" + i, Person.class);
+
+			// Ids with characters that must be escaped in XML
+			events.add(new PublicTransitEvent(8.0 * 3600.0 + i * 61.5, personId,
+					Id.create("line <" + (i % 3) + ">", TransitLine.class),
+					Id.create("route \"" + (i % 2) + "\"", TransitRoute.class),
+					Id.create("stop&" + i, TransitStopFacility.class),
+					Id.create("stop&" + (i + 1), TransitStopFacility.class), 8.0 * 3600.0 + i * 30.0,
+					1234.5 * i));
+			events.add(new TeleportationArrivalEvent(8.0 * 3600.0 + i * 61.5, personId, 1234.5 * i));
+		}
+
+		events.add(new PersonStuckEvent(30.0 * 3600.0, Id.create("person0", Person.class),
+				Id.create("link", Link.class), "pt"));
+
+		return events;
+	}
+
+	private void writeEvents(EventWriter writer, List<Event> events) {
+		for (Event event : events) {
+			((BasicEventHandler) writer).handleEvent(event);
+		}
+
+		writer.closeFile();
+	}
+
+	@Test
+	public void testSameOutputAsStandardWriter() throws IOException {
+		List<Event> events = createEvents();
+
+		String standardPath = utils.getOutputDirectory() + "standard_events.xml";
+		String baselinePath = utils.getOutputDirectory() + "baseline_events.xml";
+
+		writeEvents(new EventWriterXML(standardPath), events);
+		writeEvents(new BaselineEventWriterXML(baselinePath), events);
+
+		Assert.assertEquals(new String(Files.readAllBytes(Paths.get(standardPath)), StandardCharsets.UTF_8),
+				new String(Files.readAllBytes(Paths.get(baselinePath)), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testRoundTrip() {
+		List<Event> events = createEvents();
+		String path = utils.getOutputDirectory() + "baseline_events.xml.gz";
+		writeEvents(new BaselineEventWriterXML(path), events);
+
+		List<PublicTransitEvent> readEvents = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+
+		eventsManager.addHandler((BasicEventHandler) event -> {
+			if (event instanceof PublicTransitEvent) {
+				readEvents.add((PublicTransitEvent) event);
+			}
+		});
+
+		EventsReaderXMLv1 reader = new EventsReaderXMLv1(eventsManager);
+		reader.addCustomEventMapper(PublicTransitEvent.TYPE, new PublicTransitEventMapper());
+		reader.readFile(path);
+
+		List<PublicTransitEvent> writtenEvents = new ArrayList<>();
+
+		for (Event event : events) {
+			if (event instanceof PublicTransitEvent) {
+				writtenEvents.add((PublicTransitEvent) event);
+			}
+		}
+
+		Assert.assertEquals(writtenEvents.size(), readEvents.size());
+
+		for (int i = 0; i < writtenEvents.size(); i++) {
+			PublicTransitEvent written = writtenEvents.get(i);
+			PublicTransitEvent read = readEvents.get(i);
+
+			Assert.assertEquals(written.getTime(), read.getTime(), 1e-6);
+			Assert.assertSame(written.getPersonId(), read.getPersonId());
+			Assert.assertSame(written.getTransitLineId(), read.getTransitLineId());
+			Assert.assertSame(written.getTransitRouteId(), read.getTransitRouteId());
+			Assert.assertSame(written.getAccessStopId(), read.getAccessStopId());
+			Assert.assertSame(written.getEgressStopId(), read.getEgressStopId());
+			Assert.assertEquals(written.getVehicleDepartureTime(), read.getVehicleDepartureTime(), 1e-6);
+			Assert.assertEquals(written.getTravelDistance(), read.getTravelDistance(), 1e-6);
+			Assert.assertEquals(Arrays.asList(written.getSerializedValues()),
+					Arrays.asList(read.getSerializedValues()));
+		}
+	}
+
+	@Test
+	public void testIdCache() {
+		// A single slot, so the two keys replace each other
+		IdCache<Person> cache = new IdCache<>(Person.class, 1);
+
+		for (int i = 0; i < 3; i++) {
+			Assert.assertSame(Id.create("a", Person.class), cache.get("a"));
+			Assert.assertSame(Id.create("b", Person.class), cache.get("b"));
+		}
+
+		IdCache<Person> largeCache = new IdCache<>(Person.class, 100);
+
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertSame(Id.create("person" + (i % 150), Person.class), largeCache.get("person" + (i % 150)));
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+
+public class TestCompactEnrichedTransitRoute {
+	@Test
+	public void testCompatibility() {
+		DefaultEnrichedTransitRoute defaultRoute = new DefaultEnrichedTransitRoute(null, null, 100.0, 30.0, 55.0, 20,
+				40, Id.create("abc", TransitLine.class), Id.create("def", TransitRoute.class),
+				Id.create("dep", Departure.class));
+
+		CompactEnrichedTransitRoute compactRoute = new CompactEnrichedTransitRoute(new TransitIdIndex(), null, null);
+		compactRoute.setRouteDescription(defaultRoute.getRouteDescription());
+
+		Assert.assertEquals(defaultRoute.getRouteType(), compactRoute.getRouteType());
+		Assert.assertEquals(defaultRoute.getRouteDescription(), compactRoute.getRouteDescription());
+
+		Assert.assertEquals(30.0, compactRoute.getInVehicleTime(), 1e-3);
+		Assert.assertEquals(55.0, compactRoute.getWaitingTime(), 1e-3);
+		Assert.assertEquals(20, compactRoute.getAccessStopIndex());
+		Assert.assertEquals(40, compactRoute.getEgressStopIndex());
+		Assert.assertEquals(defaultRoute.getTransitLineId(), compactRoute.getTransitLineId());
+		Assert.assertEquals(defaultRoute.getTransitRouteId(), compactRoute.getTransitRouteId());
+		Assert.assertEquals(defaultRoute.getDepartureId(), compactRoute.getDepartureId());
+
+		CompactEnrichedTransitRoute clone = compactRoute.clone();
+		Assert.assertEquals(compactRoute.getRouteDescription(), clone.getRouteDescription());
+		Assert.assertEquals(compactRoute.getTravelTime(), clone.getTravelTime(), 1e-3);
+
+		CompactEnrichedTransitRoute shifted = compactRoute.withTransferTime(25.0);
+		Assert.assertEquals(25.0, shifted.getWaitingTime(), 1e-3);
+		Assert.assertEquals(55.0, shifted.getTravelTime(), 1e-3);
+		Assert.assertEquals(compactRoute.getDepartureId(), shifted.getDepartureId());
+	}
+
+	@Test
+	public void testTransitIdIndex() {
+		TransitIdIndex index = new TransitIdIndex();
+
+		Assert.assertEquals(-1, index.getLineIndex(null));
+		Assert.assertNull(index.getLineId(-1));
+		Assert.assertEquals(0, index.getNumberOfLines());
+
+		int lineIndex = index.getLineIndex(Id.create("line", TransitLine.class));
+		Assert.assertEquals(lineIndex, index.getLineIndex(Id.create("line", TransitLine.class)));
+		Assert.assertEquals(Id.create("line", TransitLine.class), index.getLineId(lineIndex));
+		Assert.assertEquals(1, index.getNumberOfLines());
+
+		// A route without departure, as it may be read from a population file
+		CompactEnrichedTransitRoute route = new CompactEnrichedTransitRoute(index, null, null, 100.0, 30.0, 55.0, 0,
+				1, Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class), null);
+		Assert.assertNull(route.getDepartureId());
+		Assert.assertEquals(0, index.getNumberOfDepartures());
+
+		// Numberings are independent of each other
+		TransitIdIndex otherIndex = new TransitIdIndex();
+		otherIndex.getLineIndex(Id.create("other", TransitLine.class));
+		Assert.assertEquals(1, index.getNumberOfLines());
+	}
+}
@@ -44,4 +44,52 @@ public class TestDefaultEnrichedTransitRoute {
 		Assert.assertEquals(description.transitLineId, deserialized.transitLineId);
 		Assert.assertEquals(description.transitRouteId, deserialized.transitRouteId);
 	}
+
+	@Test
+	public void testCompactRouteDescription() {
+		DefaultEnrichedTransitRoute route = new DefaultEnrichedTransitRoute(null, null, 0.0, 30.0, 55.5, 20, 40,
+				Id.create("abc|1", TransitLine.class), Id.create("d\\ef", TransitRoute.class),
+				Id.create("dep", Departure.class));
+
+		String serialized = route.getRouteDescription();
+		Assert.assertEquals("30|55.5|20|40|abc\\|1|d\\\\ef|dep", serialized);
+
+		DefaultEnrichedTransitRoute deserialized = new DefaultEnrichedTransitRoute(null, null);
+		deserialized.setRouteDescription(serialized);
+
+		Assert.assertEquals(30.0, deserialized.getInVehicleTime(), 1e-3);
+		Assert.assertEquals(55.5, deserialized.getWaitingTime(), 1e-3);
+		Assert.assertEquals(20, deserialized.getAccessStopIndex());
+		Assert.assertEquals(40, deserialized.getEgressStopIndex());
+		Assert.assertEquals("abc|1", deserialized.getTransitLineId().toString());
+		Assert.assertEquals("d\\ef", deserialized.getTransitRouteId().toString());
+		Assert.assertEquals("dep", deserialized.getDepartureId().toString());
+	}
+
+	@Test
+	public void testJsonRouteDescription() {
+		DefaultEnrichedTransitRoute route = new DefaultEnrichedTransitRoute(null, null);
+		route.setRouteDescription(
+				"{\"inVehicleTime\":30.0,\"transferTime\":55.0,\"accessStopIndex\":20,\"egressStopindex\":40,\"transitRouteId\":\"def\",\"transitLineId\":\"abc\",\"departureId\":\"dep\"}");
+
+		Assert.assertEquals(30.0, route.getInVehicleTime(), 1e-3);
+		Assert.assertEquals(40, route.getEgressStopIndex());
+		Assert.assertEquals("abc", route.getTransitLineId().toString());
+		Assert.assertEquals("30|55|20|40|abc|def|dep", route.getRouteDescription());
+	}
+
+	@Test
+	public void testLazyRouteDescription() {
+		// Untouched descriptions are written back as they were read
+		String description = "{\"inVehicleTime\":30.0,\"transferTime\":55.0,\"accessStopIndex\":20,\"egressStopindex\":40,\"transitRouteId\":\"def\",\"transitLineId\":\"abc\",\"departureId\":\"dep\"}";
+
+		DefaultEnrichedTransitRoute route = new DefaultEnrichedTransitRoute(null, null);
+		route.setRouteDescription(description);
+		Assert.assertSame(description, route.getRouteDescription());
+		Assert.assertSame(description, route.clone().getRouteDescription());
+
+		// After decoding, the compact format is written
+		Assert.assertEquals(20, route.getAccessStopIndex());
+		Assert.assertEquals("30|55|20|40|abc|def|dep", route.getRouteDescription());
+	}
 }
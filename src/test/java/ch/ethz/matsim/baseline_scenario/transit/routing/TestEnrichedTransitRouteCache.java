@@ -0,0 +1,131 @@
+package ch.ethz.matsim.baseline_scenario.transit.routing;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class TestEnrichedTransitRouteCache {
+	final private static double BUCKET_SIZE = 900.0;
+	final private static double MINIMUM_TRANSFER_TIME = 60.0;
+
+	final private TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+	final private TransitStopFacility fromFacility = createFacility("from", 0.0);
+	final private TransitStopFacility toFacility = createFacility("to", 5000.0);
+
+	private TransitStopFacility createFacility(String id, double x) {
+		TransitStopFacility facility = factory.createTransitStopFacility(Id.create(id, TransitStopFacility.class),
+				new Coord(x, 0.0), false);
+		facility.setLinkId(Id.create(id, Link.class));
+		return facility;
+	}
+
+	/**
+	 * Walks 120s to the stop and waits there for the vehicle, which arrives at
+	 * the destination 600s after leaving.
+	 */
+	private List<Leg> createLegs(double departureTime, double waitingTime) {
+		Leg accessLeg = PopulationUtils.createLeg("access_walk");
+		accessLeg.setDepartureTime(departureTime);
+		accessLeg.setTravelTime(120.0);
+		accessLeg.setRoute(new GenericRouteImpl(Id.create("from", Link.class), Id.create("stop", Link.class)));
+
+		Leg ptLeg = PopulationUtils.createLeg("pt");
+		ptLeg.setDepartureTime(departureTime + 120.0);
+		ptLeg.setTravelTime(waitingTime + 600.0);
+		ptLeg.setRoute(new DefaultEnrichedTransitRoute(Id.create("stop", Link.class), Id.create("to", Link.class),
+				4000.0, 600.0, waitingTime, 0, 3, Id.create("line", TransitLine.class),
+				Id.create("route", TransitRoute.class), Id.create("departure", Departure.class)));
+
+		return Arrays.asList(accessLeg, ptLeg);
+	}
+
+	private void assertLegs(List<Leg> legs, double departureTime, double waitingTime) {
+		Assert.assertNotNull(legs);
+		Assert.assertEquals(2, legs.size());
+
+		Assert.assertEquals(departureTime, legs.get(0).getDepartureTime(), 1e-6);
+		Assert.assertEquals(120.0, legs.get(0).getTravelTime(), 1e-6);
+
+		EnrichedTransitRoute route = (EnrichedTransitRoute) legs.get(1).getRoute();
+		Assert.assertEquals(departureTime + 120.0, legs.get(1).getDepartureTime(), 1e-6);
+		Assert.assertEquals(waitingTime + 600.0, legs.get(1).getTravelTime(), 1e-6);
+		Assert.assertEquals(waitingTime, route.getWaitingTime(), 1e-6);
+		Assert.assertEquals(waitingTime + 600.0, route.getTravelTime(), 1e-6);
+		Assert.assertEquals(600.0, route.getInVehicleTime(), 1e-6);
+		Assert.assertEquals(Id.create("departure", Departure.class), route.getDepartureId());
+	}
+
+	@Test
+	public void testLaterDeparture() {
+		EnrichedTransitRouteCache cache = new EnrichedTransitRouteCache(10, BUCKET_SIZE, MINIMUM_TRANSFER_TIME);
+		double departureTime = 8.0 * 3600.0 + 300.0;
+		cache.put(fromFacility, toFacility, departureTime, createLegs(departureTime, 300.0));
+
+		// Same departure time
+		assertLegs(cache.get(fromFacility, toFacility, departureTime), departureTime, 300.0);
+
+		// Leaving later shortens the waiting time, the vehicle is the same
+		assertLegs(cache.get(fromFacility, toFacility, departureTime + 100.0), departureTime + 100.0, 200.0);
+		assertLegs(cache.get(fromFacility, toFacility, departureTime + 240.0), departureTime + 240.0, 60.0);
+
+		Assert.assertEquals(3, cache.getHits());
+		Assert.assertEquals(0, cache.getMisses());
+
+		// Returned legs are copies
+		List<Leg> legs = cache.get(fromFacility, toFacility, departureTime);
+		legs.get(0).setDepartureTime(0.0);
+		assertLegs(cache.get(fromFacility, toFacility, departureTime), departureTime, 300.0);
+	}
+
+	@Test
+	public void testEarlierDeparture() {
+		EnrichedTransitRouteCache cache = new EnrichedTransitRouteCache(10, BUCKET_SIZE, MINIMUM_TRANSFER_TIME);
+		double departureTime = 8.0 * 3600.0 + 300.0;
+		cache.put(fromFacility, toFacility, departureTime, createLegs(departureTime, 300.0));
+
+		// An earlier vehicle might be reachable, so the route is not reused
+		Assert.assertNull(cache.get(fromFacility, toFacility, departureTime - 100.0));
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+
+		// The route of the earlier departure replaces the stored one and is reused
+		// for the later departure
+		cache.put(fromFacility, toFacility, departureTime - 100.0, createLegs(departureTime - 100.0, 400.0));
+		assertLegs(cache.get(fromFacility, toFacility, departureTime - 100.0), departureTime - 100.0, 400.0);
+		assertLegs(cache.get(fromFacility, toFacility, departureTime), departureTime, 300.0);
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testBelowMinimumTransferTime() {
+		EnrichedTransitRouteCache cache = new EnrichedTransitRouteCache(10, BUCKET_SIZE, MINIMUM_TRANSFER_TIME);
+		double departureTime = 8.0 * 3600.0 + 300.0;
+		cache.put(fromFacility, toFacility, departureTime, createLegs(departureTime, 300.0));
+
+		// Only 59s would be left to board the vehicle
+		Assert.assertNull(cache.get(fromFacility, toFacility, departureTime + 241.0));
+
+		// Still in the bucket, but the vehicle has left
+		Assert.assertNull(cache.get(fromFacility, toFacility, departureTime + 500.0));
+
+		// Next bucket
+		Assert.assertNull(cache.get(fromFacility, toFacility, 8.25 * 3600.0));
+
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertEquals(3, cache.getMisses());
+	}
+}
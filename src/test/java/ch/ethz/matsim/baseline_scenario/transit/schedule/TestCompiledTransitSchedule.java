@@ -0,0 +1,253 @@
+package ch.ethz.matsim.baseline_scenario.transit.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class TestCompiledTransitSchedule {
+	private TransitStopFacility createFacility(TransitScheduleFactory factory, String id, double x, double y) {
+		TransitStopFacility facility = factory.createTransitStopFacility(Id.create(id, TransitStopFacility.class),
+				new Coord(x, y), false);
+		facility.setLinkId(Id.create(id, Link.class));
+		return facility;
+	}
+
+	@Test
+	public void testCompiledTransitSchedule() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitStopFacility facilityA = createFacility(factory, "A", 0.0, 0.0);
+		TransitStopFacility facilityB = createFacility(factory, "B", 1000.0, 0.0);
+		TransitStopFacility facilityC = createFacility(factory, "C", 2000.0, 500.0);
+
+		TransitRouteStop stopA = factory.createTransitRouteStop(facilityA, 0.0, 0.0);
+		TransitRouteStop stopB = factory.createTransitRouteStop(facilityB, 100.0, 120.0);
+		TransitRouteStop stopC = factory.createTransitRouteStop(facilityC, 300.0, 300.0);
+
+		TransitRoute forwardRoute = factory.createTransitRoute(Id.create("forward", TransitRoute.class), null,
+				Arrays.asList(stopA, stopB, stopC), "pt");
+
+		Departure departureAt09 = factory.createDeparture(Id.create("09:00", Departure.class), 9.0 * 3600.0);
+		Departure departureAt08 = factory.createDeparture(Id.create("08:00", Departure.class), 8.0 * 3600.0);
+		forwardRoute.addDeparture(departureAt09);
+		forwardRoute.addDeparture(departureAt08);
+
+		TransitRouteStop stopC2 = factory.createTransitRouteStop(facilityC, 0.0, 0.0);
+		TransitRouteStop stopA2 = factory.createTransitRouteStop(facilityA, 200.0, 200.0);
+
+		TransitRoute backwardRoute = factory.createTransitRoute(Id.create("backward", TransitRoute.class), null,
+				Arrays.asList(stopC2, stopA2), "pt");
+
+		// Same departure id as on the forward route
+		Departure backwardAt08 = factory.createDeparture(Id.create("08:00", Departure.class), 8.0 * 3600.0);
+		backwardRoute.addDeparture(backwardAt08);
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(forwardRoute);
+		line.addRoute(backwardRoute);
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(line);
+
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+
+		Assert.assertEquals(1, schedule.getNumberOfLines());
+		Assert.assertEquals(2, schedule.getNumberOfRoutes());
+		Assert.assertEquals(3, schedule.getNumberOfStopFacilities());
+		Assert.assertEquals(3, schedule.getNumberOfDepartures());
+
+		int forwardIndex = schedule.getRouteIndex(line.getId(), forwardRoute.getId());
+		int backwardIndex = schedule.getRouteIndex(backwardRoute);
+
+		Assert.assertEquals(forwardRoute, schedule.getRoute(forwardIndex));
+		Assert.assertEquals(backwardRoute, schedule.getRoute(backwardIndex));
+		Assert.assertEquals(0, schedule.getLineIndex(backwardIndex));
+		Assert.assertEquals(-1, schedule.getRouteIndex(line.getId(), Id.create("unknown", TransitRoute.class)));
+		Assert.assertEquals(-1, schedule.getRouteIndex(Id.create("unknown", TransitLine.class), forwardRoute.getId()));
+
+		// Route stops
+		Assert.assertEquals(3, schedule.getNumberOfStops(forwardIndex));
+		Assert.assertEquals(2, schedule.getNumberOfStops(backwardIndex));
+		Assert.assertEquals(100.0, schedule.getArrivalOffset(forwardIndex, 1), 1e-6);
+		Assert.assertEquals(120.0, schedule.getDepartureOffset(forwardIndex, 1), 1e-6);
+		Assert.assertEquals(facilityC, schedule.getStopFacility(backwardIndex, 0));
+		Assert.assertEquals(schedule.getStopFacilityIndex(forwardIndex, 0),
+				schedule.getStopFacilityIndex(backwardIndex, 1));
+		Assert.assertEquals(Id.create("B", TransitStopFacility.class), schedule.getStopFacilityId(forwardIndex, 1));
+		Assert.assertEquals(Id.create("C", Link.class), schedule.getStopLinkId(forwardIndex, 2));
+		Assert.assertEquals(2000.0, schedule.getStopX(forwardIndex, 2), 1e-6);
+		Assert.assertEquals(500.0, schedule.getStopY(forwardIndex, 2), 1e-6);
+		Assert.assertSame(stopB, schedule.getRouteStop(forwardIndex, 1));
+
+		// Stop lookup by facility
+		int facilityIndexA = schedule.getStopFacilityIndex(facilityA.getId());
+		Assert.assertEquals(schedule.getStopFacilityIndex(forwardIndex, 0), facilityIndexA);
+		Assert.assertEquals(-1, schedule.getStopFacilityIndex(Id.create("unknown", TransitStopFacility.class)));
+		Assert.assertEquals(0, schedule.findNextStopIndex(forwardIndex, facilityIndexA, 0));
+		Assert.assertEquals(-1, schedule.findNextStopIndex(forwardIndex, facilityIndexA, 1));
+		Assert.assertEquals(1, schedule.findNextStopIndex(backwardIndex, facilityIndexA, 0));
+		Assert.assertEquals(1, schedule.findPreviousStopIndex(backwardIndex, facilityIndexA, 2));
+		Assert.assertEquals(-1, schedule.findPreviousStopIndex(backwardIndex, facilityIndexA, 1));
+		Assert.assertEquals(-1, schedule.findNextStopIndex(forwardIndex, -1, 0));
+
+		// Departures are sorted per route
+		int first = schedule.getFirstDepartureIndex(forwardIndex);
+		Assert.assertEquals(2, schedule.getEndDepartureIndex(forwardIndex) - first);
+		Assert.assertEquals(departureAt08, schedule.getDeparture(first));
+		Assert.assertEquals(departureAt09, schedule.getDeparture(first + 1));
+		Assert.assertEquals(forwardIndex, schedule.getDepartureRouteIndex(first));
+		Assert.assertEquals(9.0 * 3600.0, schedule.getDepartureTime(first + 1), 1e-6);
+
+		// Departure ids are only unique per route
+		Assert.assertEquals(departureAt08,
+				schedule.getDeparture(schedule.getDepartureIndex(forwardIndex, departureAt08.getId())));
+		Assert.assertEquals(backwardAt08,
+				schedule.getDeparture(schedule.getDepartureIndex(backwardIndex, backwardAt08.getId())));
+		Assert.assertEquals(-1, schedule.getDepartureIndex(backwardIndex, departureAt09.getId()));
+	}
+
+	@Test
+	public void testLoopingRoute() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitStopFacility facilityA = createFacility(factory, "A", 0.0, 0.0);
+		TransitStopFacility facilityB = createFacility(factory, "B", 1000.0, 0.0);
+		TransitStopFacility facilityC = createFacility(factory, "C", 2000.0, 0.0);
+
+		// A B A C A B
+		List<TransitRouteStop> stops = new ArrayList<>();
+
+		for (TransitStopFacility facility : Arrays.asList(facilityA, facilityB, facilityA, facilityC, facilityA,
+				facilityB)) {
+			stops.add(factory.createTransitRouteStop(facility, 60.0 * stops.size(), 60.0 * stops.size()));
+		}
+
+		TransitRoute route = factory.createTransitRoute(Id.create("loop", TransitRoute.class), null, stops, "pt");
+		TransitRoute otherRoute = factory.createTransitRoute(Id.create("other", TransitRoute.class), null,
+				Arrays.asList(factory.createTransitRouteStop(facilityC, 0.0, 0.0),
+						factory.createTransitRouteStop(facilityB, 60.0, 60.0)),
+				"pt");
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+		line.addRoute(otherRoute);
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(line);
+
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		int routeIndex = schedule.getRouteIndex(route);
+		int otherIndex = schedule.getRouteIndex(otherRoute);
+
+		int a = schedule.getStopFacilityIndex(facilityA.getId());
+		int b = schedule.getStopFacilityIndex(facilityB.getId());
+		int c = schedule.getStopFacilityIndex(facilityC.getId());
+
+		Assert.assertEquals(0, schedule.findNextStopIndex(routeIndex, a, -1));
+		Assert.assertEquals(0, schedule.findNextStopIndex(routeIndex, a, 0));
+		Assert.assertEquals(2, schedule.findNextStopIndex(routeIndex, a, 1));
+		Assert.assertEquals(4, schedule.findNextStopIndex(routeIndex, a, 3));
+		Assert.assertEquals(-1, schedule.findNextStopIndex(routeIndex, a, 5));
+		Assert.assertEquals(5, schedule.findNextStopIndex(routeIndex, b, 2));
+		Assert.assertEquals(3, schedule.findNextStopIndex(routeIndex, c, 0));
+
+		Assert.assertEquals(4, schedule.findPreviousStopIndex(routeIndex, a, 6));
+		Assert.assertEquals(4, schedule.findPreviousStopIndex(routeIndex, a, 100));
+		Assert.assertEquals(2, schedule.findPreviousStopIndex(routeIndex, a, 4));
+		Assert.assertEquals(0, schedule.findPreviousStopIndex(routeIndex, a, 1));
+		Assert.assertEquals(-1, schedule.findPreviousStopIndex(routeIndex, a, 0));
+		Assert.assertEquals(1, schedule.findPreviousStopIndex(routeIndex, b, 5));
+		Assert.assertEquals(-1, schedule.findPreviousStopIndex(routeIndex, c, 3));
+
+		// The candidates of one route do not leak into the other
+		Assert.assertEquals(-1, schedule.findNextStopIndex(otherIndex, a, 0));
+		Assert.assertEquals(1, schedule.findNextStopIndex(otherIndex, b, 0));
+		Assert.assertEquals(0, schedule.findPreviousStopIndex(otherIndex, c, 2));
+	}
+
+	@Test
+	public void testFindDepartureIndex() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitRouteStop stop0 = factory.createTransitRouteStop(createFacility(factory, "A", 0.0, 0.0), 0.0, 0.0);
+		TransitRouteStop stop1 = factory.createTransitRouteStop(createFacility(factory, "B", 0.0, 0.0), 540.0,
+				600.0);
+
+		TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class), null,
+				Arrays.asList(stop0, stop1), "pt");
+
+		for (int i = 0; i < 4; i++) {
+			route.addDeparture(factory.createDeparture(Id.create(i, Departure.class), 8.0 * 3600.0 + i * 1800.0));
+		}
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(line);
+
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		int routeIndex = schedule.getRouteIndex(route);
+		int first = schedule.getFirstDepartureIndex(routeIndex);
+
+		Assert.assertEquals(first, schedule.findDepartureIndex(routeIndex, 0, 7.0 * 3600.0));
+		Assert.assertEquals(first, schedule.findDepartureIndex(routeIndex, 0, 8.0 * 3600.0));
+		Assert.assertEquals(first + 1, schedule.findDepartureIndex(routeIndex, 0, 8.0 * 3600.0 + 1.0));
+		Assert.assertEquals(first + 3, schedule.findDepartureIndex(routeIndex, 0, 9.5 * 3600.0));
+		Assert.assertEquals(-1, schedule.findDepartureIndex(routeIndex, 0, 9.5 * 3600.0 + 1.0));
+
+		// The second stop is left 10 minutes after the departure
+		Assert.assertEquals(first, schedule.findDepartureIndex(routeIndex, 1, 8.0 * 3600.0 + 600.0));
+		Assert.assertEquals(first + 1, schedule.findDepartureIndex(routeIndex, 1, 8.0 * 3600.0 + 601.0));
+		Assert.assertEquals(first + 3, schedule.findDepartureIndexWithOffset(routeIndex, 600.0, 9.6 * 3600.0));
+		Assert.assertEquals(-1, schedule.findDepartureIndex(routeIndex, 1, 9.7 * 3600.0));
+	}
+
+	@Test
+	public void testStopWithoutFacility() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitRouteStop stop0 = factory.createTransitRouteStop(null, 0.0, 0.0);
+		TransitRouteStop stop1 = factory.createTransitRouteStop(createFacility(factory, "A", 10.0, 20.0), 60.0,
+				60.0);
+
+		TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class), null,
+				Arrays.asList(stop0, stop1), "pt");
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(line);
+
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		int routeIndex = schedule.getRouteIndex(route);
+
+		Assert.assertEquals(-1, schedule.getStopFacilityIndex(routeIndex, 0));
+		Assert.assertNull(schedule.getStopFacility(routeIndex, 0));
+		Assert.assertNull(schedule.getStopFacilityId(routeIndex, 0));
+		Assert.assertNull(schedule.getStopLinkId(routeIndex, 0));
+		Assert.assertTrue(Double.isNaN(schedule.getStopX(routeIndex, 0)));
+		Assert.assertTrue(Double.isNaN(schedule.getStopY(routeIndex, 0)));
+
+		Assert.assertEquals(Id.create("A", Link.class), schedule.getStopLinkId(routeIndex, 1));
+		Assert.assertEquals(10.0, schedule.getStopX(routeIndex, 1), 1e-6);
+
+		// A route without departures
+		Assert.assertEquals(-1, schedule.findDepartureIndex(routeIndex, 0, 0.0));
+	}
+}
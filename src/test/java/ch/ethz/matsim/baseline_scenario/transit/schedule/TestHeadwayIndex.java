@@ -0,0 +1,94 @@
+package ch.ethz.matsim.baseline_scenario.transit.schedule;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+
+public class TestHeadwayIndex {
+	private TransitRoute createRoute(TransitScheduleFactory factory, String id, double[] departureTimes) {
+		TransitRouteStop stop0 = factory.createTransitRouteStop(null, 0.0, 0.0);
+		TransitRouteStop stop1 = factory.createTransitRouteStop(null, 110.0, 120.0);
+		TransitRouteStop stop2 = factory.createTransitRouteStop(null, 300.0, 300.0);
+
+		TransitRoute route = factory.createTransitRoute(Id.create(id, TransitRoute.class), null,
+				Arrays.asList(stop0, stop1, stop2), "pt");
+
+		for (int i = 0; i < departureTimes.length; i++) {
+			route.addDeparture(factory.createDeparture(Id.create(id + i, Departure.class), departureTimes[i]));
+		}
+
+		return route;
+	}
+
+	@Test
+	public void testHeadwayIndex() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+		Random random = new Random(0);
+
+		// Every 5 minutes in the morning, every 7.5 minutes with small deviations
+		// around noon, every 10 minutes in the evening
+		double[] regularTimes = new double[100];
+
+		for (int i = 0; i < regularTimes.length; i++) {
+			if (i < 40) {
+				regularTimes[i] = 6.0 * 3600.0 + i * 300.0;
+			} else if (i < 70) {
+				regularTimes[i] = 10.0 * 3600.0 + (i - 40) * 450.0 + random.nextInt(20);
+			} else {
+				regularTimes[i] = 16.0 * 3600.0 + (i - 70) * 600.0;
+			}
+		}
+
+		double[] irregularTimes = new double[30];
+
+		for (int i = 0; i < irregularTimes.length; i++) {
+			irregularTimes[i] = random.nextInt(24 * 3600);
+		}
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(createRoute(factory, "regular", regularTimes));
+		line.addRoute(createRoute(factory, "irregular", irregularTimes));
+
+		TransitSchedule transitSchedule = factory.createTransitSchedule();
+		transitSchedule.addTransitLine(line);
+
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		HeadwayIndex index = new HeadwayIndex(schedule);
+
+		int regularIndex = schedule.getRouteIndex(Id.create("line", TransitLine.class),
+				Id.create("regular", TransitRoute.class));
+		int irregularIndex = schedule.getRouteIndex(Id.create("line", TransitLine.class),
+				Id.create("irregular", TransitRoute.class));
+
+		Assert.assertTrue(index.isHeadwayBased(regularIndex));
+		Assert.assertFalse(index.isHeadwayBased(irregularIndex));
+		Assert.assertEquals(1, index.getNumberOfHeadwayBasedRoutes());
+
+		for (int routeIndex : new int[] { regularIndex, irregularIndex }) {
+			for (int stopIndex = 0; stopIndex < 3; stopIndex++) {
+				for (double time = 5.0 * 3600.0; time < 25.0 * 3600.0; time += 17.0) {
+					Assert.assertEquals(schedule.findDepartureIndex(routeIndex, stopIndex, time),
+							index.findDepartureIndex(routeIndex, stopIndex, time));
+				}
+
+				// Exactly at the departure times
+				for (int i = schedule.getFirstDepartureIndex(routeIndex); i < schedule
+						.getEndDepartureIndex(routeIndex); i++) {
+					double time = schedule.getDepartureTime(i) + schedule.getDepartureOffset(routeIndex, stopIndex);
+					Assert.assertEquals(schedule.findDepartureIndex(routeIndex, stopIndex, time),
+							index.findDepartureIndex(routeIndex, stopIndex, time));
+				}
+			}
+		}
+	}
+}
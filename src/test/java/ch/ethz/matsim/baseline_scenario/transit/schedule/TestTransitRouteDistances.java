@@ -0,0 +1,130 @@
+package ch.ethz.matsim.baseline_scenario.transit.schedule;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.LinkNetworkRouteFactory;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class TestTransitRouteDistances {
+	final private static Network network;
+	final private static TransitSchedule transitSchedule;
+	final private static TransitLine transitLine;
+	final private static TransitRoute transitRoute;
+
+	static {
+		/*
+		 * The route goes 1 -> 2 -> 3 -> 1 -> 2 -> 4, so it passes link 12 and the stop
+		 * on it twice.
+		 */
+
+		network = NetworkUtils.createNetwork();
+
+		Node node1 = network.getFactory().createNode(Id.createNodeId("1"), new Coord(0.0, 0.0));
+		Node node2 = network.getFactory().createNode(Id.createNodeId("2"), new Coord(100.0, 0.0));
+		Node node3 = network.getFactory().createNode(Id.createNodeId("3"), new Coord(100.0, 200.0));
+		Node node4 = network.getFactory().createNode(Id.createNodeId("4"), new Coord(500.0, 0.0));
+
+		Link link12 = network.getFactory().createLink(Id.createLinkId("12"), node1, node2);
+		Link link23 = network.getFactory().createLink(Id.createLinkId("23"), node2, node3);
+		Link link31 = network.getFactory().createLink(Id.createLinkId("31"), node3, node1);
+		Link link24 = network.getFactory().createLink(Id.createLinkId("24"), node2, node4);
+
+		link12.setLength(100.0);
+		link23.setLength(200.0);
+		link31.setLength(300.0);
+		link24.setLength(400.0);
+
+		Arrays.asList(node1, node2, node3, node4).forEach(network::addNode);
+		Arrays.asList(link12, link23, link31, link24).forEach(network::addLink);
+
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+		transitSchedule = factory.createTransitSchedule();
+
+		TransitStopFacility facility12 = createFacility(factory, link12);
+		TransitStopFacility facility23 = createFacility(factory, link23);
+		TransitStopFacility facility31 = createFacility(factory, link31);
+		TransitStopFacility facility24 = createFacility(factory, link24);
+
+		List<TransitRouteStop> stops = Arrays.asList( //
+				factory.createTransitRouteStop(facility12, 0.0, 0.0), //
+				factory.createTransitRouteStop(facility23, 60.0, 60.0), //
+				factory.createTransitRouteStop(facility31, 120.0, 120.0), //
+				factory.createTransitRouteStop(facility12, 180.0, 180.0), //
+				factory.createTransitRouteStop(facility24, 240.0, 240.0));
+
+		NetworkRoute networkRoute = (NetworkRoute) new LinkNetworkRouteFactory().createRoute(link12.getId(),
+				link24.getId());
+		networkRoute.setLinkIds(link12.getId(), Arrays.asList(link23.getId(), link31.getId(), link12.getId()),
+				link24.getId());
+
+		transitRoute = factory.createTransitRoute(Id.create("route", TransitRoute.class), networkRoute, stops, "bus");
+		transitLine = factory.createTransitLine(Id.create("line", TransitLine.class));
+		transitLine.addRoute(transitRoute);
+		transitSchedule.addTransitLine(transitLine);
+	}
+
+	static private TransitStopFacility createFacility(TransitScheduleFactory factory, Link link) {
+		TransitStopFacility facility = factory.createTransitStopFacility(
+				Id.create(link.getId().toString(), TransitStopFacility.class), link.getCoord(), false);
+		facility.setLinkId(link.getId());
+		transitSchedule.addStopFacility(facility);
+		return facility;
+	}
+
+	private double calcDistance(int accessStopIndex, int egressStopIndex) {
+		ExperimentalTransitRoute route = new ExperimentalTransitRoute(
+				transitRoute.getStops().get(accessStopIndex).getStopFacility(), transitLine, transitRoute,
+				transitRoute.getStops().get(egressStopIndex).getStopFacility());
+		return RouteUtils.calcDistance(route, transitSchedule, network);
+	}
+
+	@Test
+	public void testSameAsRouteUtils() {
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		TransitRouteDistances distances = new TransitRouteDistances(schedule, network);
+		int routeIndex = schedule.getRouteIndex(transitRoute);
+
+		// All pairs of stops that do not start on the link which is passed twice
+		for (int accessStopIndex = 1; accessStopIndex < 3; accessStopIndex++) {
+			for (int egressStopIndex = accessStopIndex + 1; egressStopIndex < 5; egressStopIndex++) {
+				Assert.assertEquals(calcDistance(accessStopIndex, egressStopIndex),
+						distances.getDistance(routeIndex, accessStopIndex, egressStopIndex), 1e-6);
+			}
+		}
+
+		Assert.assertEquals(calcDistance(0, 1), distances.getDistance(routeIndex, 0, 1), 1e-6);
+		Assert.assertEquals(calcDistance(0, 2), distances.getDistance(routeIndex, 0, 2), 1e-6);
+		Assert.assertEquals(600.0, distances.getCumulativeDistance(routeIndex, 3), 1e-6);
+	}
+
+	@Test
+	public void testLoopingRoute() {
+		CompiledTransitSchedule schedule = new CompiledTransitSchedule(transitSchedule);
+		TransitRouteDistances distances = new TransitRouteDistances(schedule, network);
+		int routeIndex = schedule.getRouteIndex(transitRoute);
+
+		// Boarding at the second visit of link 12 only covers link 24
+		Assert.assertEquals(400.0, distances.getDistance(routeIndex, 3, 4), 1e-6);
+
+		// RouteUtils counts from the first visit of the access link on
+		Assert.assertEquals(1000.0, calcDistance(3, 4), 1e-6);
+	}
+}
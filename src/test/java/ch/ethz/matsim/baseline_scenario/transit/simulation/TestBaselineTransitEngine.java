@@ -0,0 +1,188 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.InternalInterface;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.ethz.matsim.baseline_scenario.transit.events.PublicTransitEvent;
+import ch.ethz.matsim.baseline_scenario.transit.routing.DefaultEnrichedTransitRoute;
+import ch.ethz.matsim.baseline_scenario.transit.routing.EnrichedTransitRoute;
+import ch.ethz.matsim.baseline_scenario.transit.schedule.CompiledTransitSchedule;
+import ch.ethz.matsim.baseline_scenario.transit.simulation.BaselineTransitConfigGroup.SchedulerType;
+
+public class TestBaselineTransitEngine {
+	private CompiledTransitSchedule createSchedule() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+		List<TransitRouteStop> stops = new ArrayList<>();
+
+		for (int i = 0; i < 3; i++) {
+			TransitStopFacility facility = factory.createTransitStopFacility(
+					Id.create("stop" + i, TransitStopFacility.class), new Coord(1000.0 * i, 0.0), false);
+			facility.setLinkId(Id.create("link" + i, Link.class));
+			stops.add(factory.createTransitRouteStop(facility, 300.0 * i, 300.0 * i));
+		}
+
+		TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class), null, stops, "pt");
+
+		for (int i = 0; i < 4; i++) {
+			route.addDeparture(factory.createDeparture(Id.create(i, Departure.class), 8.0 * 3600.0 + i * 600.0));
+		}
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+
+		TransitSchedule schedule = factory.createTransitSchedule();
+		schedule.addTransitLine(line);
+
+		return new CompiledTransitSchedule(schedule);
+	}
+
+	private MobsimAgent createAgent(String id, EnrichedTransitRoute route, List<String> trace) {
+		Leg leg = (Leg) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Leg.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getRoute":
+						return route;
+					case "getMode":
+						return "pt";
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+					}
+				});
+
+		return (MobsimAgent) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { MobsimAgent.class, PlanAgent.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getId":
+						return Id.create(id, Person.class);
+					case "getMode":
+						return "pt";
+					case "getCurrentLinkId":
+						return route.getStartLinkId();
+					case "getCurrentPlanElement":
+						return leg;
+					case "endLegAndComputeNextState":
+						trace.add("arrival " + id + " " + args[0]);
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+					}
+				});
+	}
+
+	private List<String> runEngine(int numberOfPartitions, SchedulerType schedulerType, long seed) {
+		CompiledTransitSchedule schedule = createSchedule();
+		List<String> trace = new ArrayList<>();
+
+		EventsManager eventsManager = (EventsManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { EventsManager.class }, (proxy, method, args) -> {
+					if (method.getName().equals("processEvent")) {
+						Object event = args[0];
+
+						if (event instanceof PublicTransitEvent) {
+							trace.add("pt_transit " + ((PublicTransitEvent) event).getPersonId());
+						} else {
+							trace.add(event.getClass().getSimpleName());
+						}
+					}
+
+					return null;
+				});
+
+		InternalInterface internalInterface = (InternalInterface) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { InternalInterface.class },
+				(proxy, method, args) -> null);
+
+		BaselineTransitEngine engine = new BaselineTransitEngine(eventsManager, schedule, () -> {
+		}, schedulerType, numberOfPartitions, null, null, null);
+		engine.setInternalInterface(internalInterface);
+		engine.onPrepareSim();
+
+		// Agents with equal departure and arrival times, which depart in random order
+		List<Integer> agentIndices = new ArrayList<>();
+
+		for (int i = 0; i < 50; i++) {
+			agentIndices.add(i);
+		}
+
+		Collections.shuffle(agentIndices, new Random(seed));
+		double startTime = 7.5 * 3600.0;
+
+		for (int i : agentIndices) {
+			int egressStopIndex = 1 + i % 2;
+
+			EnrichedTransitRoute route = new DefaultEnrichedTransitRoute(Id.create("link0", Link.class),
+					Id.create("link" + egressStopIndex, Link.class), 1000.0, 300.0 * egressStopIndex, 0.0, 0,
+					egressStopIndex, Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class),
+					null);
+
+			engine.handleDeparture(startTime + (i % 3) * 900.0, createAgent("agent" + i, route, trace),
+					Id.create("link0", Link.class));
+		}
+
+		for (double time = startTime; time <= 9.0 * 3600.0; time += 1.0) {
+			engine.doSimStep(time);
+		}
+
+		return trace;
+	}
+
+	@Test
+	public void testEventOrderDoesNotDependOnPartitions() {
+		for (SchedulerType schedulerType : Arrays.asList(SchedulerType.priorityQueue, SchedulerType.calendar)) {
+			List<String> reference = runEngine(3, schedulerType, 0);
+
+			// Every agent arrives with one pt_transit and one teleportation event
+			Assert.assertEquals(3 * 50, reference.size());
+
+			for (int partitions : Arrays.asList(3, 8)) {
+				for (long seed = 0; seed < 3; seed++) {
+					Assert.assertEquals(reference, runEngine(partitions, schedulerType, seed));
+				}
+			}
+
+			// One partition keeps the order of its scheduler for equal times, which is
+			// deterministic for the same departure order
+			for (long seed = 0; seed < 3; seed++) {
+				List<String> singlePartition = runEngine(1, schedulerType, seed);
+				Assert.assertEquals(singlePartition, runEngine(1, schedulerType, seed));
+
+				List<String> sortedReference = new ArrayList<>(reference);
+				Collections.sort(sortedReference);
+				Collections.sort(singlePartition);
+				Assert.assertEquals(sortedReference, singlePartition);
+			}
+		}
+	}
+}
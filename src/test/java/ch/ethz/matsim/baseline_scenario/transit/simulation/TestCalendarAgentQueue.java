@@ -0,0 +1,84 @@
+package ch.ethz.matsim.baseline_scenario.transit.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCalendarAgentQueue {
+	static private class TestEntry implements AgentQueue.Entry {
+		final double time;
+
+		TestEntry(double time) {
+			this.time = time;
+		}
+
+		@Override
+		public double getTime() {
+			return time;
+		}
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(0);
+
+		AgentQueue<TestEntry> calendar = new CalendarAgentQueue<>();
+		AgentQueue<TestEntry> priority = new PriorityAgentQueue<>();
+
+		List<Double> calendarTimes = new ArrayList<>();
+		List<Double> priorityTimes = new ArrayList<>();
+
+		for (int now = 0; now < 1000; now++) {
+			for (int k = random.nextInt(5); k > 0; k--) {
+				double time = now + random.nextInt(100) + (random.nextBoolean() ? 0.0 : random.nextDouble());
+
+				calendar.add(new TestEntry(time));
+				priority.add(new TestEntry(time));
+			}
+
+			TestEntry entry;
+
+			while ((entry = calendar.pollDue(now)) != null) {
+				Assert.assertTrue(entry.time <= now);
+				calendarTimes.add(entry.time);
+			}
+
+			while ((entry = priority.pollDue(now)) != null) {
+				priorityTimes.add(entry.time);
+			}
+
+			Assert.assertEquals(priority.size(), calendar.size());
+		}
+
+		Assert.assertEquals(priorityTimes, calendarTimes);
+
+		int pending = 0;
+		for (TestEntry entry : calendar) {
+			Assert.assertTrue(entry.time > 999.0);
+			pending++;
+		}
+		Assert.assertEquals(priority.size(), pending);
+	}
+
+	@Test
+	public void testLateEntriesAreDueImmediately() {
+		AgentQueue<TestEntry> queue = new CalendarAgentQueue<>();
+
+		queue.add(new TestEntry(10.0));
+		Assert.assertNull(queue.pollDue(9.0));
+		Assert.assertEquals(10.0, queue.pollDue(10.0).time, 0.0);
+		Assert.assertNull(queue.pollDue(10.0));
+
+		queue.add(new TestEntry(5.0));
+		Assert.assertEquals(5.0, queue.pollDue(11.0).time, 0.0);
+		Assert.assertEquals(0, queue.size());
+
+		queue.add(new TestEntry(20.5));
+		queue.clear();
+		Assert.assertNull(queue.pollDue(100.0));
+		Assert.assertEquals(0, queue.size());
+	}
+}
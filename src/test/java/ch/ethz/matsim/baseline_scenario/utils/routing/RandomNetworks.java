@@ -0,0 +1,42 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Random networks for the router tests. Nodes and links are numbered from 0,
+ * links connect random nodes and have random lengths and free speeds, so that
+ * the free-speed travel times are fractional and not exact as floats.
+ */
+public class RandomNetworks {
+	static public Network createRandomNetwork(long seed, int numberOfNodes, int numberOfLinks) {
+		Random random = new Random(seed);
+
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node[] nodes = new Node[numberOfNodes];
+
+		for (int i = 0; i < numberOfNodes; i++) {
+			nodes[i] = factory.createNode(Id.createNodeId(i), new Coord(random.nextDouble(), random.nextDouble()));
+			network.addNode(nodes[i]);
+		}
+
+		for (int i = 0; i < numberOfLinks; i++) {
+			Link link = factory.createLink(Id.createLinkId(i), nodes[random.nextInt(numberOfNodes)],
+					nodes[random.nextInt(numberOfNodes)]);
+			link.setLength(100.0 + 10000.0 * random.nextDouble());
+			link.setFreespeed(5.0 + 30.0 * random.nextDouble());
+			link.setCapacity(1000.0);
+			network.addLink(link);
+		}
+
+		return network;
+	}
+}
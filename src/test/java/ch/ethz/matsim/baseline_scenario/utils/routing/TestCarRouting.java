@@ -0,0 +1,182 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+public class TestCarRouting {
+	final private static int GRID_SIZE = 10;
+	final private static int NUMBER_OF_PERSONS = 300;
+
+	/**
+	 * Grid with links in both directions and random lengths, so that all least
+	 * cost paths are unique.
+	 */
+	private Network createNetwork() {
+		Random random = new Random(0);
+
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+
+		for (int i = 0; i < GRID_SIZE; i++) {
+			for (int j = 0; j < GRID_SIZE; j++) {
+				nodes[i][j] = factory.createNode(Id.createNodeId(i + "_" + j), new Coord(1000.0 * i, 1000.0 * j));
+				network.addNode(nodes[i][j]);
+			}
+		}
+
+		List<Link> links = new ArrayList<>();
+
+		for (int i = 0; i < GRID_SIZE; i++) {
+			for (int j = 0; j < GRID_SIZE; j++) {
+				if (i + 1 < GRID_SIZE) {
+					links.add(factory.createLink(Id.createLinkId(links.size()), nodes[i][j], nodes[i + 1][j]));
+					links.add(factory.createLink(Id.createLinkId(links.size()), nodes[i + 1][j], nodes[i][j]));
+				}
+
+				if (j + 1 < GRID_SIZE) {
+					links.add(factory.createLink(Id.createLinkId(links.size()), nodes[i][j], nodes[i][j + 1]));
+					links.add(factory.createLink(Id.createLinkId(links.size()), nodes[i][j + 1], nodes[i][j]));
+				}
+			}
+		}
+
+		for (Link link : links) {
+			link.setLength(1000.0 + 500.0 * random.nextDouble());
+			link.setFreespeed(10.0 + 10.0 * random.nextDouble());
+			link.setCapacity(1000.0);
+			network.addLink(link);
+		}
+
+		return network;
+	}
+
+	private Activity createActivity(Network network, String type, Id<Link> linkId, double endTime) {
+		Activity activity = PopulationUtils.createActivityFromCoordAndLinkId(type,
+				network.getLinks().get(linkId).getToNode().getCoord(), linkId);
+		activity.setEndTime(endTime);
+		return activity;
+	}
+
+	/**
+	 * Persons with home, work, home by car and a walk trip in between. Several
+	 * persons share every home link, like the members of a household.
+	 */
+	private Population createPopulation(Network network) {
+		Random random = new Random(1);
+		int numberOfLinks = network.getLinks().size();
+
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Id<Link> homeLinkId = Id.createLinkId(random.nextInt(numberOfLinks / 4));
+			Id<Link> workLinkId = Id.createLinkId(random.nextInt(numberOfLinks));
+			Id<Link> shopLinkId = Id.createLinkId(random.nextInt(numberOfLinks));
+
+			Plan plan = population.getFactory().createPlan();
+			plan.getPlanElements().add(createActivity(network, "home", homeLinkId, 7.0 * 3600.0 + i));
+			plan.getPlanElements().add(PopulationUtils.createLeg(TransportMode.car));
+			plan.getPlanElements().add(createActivity(network, "work", workLinkId, 12.0 * 3600.0));
+			plan.getPlanElements().add(PopulationUtils.createLeg(TransportMode.walk));
+			plan.getPlanElements().add(createActivity(network, "shop", shopLinkId, 13.0 * 3600.0));
+			plan.getPlanElements().add(PopulationUtils.createLeg(TransportMode.car));
+			plan.getPlanElements().add(createActivity(network, "home", homeLinkId, Double.NEGATIVE_INFINITY));
+
+			Person person = population.getFactory().createPerson(Id.createPersonId(i));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+
+		return population;
+	}
+
+	private void assertRoutes(Network network, Population population) {
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network,
+				new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+
+		for (Person person : population.getPersons().values()) {
+			List<PlanElement> elements = person.getSelectedPlan().getPlanElements();
+
+			for (int i = 1; i < elements.size(); i += 2) {
+				Leg leg = (Leg) elements.get(i);
+
+				if (!leg.getMode().equals(TransportMode.car)) {
+					Assert.assertNull(leg.getRoute());
+					continue;
+				}
+
+				Activity origin = (Activity) elements.get(i - 1);
+				Activity destination = (Activity) elements.get(i + 1);
+
+				Path path = dijkstra.calcLeastCostPath(network.getLinks().get(origin.getLinkId()).getToNode(),
+						network.getLinks().get(destination.getLinkId()).getFromNode(), origin.getEndTime(), null,
+						null);
+
+				NetworkRoute route = (NetworkRoute) leg.getRoute();
+				Assert.assertEquals(origin.getLinkId(), route.getStartLinkId());
+				Assert.assertEquals(destination.getLinkId(), route.getEndLinkId());
+				Assert.assertEquals(NetworkUtils.getLinkIds(path.links), route.getLinkIds());
+				Assert.assertEquals(path.travelCost, route.getTravelCost(), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testParallel() throws InterruptedException {
+		Network network = createNetwork();
+		Population population = createPopulation(network);
+
+		RoutingCostReport report = new RoutingCostReport();
+		new CarRouting(4, network, new DijkstraFactory(), false, report).run(population, new FreeSpeedTravelTime());
+
+		assertRoutes(network, population);
+		Assert.assertEquals(NUMBER_OF_PERSONS, report.size());
+	}
+
+	@Test
+	public void testBatchedByOrigin() throws InterruptedException {
+		Network network = createNetwork();
+		Population population = createPopulation(network);
+
+		new CarRouting(4, network, new DijkstraFactory(), true).run(population, new FreeSpeedTravelTime());
+		assertRoutes(network, population);
+	}
+
+	@Test
+	public void testAllProcessors() throws InterruptedException {
+		Network network = createNetwork();
+		Population population = createPopulation(network);
+
+		// No report is needed and no thread number given
+		new CarRouting(0, network).run(population, new FreeSpeedTravelTime());
+		assertRoutes(network, population);
+	}
+}
@@ -0,0 +1,133 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class TestOneToManyDijkstra {
+	final private static int NUMBER_OF_NODES = 200;
+	final private static int NUMBER_OF_LINKS = 700;
+
+	private Network createRandomNetwork(long seed) {
+		return RandomNetworks.createRandomNetwork(seed, NUMBER_OF_NODES, NUMBER_OF_LINKS);
+	}
+
+	/**
+	 * Travel times that grow and shrink over the day, but slowly enough that
+	 * leaving later never means arriving earlier.
+	 */
+	static private class PeakTravelTime implements TravelTime {
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			double phase = Integer.parseInt(link.getId().toString()) * 0.7;
+			double load = Math.max(0.0, 0.5 + 0.7 * Math.sin(2.0 * Math.PI * time / 86400.0 + phase));
+			return link.getLength() / link.getFreespeed() * (1.0 + 0.15 * Math.pow(load, 4.0));
+		}
+	}
+
+	private void assertSameAsDijkstra(TravelTime travelTime) {
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+		for (long seed = 0; seed < 3; seed++) {
+			Network network = createRandomNetwork(seed);
+			NetworkIndex index = new NetworkIndex(network);
+
+			LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility,
+					travelTime);
+			OneToManyDijkstra treeRouter = new OneToManyDijkstra(index, travelTime, travelDisutility);
+
+			Random random = new Random(seed);
+
+			for (int query = 0; query < 50; query++) {
+				Node origin = index.getNode(random.nextInt(NUMBER_OF_NODES));
+				double departureTime = random.nextDouble() * 86400.0;
+
+				List<Node> destinations = new ArrayList<>();
+
+				for (int k = 0; k < 10; k++) {
+					destinations.add(index.getNode(random.nextInt(NUMBER_OF_NODES)));
+				}
+
+				treeRouter.run(origin, destinations, departureTime, null, null);
+
+				for (Node destination : destinations) {
+					Path reference = dijkstra.calcLeastCostPath(origin, destination, departureTime, null, null);
+					Path path = treeRouter.getPath(destination, departureTime, null, null);
+
+					if (reference == null) {
+						Assert.assertNull(path);
+					} else {
+						Assert.assertEquals(reference.travelCost, path.travelCost, 1e-6);
+						Assert.assertEquals(reference.travelTime, path.travelTime, 1e-6);
+						Assert.assertEquals(origin, path.nodes.get(0));
+						Assert.assertEquals(destination, path.nodes.get(path.nodes.size() - 1));
+						Assert.assertEquals(path.links.size() + 1, path.nodes.size());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFreeSpeed() {
+		assertSameAsDijkstra(new FreeSpeedTravelTime());
+	}
+
+	@Test
+	public void testTimeDependent() {
+		// The tree is computed for the departure time, so its paths are exact for it
+		assertSameAsDijkstra(new PeakTravelTime());
+	}
+
+	@Test
+	public void testNetworkIndex() {
+		Network network = createRandomNetwork(0);
+		NetworkIndex index = new NetworkIndex(network);
+
+		Assert.assertEquals(NUMBER_OF_NODES, index.getNumberOfNodes());
+		int numberOfLinks = 0;
+
+		for (int node = 0; node < index.getNumberOfNodes(); node++) {
+			Node networkNode = index.getNode(node);
+			Assert.assertEquals(node, index.getNodeIndex(networkNode));
+			Assert.assertEquals(networkNode.getOutLinks().size(),
+					index.getOutLinksEnd(node) - index.getOutLinksStart(node));
+
+			for (int i = index.getOutLinksStart(node); i < index.getOutLinksEnd(node); i++) {
+				int link = index.getOutLink(i);
+				Assert.assertEquals(node, index.getFromNodeIndex(link));
+				Assert.assertEquals(index.getNodeIndex(index.getLink(link).getToNode()), index.getToNodeIndex(link));
+				Assert.assertSame(networkNode.getOutLinks().get(index.getLink(link).getId()), index.getLink(link));
+				numberOfLinks++;
+			}
+
+			Assert.assertEquals(networkNode.getInLinks().size(), index.getInLinksEnd(node) - index.getInLinksStart(node));
+
+			for (int i = index.getInLinksStart(node); i < index.getInLinksEnd(node); i++) {
+				Assert.assertEquals(node, index.getToNodeIndex(index.getInLink(i)));
+			}
+		}
+
+		Assert.assertEquals(NUMBER_OF_LINKS, numberOfLinks);
+		Assert.assertEquals(NUMBER_OF_LINKS, index.getNumberOfLinks());
+
+		for (int link = 0; link < index.getNumberOfLinks(); link++) {
+			Assert.assertEquals(link, index.getLinkIndex(index.getLink(link)));
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class TestStaticPathCache {
+	final private static int NUMBER_OF_NODES = 20;
+
+	// Memory of one cached path with three links
+	final private static long PATH_MEMORY = 96 + 4 * 3;
+
+	/**
+	 * Ring of nodes with links in both directions.
+	 */
+	private Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node[] nodes = new Node[NUMBER_OF_NODES];
+
+		for (int i = 0; i < NUMBER_OF_NODES; i++) {
+			nodes[i] = factory.createNode(Id.createNodeId(i), new Coord(100.0 * i, 0.0));
+			network.addNode(nodes[i]);
+		}
+
+		for (int i = 0; i < NUMBER_OF_NODES; i++) {
+			Node next = nodes[(i + 1) % NUMBER_OF_NODES];
+
+			for (Link link : Arrays.asList(factory.createLink(Id.createLinkId(i + "f"), nodes[i], next),
+					factory.createLink(Id.createLinkId(i + "b"), next, nodes[i]))) {
+				link.setLength(100.0);
+				link.setFreespeed(10.0);
+				link.setCapacity(1000.0);
+				network.addLink(link);
+			}
+		}
+
+		return network;
+	}
+
+	private Node getNode(Network network, int index) {
+		return network.getNodes().get(Id.createNodeId(index));
+	}
+
+	private List<Link> createPath(Network network, int fromIndex) {
+		List<Link> path = new ArrayList<>();
+
+		for (int i = 0; i < 3; i++) {
+			path.add(network.getLinks().get(Id.createLinkId((fromIndex + i) % NUMBER_OF_NODES + "f")));
+		}
+
+		return path;
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		Network network = createNetwork();
+		StaticPathCache cache = new StaticPathCache(network, 1024 * 1024);
+
+		Node fromNode = getNode(network, 0);
+		Node toNode = getNode(network, 3);
+
+		Assert.assertNull(cache.get(fromNode, toNode));
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(0.0, cache.getHitRate(), 1e-9);
+
+		List<Link> path = createPath(network, 0);
+		cache.put(fromNode, toNode, path);
+
+		Assert.assertEquals(path, cache.get(fromNode, toNode));
+		Assert.assertEquals(path, cache.get(fromNode, toNode));
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(2.0 / 3.0, cache.getHitRate(), 1e-9);
+
+		// Paths are directed
+		Assert.assertNull(cache.get(toNode, fromNode));
+		Assert.assertEquals(2, cache.getMisses());
+
+		// Replacing a path does not count its memory twice
+		cache.put(fromNode, toNode, path);
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(PATH_MEMORY, cache.getMemory());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownNode() {
+		Network network = createNetwork();
+		StaticPathCache cache = new StaticPathCache(network, 1024 * 1024);
+
+		Node otherNode = NetworkUtils.createNetwork().getFactory().createNode(Id.createNodeId("other"),
+				new Coord(0.0, 0.0));
+		cache.get(getNode(network, 0), otherNode);
+	}
+
+	@Test
+	public void testEvictionUnderBudget() {
+		Network network = createNetwork();
+
+		// Every segment of the cache has room for two paths
+		long memoryBudget = 16 * 2 * PATH_MEMORY;
+		StaticPathCache cache = new StaticPathCache(network, memoryBudget);
+
+		Node fromNode = getNode(network, 0);
+		Node toNode = getNode(network, 3);
+		List<Link> path = createPath(network, 0);
+		cache.put(fromNode, toNode, path);
+
+		for (int i = 0; i < NUMBER_OF_NODES; i++) {
+			for (int j = 0; j < NUMBER_OF_NODES; j++) {
+				if (i != 0 || j != 3) {
+					cache.put(getNode(network, i), getNode(network, j), createPath(network, i));
+					Assert.assertTrue(cache.getMemory() <= memoryBudget);
+
+					// The recently used path is never evicted
+					Assert.assertEquals(path, cache.get(fromNode, toNode));
+				}
+			}
+		}
+
+		Assert.assertTrue(cache.size() <= 16 * 2);
+		Assert.assertEquals(cache.size() * PATH_MEMORY, cache.getMemory());
+
+		// Without being used, the path is eventually evicted
+		for (int i = 0; i < NUMBER_OF_NODES; i++) {
+			for (int j = 0; j < NUMBER_OF_NODES; j++) {
+				if (i != 0 || j != 3) {
+					cache.put(getNode(network, i), getNode(network, j), createPath(network, i));
+				}
+			}
+		}
+
+		Assert.assertNull(cache.get(fromNode, toNode));
+		Assert.assertTrue(cache.getMemory() <= memoryBudget);
+	}
+
+	@Test
+	public void testCachingLeastCostPathCalculator() {
+		Network network = createNetwork();
+		StaticPathCache cache = new StaticPathCache(network, 1024 * 1024);
+
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility,
+				travelTime);
+
+		AtomicInteger numberOfCalls = new AtomicInteger(0);
+		LeastCostPathCalculator delegate = new LeastCostPathCalculator() {
+			@Override
+			public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person,
+					Vehicle vehicle) {
+				numberOfCalls.incrementAndGet();
+				return dijkstra.calcLeastCostPath(fromNode, toNode, startTime, person, vehicle);
+			}
+		};
+
+		LeastCostPathCalculator calculator = new CachingLeastCostPathCalculatorFactory(
+				(n, d, t) -> delegate, cache).createPathCalculator(network, travelDisutility, travelTime);
+
+		Node fromNode = getNode(network, 2);
+		Node toNode = getNode(network, 7);
+
+		Path first = calculator.calcLeastCostPath(fromNode, toNode, 0.0, null, null);
+		Path second = calculator.calcLeastCostPath(fromNode, toNode, 3600.0, null, null);
+
+		Assert.assertEquals(1, numberOfCalls.get());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+
+		Assert.assertEquals(first.links, second.links);
+		Assert.assertEquals(first.nodes, second.nodes);
+		Assert.assertEquals(50.0, second.travelTime, 1e-6);
+		Assert.assertEquals(first.travelCost, second.travelCost, 1e-6);
+	}
+}
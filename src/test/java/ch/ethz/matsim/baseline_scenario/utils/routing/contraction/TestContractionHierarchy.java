@@ -0,0 +1,173 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.contraction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.RandomNetworks;
+
+public class TestContractionHierarchy {
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	final private static int NUMBER_OF_NODES = 300;
+	final private static int NUMBER_OF_LINKS = 1200;
+
+	private int[] linkFrom = new int[NUMBER_OF_LINKS];
+	private int[] linkTo = new int[NUMBER_OF_LINKS];
+	private double[] linkCost = new double[NUMBER_OF_LINKS];
+
+	private void createRandomGraph(long seed) {
+		Random random = new Random(seed);
+
+		for (int link = 0; link < NUMBER_OF_LINKS; link++) {
+			linkFrom[link] = random.nextInt(NUMBER_OF_NODES);
+			linkTo[link] = random.nextInt(NUMBER_OF_NODES);
+			linkCost[link] = 1.0 + random.nextInt(100);
+		}
+	}
+
+	private double[] dijkstra(int origin) {
+		double[] distances = new double[NUMBER_OF_NODES];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		distances[origin] = 0.0;
+
+		PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+		queue.add(new double[] { 0.0, origin });
+
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int node = (int) entry[1];
+
+			if (entry[0] > distances[node]) {
+				continue;
+			}
+
+			for (int link = 0; link < NUMBER_OF_LINKS; link++) {
+				if (linkFrom[link] == node && entry[0] + linkCost[link] < distances[linkTo[link]]) {
+					distances[linkTo[link]] = entry[0] + linkCost[link];
+					queue.add(new double[] { distances[linkTo[link]], linkTo[link] });
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	private void assertShortestPaths(ContractionHierarchy hierarchy) {
+		ContractionHierarchyQuery query = new ContractionHierarchyQuery(hierarchy);
+
+		for (int origin = 0; origin < NUMBER_OF_NODES; origin += 7) {
+			double[] distances = dijkstra(origin);
+
+			for (int destination = 0; destination < NUMBER_OF_NODES; destination++) {
+				boolean found = query.route(origin, destination);
+				Assert.assertEquals(distances[destination] < Double.POSITIVE_INFINITY, found);
+
+				if (found) {
+					Assert.assertEquals(distances[destination], query.getCost(), 1e-6);
+
+					// The unpacked links must form a connected path with the same cost
+					int node = origin;
+					double cost = 0.0;
+
+					for (int i = 0; i < query.getNumberOfLinks(); i++) {
+						int link = query.getLink(i);
+						Assert.assertEquals(node, linkFrom[link]);
+						node = linkTo[link];
+						cost += linkCost[link];
+					}
+
+					Assert.assertEquals(destination, node);
+					Assert.assertEquals(distances[destination], cost, 1e-6);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testShortestPaths() {
+		for (long seed = 0; seed < 3; seed++) {
+			createRandomGraph(seed);
+			assertShortestPaths(ContractionHierarchy.build(NUMBER_OF_NODES, linkFrom, linkTo, linkCost));
+		}
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		createRandomGraph(42);
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(NUMBER_OF_NODES, linkFrom, linkTo, linkCost);
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		hierarchy.write(new DataOutputStream(buffer));
+
+		ContractionHierarchy readHierarchy = ContractionHierarchy
+				.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+
+		Assert.assertEquals(hierarchy.getNumberOfShortcuts(), readHierarchy.getNumberOfShortcuts());
+		assertShortestPaths(readHierarchy);
+	}
+
+	@Test
+	public void testFactoryCache() {
+		Network network = RandomNetworks.createRandomNetwork(7, NUMBER_OF_NODES, NUMBER_OF_LINKS);
+
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		File cacheDirectory = new File(utils.getOutputDirectory());
+
+		LeastCostPathCalculator contractedRouter = new ContractionHierarchyFactory(cacheDirectory)
+				.createPathCalculator(network, travelDisutility, travelTime);
+
+		// Only the final file is left in the cache directory
+		File[] cacheFiles = cacheDirectory.listFiles((directory, name) -> name.startsWith("contraction_hierarchy_"));
+		Assert.assertEquals(1, cacheFiles.length);
+		Assert.assertTrue(cacheFiles[0].getName().endsWith(".bin"));
+
+		LeastCostPathCalculator loadedRouter = new ContractionHierarchyFactory(cacheDirectory)
+				.createPathCalculator(network, travelDisutility, travelTime);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility,
+				travelTime);
+
+		for (int origin = 0; origin < NUMBER_OF_NODES; origin += 13) {
+			for (int destination = 0; destination < NUMBER_OF_NODES; destination += 3) {
+				Node fromNode = network.getNodes().get(Id.createNodeId(origin));
+				Node toNode = network.getNodes().get(Id.createNodeId(destination));
+
+				Path reference = dijkstra.calcLeastCostPath(fromNode, toNode, 0.0, null, null);
+				Path contracted = contractedRouter.calcLeastCostPath(fromNode, toNode, 0.0, null, null);
+				Path loaded = loadedRouter.calcLeastCostPath(fromNode, toNode, 0.0, null, null);
+
+				if (reference == null) {
+					Assert.assertNull(contracted);
+					Assert.assertNull(loaded);
+				} else {
+					Assert.assertEquals(reference.travelCost, contracted.travelCost, 1e-6);
+					Assert.assertEquals(reference.travelCost, loaded.travelCost, 1e-6);
+					Assert.assertEquals(contracted.links, loaded.links);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package ch.ethz.matsim.baseline_scenario.utils.routing.landmarks;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.RandomNetworks;
+
+public class TestLandmarkRouter {
+	final private static int NUMBER_OF_NODES = 200;
+	final private static int NUMBER_OF_LINKS = 800;
+
+	private Network createRandomNetwork(long seed) {
+		return RandomNetworks.createRandomNetwork(seed, NUMBER_OF_NODES, NUMBER_OF_LINKS);
+	}
+
+	/**
+	 * BPR travel time with a volume that changes over the day. The volume changes
+	 * slowly enough that leaving later never means arriving earlier.
+	 */
+	static private class BPRTravelTime implements TravelTime {
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			double phase = Integer.parseInt(link.getId().toString()) * 0.7;
+			double volume = link.getCapacity() * (0.5 + 0.7 * Math.sin(2.0 * Math.PI * time / 86400.0 + phase));
+			double freeSpeedTravelTime = link.getLength() / link.getFreespeed();
+			return freeSpeedTravelTime * (1.0 + 0.15 * Math.pow(Math.max(0.0, volume) / link.getCapacity(), 4.0));
+		}
+	}
+
+	private double[] computeFreeSpeedTravelTimes(Network network, Node origin) {
+		double[] distances = new double[NUMBER_OF_NODES];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		distances[Integer.parseInt(origin.getId().toString())] = 0.0;
+
+		PriorityQueue<Object[]> queue = new PriorityQueue<>((a, b) -> Double.compare((Double) a[0], (Double) b[0]));
+		queue.add(new Object[] { 0.0, origin });
+
+		while (!queue.isEmpty()) {
+			Object[] entry = queue.poll();
+			double distance = (Double) entry[0];
+			Node node = (Node) entry[1];
+
+			if (distance > distances[Integer.parseInt(node.getId().toString())]) {
+				continue;
+			}
+
+			for (Link link : node.getOutLinks().values()) {
+				int next = Integer.parseInt(link.getToNode().getId().toString());
+				double nextDistance = distance + link.getLength() / link.getFreespeed();
+
+				if (nextDistance < distances[next]) {
+					distances[next] = nextDistance;
+					queue.add(new Object[] { nextDistance, link.getToNode() });
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	@Test
+	public void testLowerBounds() {
+		for (long seed = 0; seed < 3; seed++) {
+			Network network = createRandomNetwork(seed);
+			LandmarkTable table = LandmarkTable.create(network, 8);
+
+			for (int node = 0; node < NUMBER_OF_NODES; node++) {
+				Node fromNode = network.getNodes().get(Id.createNodeId(node));
+				double[] travelTimes = computeFreeSpeedTravelTimes(network, fromNode);
+				int nodeIndex = table.getNetworkIndex().getNodeIndex(fromNode);
+
+				for (int target = 0; target < NUMBER_OF_NODES; target++) {
+					int targetIndex = table.getNetworkIndex()
+							.getNodeIndex(network.getNodes().get(Id.createNodeId(target)));
+
+					for (int landmark = 0; landmark < table.getNumberOfLandmarks(); landmark++) {
+						Assert.assertTrue(table.getLowerBound(landmark, nodeIndex, targetIndex) <= travelTimes[target]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsDijkstra() {
+		TravelTime travelTime = new BPRTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+		for (long seed = 0; seed < 3; seed++) {
+			Network network = createRandomNetwork(seed);
+
+			LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility,
+					travelTime);
+			LeastCostPathCalculator landmarkRouter = new LandmarkRouterFactory(LandmarkTable.create(network, 8))
+					.createPathCalculator(network, travelDisutility, travelTime);
+			LeastCostPathCalculator noLandmarkRouter = new LandmarkRouterFactory(LandmarkTable.create(network, 0))
+					.createPathCalculator(network, travelDisutility, travelTime);
+
+			Random random = new Random(seed);
+
+			for (int query = 0; query < 500; query++) {
+				Node fromNode = network.getNodes().get(Id.createNodeId(random.nextInt(NUMBER_OF_NODES)));
+				Node toNode = network.getNodes().get(Id.createNodeId(random.nextInt(NUMBER_OF_NODES)));
+				double departureTime = random.nextDouble() * 86400.0;
+
+				Path reference = dijkstra.calcLeastCostPath(fromNode, toNode, departureTime, null, null);
+
+				for (LeastCostPathCalculator router : Arrays.asList(landmarkRouter, noLandmarkRouter)) {
+					Path path = router.calcLeastCostPath(fromNode, toNode, departureTime, null, null);
+
+					if (reference == null) {
+						Assert.assertNull(path);
+					} else {
+						Assert.assertEquals(reference.travelCost, path.travelCost, 1e-6);
+						Assert.assertEquals(reference.travelTime, path.travelTime, 1e-6);
+					}
+				}
+			}
+		}
+	}
+}
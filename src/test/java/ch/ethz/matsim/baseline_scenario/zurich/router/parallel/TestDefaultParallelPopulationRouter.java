@@ -0,0 +1,103 @@
+package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostEstimator;
+import ch.ethz.matsim.baseline_scenario.utils.routing.RoutingCostReport;
+import ch.ethz.matsim.baseline_scenario.zurich.router.PlanRouter;
+
+public class TestDefaultParallelPopulationRouter {
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSortByDecreasingCost() {
+		double[] costs = new double[] { 1.0, 5.0, 2.0, 5.0, 0.0, 2.0, 7.0 };
+		int[] order = new int[] { 0, 1, 2, 3, 4, 5, 6 };
+
+		DefaultParallelPopulationRouter.sortByDecreasingCost(order, costs);
+
+		// Equal costs keep their order
+		Assert.assertArrayEquals(new int[] { 6, 1, 3, 2, 5, 0, 4 }, order);
+
+		int[] empty = new int[0];
+		DefaultParallelPopulationRouter.sortByDecreasingCost(empty, new double[0]);
+		Assert.assertEquals(0, empty.length);
+	}
+
+	@Test
+	public void testLongestFirstWithReport() throws Exception {
+		// The number of activities of the plans in population order
+		List<Integer> planSizes = Arrays.asList(2, 5, 3, 5, 1, 4);
+
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+
+		for (int i = 0; i < planSizes.size(); i++) {
+			Person person = population.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = population.getFactory().createPlan();
+
+			for (int k = 0; k < planSizes.get(i); k++) {
+				plan.getPlanElements().add(PopulationUtils.createActivityFromCoord("person" + i, new Coord(k, 0.0)));
+			}
+
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+
+		RoutingCostEstimator estimator = new RoutingCostEstimator(null, null, null, null, null) {
+			@Override
+			public double estimate(List<? extends PlanElement> plan) {
+				return plan.size();
+			}
+		};
+
+		List<Integer> routedSizes = Collections.synchronizedList(new ArrayList<>());
+		PlanRouter planRouter = plan -> {
+			routedSizes.add(plan.size());
+			return new ArrayList<>(plan);
+		};
+
+		RoutingCostReport report = new RoutingCostReport();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		new DefaultParallelPopulationRouter(new SequentialParallelPlanRouter(Collections.singletonList(planRouter)),
+				1, false, estimator, report).run(population, executor);
+		executor.shutdown();
+
+		Assert.assertEquals(Arrays.asList(5, 5, 4, 3, 2, 1), routedSizes);
+		Assert.assertEquals(planSizes.size(), report.size());
+
+		for (int i = 0; i < planSizes.size(); i++) {
+			Person person = population.getPersons().get(Id.createPersonId(i));
+			Assert.assertEquals((int) planSizes.get(i), person.getPlans().get(0).getPlanElements().size());
+		}
+
+		File path = new File(utils.getOutputDirectory(), "routing_cost.csv");
+		report.write(path);
+
+		List<String> lines = Files.readAllLines(path.toPath());
+		Assert.assertEquals(1 + planSizes.size(), lines.size());
+		Assert.assertEquals("person_id;estimated_cost;routing_time_ms", lines.get(0));
+		Assert.assertTrue(lines.get(2).startsWith("1;5.0;"));
+	}
+}
@@ -0,0 +1,150 @@
+package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+
+import ch.ethz.matsim.baseline_scenario.zurich.router.PlanRouter;
+
+public class TestSequentialParallelPlanRouter {
+	final private static int NUMBER_OF_THREADS = 4;
+
+	/**
+	 * Remembers which router on which thread has routed a plan, identified by its
+	 * first element.
+	 */
+	static private class RecordingPlanRouter implements PlanRouter {
+		final private Map<PlanElement, String> routedBy;
+		final private AtomicInteger numberOfCalls;
+		final private CyclicBarrier barrier;
+
+		RecordingPlanRouter(Map<PlanElement, String> routedBy, AtomicInteger numberOfCalls, CyclicBarrier barrier) {
+			this.routedBy = routedBy;
+			this.numberOfCalls = numberOfCalls;
+			this.barrier = barrier;
+		}
+
+		@Override
+		public List<PlanElement> route(List<PlanElement> plan) {
+			try {
+				// The first plans wait for each other, so every worker routes at least one plan
+				if (numberOfCalls.getAndIncrement() < NUMBER_OF_THREADS) {
+					barrier.await();
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+
+			Assert.assertNull(routedBy.put(plan.get(0), Thread.currentThread().getName() + " "
+					+ System.identityHashCode(this)));
+			return new ArrayList<>(plan);
+		}
+	}
+
+	private List<PlanElement> createPlanElements(String id) {
+		List<PlanElement> elements = new ArrayList<>();
+
+		for (int i = 0; i < 3; i++) {
+			elements.add(PopulationUtils.createActivityFromCoord(id + " " + i, new Coord(i, 0.0)));
+		}
+
+		return elements;
+	}
+
+	@Test
+	public void testPlanGranularity() {
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+
+		Map<PlanElement, String> routedBy = new ConcurrentHashMap<>();
+		AtomicInteger numberOfCalls = new AtomicInteger(0);
+		CyclicBarrier barrier = new CyclicBarrier(NUMBER_OF_THREADS);
+
+		SequentialParallelPlanRouter router = new SequentialParallelPlanRouter(
+				() -> new RecordingPlanRouter(routedBy, numberOfCalls, barrier));
+
+		List<List<PlanElement>> plans = new LinkedList<>();
+		List<CompletableFuture<List<PlanElement>>> futures = new LinkedList<>();
+
+		for (int i = 0; i < 100; i++) {
+			List<PlanElement> plan = createPlanElements("plan" + i);
+			plans.add(plan);
+			futures.add(router.route(plan, executor));
+		}
+
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+		executor.shutdown();
+
+		// Every plan is routed as a whole by one call
+		Assert.assertEquals(100, numberOfCalls.get());
+		Assert.assertEquals(100, routedBy.size());
+
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(plans.get(i), futures.get(i).join());
+		}
+
+		// One router per worker
+		Assert.assertEquals(NUMBER_OF_THREADS, router.getNumberOfInstances());
+		Assert.assertEquals(NUMBER_OF_THREADS, routedBy.values().stream().distinct().count());
+	}
+
+	@Test
+	public void testPersonGranularity() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+
+		Map<PlanElement, String> routedBy = new ConcurrentHashMap<>();
+		AtomicInteger numberOfCalls = new AtomicInteger(0);
+		CyclicBarrier barrier = new CyclicBarrier(NUMBER_OF_THREADS);
+
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+
+		for (int i = 0; i < 50; i++) {
+			Person person = population.getFactory().createPerson(Id.createPersonId(i));
+
+			for (int k = 0; k < 3; k++) {
+				Plan plan = population.getFactory().createPlan();
+				plan.getPlanElements().addAll(createPlanElements("person" + i + " plan" + k));
+				person.addPlan(plan);
+			}
+
+			population.addPerson(person);
+		}
+
+		SequentialParallelPlanRouter router = new SequentialParallelPlanRouter(
+				() -> new RecordingPlanRouter(routedBy, numberOfCalls, barrier));
+
+		new DefaultParallelPopulationRouter(router, 8, true).run(population, executor);
+		executor.shutdown();
+
+		Assert.assertEquals(150, numberOfCalls.get());
+		Assert.assertEquals(NUMBER_OF_THREADS, router.getNumberOfInstances());
+
+		for (Person person : population.getPersons().values()) {
+			String personRoutedBy = routedBy.get(person.getPlans().get(0).getPlanElements().get(0));
+			Assert.assertNotNull(personRoutedBy);
+
+			// All plans of a person are routed on one thread by one router
+			for (Plan plan : person.getPlans()) {
+				Assert.assertEquals(3, plan.getPlanElements().size());
+				Assert.assertEquals(personRoutedBy, routedBy.get(plan.getPlanElements().get(0)));
+			}
+		}
+	}
+}
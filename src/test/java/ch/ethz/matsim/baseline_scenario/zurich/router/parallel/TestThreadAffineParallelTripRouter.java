@@ -0,0 +1,69 @@
+package ch.ethz.matsim.baseline_scenario.zurich.router.parallel;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.PlanElement;
+
+import ch.ethz.matsim.baseline_scenario.zurich.router.trip.TripRouter;
+import ch.ethz.matsim.baseline_scenario.zurich.utils.ActivityWithFacility;
+
+public class TestThreadAffineParallelTripRouter {
+	@Test
+	public void testOneInstancePerWorker() {
+		int numberOfThreads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+		// The first trips wait for each other, so every worker routes at least one trip
+		CyclicBarrier barrier = new CyclicBarrier(numberOfThreads);
+		AtomicInteger numberOfTrips = new AtomicInteger(0);
+		AtomicInteger numberOfCreatedRouters = new AtomicInteger(0);
+		Map<Thread, TripRouter> usedRouters = new ConcurrentHashMap<>();
+
+		ThreadAffineParallelTripRouter parallelRouter = new ThreadAffineParallelTripRouter(() -> {
+			numberOfCreatedRouters.incrementAndGet();
+
+			return new TripRouter() {
+				@Override
+				public List<PlanElement> route(ActivityWithFacility originActivity, List<PlanElement> trip,
+						ActivityWithFacility destinationActivity) {
+					try {
+						if (numberOfTrips.getAndIncrement() < numberOfThreads) {
+							barrier.await();
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+
+					// A thread must always see the same router
+					Assert.assertSame(this, usedRouters.computeIfAbsent(Thread.currentThread(), t -> this));
+					return Collections.emptyList();
+				}
+			};
+		});
+
+		List<CompletableFuture<List<PlanElement>>> futures = new LinkedList<>();
+
+		for (int i = 0; i < 200; i++) {
+			futures.add(parallelRouter.route(null, Collections.emptyList(), null, executor));
+		}
+
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+		executor.shutdown();
+
+		Assert.assertEquals(200, numberOfTrips.get());
+		Assert.assertEquals(numberOfThreads, parallelRouter.getNumberOfInstances());
+		Assert.assertEquals(numberOfThreads, numberOfCreatedRouters.get());
+		Assert.assertEquals(numberOfThreads, usedRouters.size());
+	}
+}
@@ -0,0 +1,87 @@
+package ch.matsim.baseline_scenario.zurich.cutter.utils;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder;
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.DepartureFinder.NoDepartureFoundException;
+import ch.ethz.matsim.baseline_scenario.zurich.cutter.utils.IndexedDepartureFinder;
+
+public class TestIndexedDepartureFinder {
+	@Test
+	public void testIndexedDepartureFinder() throws NoDepartureFoundException {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitRouteStop stop00 = factory.createTransitRouteStop(null, 0.0, 0.0);
+		TransitRouteStop stop45 = factory.createTransitRouteStop(null, 40.0 * 60.0, 45.0 * 60.0);
+		TransitRouteStop stop90 = factory.createTransitRouteStop(null, 85.0 * 60.0, 90.0 * 60.0);
+
+		TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class), null,
+				Arrays.asList(stop00, stop45, stop90), "pt");
+
+		Departure departureAt08 = factory.createDeparture(Id.create("08:00", Departure.class), 8.0 * 3600.0);
+		Departure departureAt09 = factory.createDeparture(Id.create("09:00", Departure.class), 9.0 * 3600.0);
+		Departure departureAt10 = factory.createDeparture(Id.create("10:00", Departure.class), 10.0 * 3600.0);
+		Departure departureAt11 = factory.createDeparture(Id.create("11:00", Departure.class), 11.0 * 3600.0);
+
+		// Added out of order on purpose, the index must sort them
+		Arrays.asList(departureAt10, departureAt08, departureAt11, departureAt09).forEach(route::addDeparture);
+
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+
+		TransitSchedule schedule = factory.createTransitSchedule();
+		schedule.addTransitLine(line);
+
+		DepartureFinder finder = new IndexedDepartureFinder(schedule);
+
+		Assert.assertEquals(departureAt08, finder.findDeparture(route, stop00, 7.0 * 3600.0));
+		Assert.assertEquals(departureAt08, finder.findDeparture(route, stop00, 8.0 * 3600.0));
+		Assert.assertEquals(departureAt09, finder.findDeparture(route, stop00, 8.5 * 3600.0));
+		Assert.assertEquals(departureAt10, finder.findDeparture(route, stop00, 9.5 * 3600.0));
+		Assert.assertEquals(departureAt11, finder.findDeparture(route, stop00, 10.5 * 3600.0));
+
+		boolean exceptionThrown = false;
+		try {
+			finder.findDeparture(route, stop00, 11.5 * 3600.0);
+		} catch (NoDepartureFoundException e) {
+			exceptionThrown = true;
+		}
+		Assert.assertTrue(exceptionThrown);
+
+		Assert.assertEquals(departureAt10, finder.findDeparture(route, stop45, 10.5 * 3600.0));
+		Assert.assertEquals(departureAt09, finder.findDeparture(route, stop90, 10.0 * 3600.0));
+
+		Assert.assertEquals(departureAt09, finder.tryFindDeparture(route, stop45, 9.5 * 3600.0).get());
+		// The last departure reaches stop90 exactly at 12:30
+		Assert.assertEquals(departureAt11, finder.tryFindDeparture(route, stop90, 12.5 * 3600.0).get());
+		Assert.assertFalse(finder.tryFindDeparture(route, stop90, 12.6 * 3600.0).isPresent());
+	}
+
+	@Test
+	public void testRouteOutsideOfSchedule() throws NoDepartureFoundException {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+
+		TransitRouteStop stop00 = factory.createTransitRouteStop(null, 0.0, 0.0);
+		TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class), null,
+				Arrays.asList(stop00), "pt");
+
+		Departure departureAt08 = factory.createDeparture(Id.create("08:00", Departure.class), 8.0 * 3600.0);
+		route.addDeparture(departureAt08);
+
+		DepartureFinder finder = new IndexedDepartureFinder(factory.createTransitSchedule());
+
+		Assert.assertEquals(departureAt08, finder.findDeparture(route, stop00, 7.0 * 3600.0));
+		Assert.assertFalse(finder.tryFindDeparture(route, stop00, 9.0 * 3600.0).isPresent());
+	}
+}